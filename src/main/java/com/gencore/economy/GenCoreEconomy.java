@@ -6,9 +6,12 @@ import com.gencore.economy.database.DatabaseManager;
 import com.gencore.economy.hooks.PlaceholderAPIHook;
 import com.gencore.economy.hooks.VaultHook;
 import com.gencore.economy.listeners.PlayerJoinListener;
+import com.gencore.economy.listeners.PlayerQuitListener;
 import org.bukkit.plugin.ServicePriority;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.util.concurrent.CompletableFuture;
+
 public class GenCoreEconomy extends JavaPlugin {
 
     private static GenCoreEconomy instance;
@@ -33,8 +36,12 @@ public class GenCoreEconomy extends JavaPlugin {
         saveDefaultConfig();
 
 
+        // Storage opens in the background; the API, commands and hooks below answer
+        // "not ready" until it is (see DatabaseManager.whenReady)
         databaseManager = new DatabaseManager(this);
-        databaseManager.initialize();
+        long initStart = System.currentTimeMillis();
+        databaseManager.initializeAsync().thenRun(() ->
+                getLogger().info("Storage ready in " + (System.currentTimeMillis() - initStart) + "ms"));
 
 
         moneyAPI = new MoneyAPI(this);
@@ -56,6 +63,12 @@ public class GenCoreEconomy extends JavaPlugin {
 
 
         getServer().getPluginManager().registerEvents(new PlayerJoinListener(this), this);
+        getServer().getPluginManager().registerEvents(new PlayerQuitListener(this), this);
+        // Players still online after a reload never pass pre-login
+        getServer().getOnlinePlayers().forEach(player -> {
+            databaseManager.getSessionManager().joined(player.getUniqueId());
+            databaseManager.loadPlayerDataAsync(player.getUniqueId());
+        });
 
 
         if (getServer().getPluginManager().getPlugin("Vault") != null) {
@@ -76,12 +89,8 @@ public class GenCoreEconomy extends JavaPlugin {
     @Override
     public void onDisable() {
         if (databaseManager != null) {
-            getLogger().info("Saving all player data...");
-            // Save all cached data asynchronously then close
-            databaseManager.saveAllAsync().thenRun(() -> {
-                databaseManager.close();
-                getLogger().info("All data saved successfully!");
-            }).join(); // Wait for completion
+            // Saves only players with unsaved changes, bounded by database.shutdown.deadline-seconds
+            databaseManager.shutdown();
         }
         getLogger().info("GenCoreEconomy has been disabled!");
     }
@@ -93,6 +102,7 @@ public class GenCoreEconomy extends JavaPlugin {
         getCommand("credits").setExecutor(new CreditsCommand(this));
         getCommand("levels").setExecutor(new LevelsCommand(this));
         getCommand("rebirth").setExecutor(new RebirthCommand(this));
+        getCommand("gencore").setExecutor(new GenCoreCommand(this));
     }
 
 
@@ -104,6 +114,13 @@ public class GenCoreEconomy extends JavaPlugin {
         return databaseManager;
     }
 
+    /**
+     * Completes once economy storage is ready; use the API only after this when calling it during startup
+     */
+    public CompletableFuture<Void> whenReady() {
+        return databaseManager.whenReady();
+    }
+
     public MoneyAPI getMoneyAPI() {
         return moneyAPI;
     }
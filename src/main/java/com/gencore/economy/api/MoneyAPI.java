@@ -18,6 +18,10 @@ import java.util.UUID;
  * // Or via ServiceManager
  * MoneyAPI api = Bukkit.getServicesManager().getRegistration(MoneyAPI.class).getProvider();
  *
+ * // Storage opens in the background; calls made before it is ready throw
+ * // StorageNotReadyException, so wait for it when using the API during startup
+ * GenCoreEconomy.getInstance().whenReady().thenRun(() -> ...);
+ *
  * // Add money to player
  * moneyAPI.addMoney(player.getUniqueId(), 1000.0);
  *
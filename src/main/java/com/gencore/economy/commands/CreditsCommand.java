@@ -27,6 +27,11 @@ public class CreditsCommand implements CommandExecutor, TabCompleter {
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
 
+        if (!plugin.getDatabaseManager().isReady()) {
+            sender.sendMessage("§cThe economy is still loading, try again in a moment.");
+            return true;
+        }
+
         if (args.length == 0) {
             if (!(sender instanceof Player)) {
                 sender.sendMessage("§cOnly players can check their balance!");
@@ -0,0 +1,647 @@
+package com.gencore.economy.commands;
+
+import com.gencore.economy.GenCoreEconomy;
+import com.gencore.economy.database.AccrualPolicy;
+import com.gencore.economy.database.DatabaseExecutors;
+import com.gencore.economy.database.DatabaseManager;
+import com.gencore.economy.database.MassUpdate;
+import com.gencore.economy.database.backup.BackupManager;
+import com.gencore.economy.database.storage.SqliteStorageBackend;
+import com.gencore.economy.database.storage.StorageBackend;
+import com.gencore.economy.database.storage.StorageException;
+import com.gencore.economy.database.transfer.AccountExporter;
+import com.gencore.economy.database.transfer.AccountFilter;
+import com.gencore.economy.database.transfer.AccountImporter;
+import com.gencore.economy.database.transfer.CsvAccountFormat;
+import com.gencore.economy.database.transfer.EssentialsUserdataFormat;
+import com.gencore.economy.database.transfer.ImportFormat;
+import com.gencore.economy.database.transfer.StorageTransfer;
+import com.gencore.economy.util.NumberFormatter;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabCompleter;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+public class GenCoreCommand implements CommandExecutor, TabCompleter {
+
+    private static final List<String> BACKENDS = List.of("sqlite", "partitioned", "mysql", "mapped");
+    private static final String MASS_USAGE = "/gencore mass <column> <give|take|set|multiply|clamp> <amount|min..max> <all|filter>";
+
+    private final GenCoreEconomy plugin;
+    // One long-running job (migration or import) at a time
+    private final AtomicBoolean busy = new AtomicBoolean();
+    private volatile Runnable cancelJob;
+    private volatile boolean cancelRequested;
+
+    public GenCoreCommand(GenCoreEconomy plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+
+        if (!plugin.getDatabaseManager().isReady()) {
+            sender.sendMessage("§cThe economy is still loading, try again in a moment.");
+            return true;
+        }
+
+        if (!sender.hasPermission("gencore.admin")) {
+            sender.sendMessage("§cYou don't have permission!");
+            return true;
+        }
+
+        if (args.length == 0) {
+            sender.sendMessage("§cUsage: /gencore migrate <from> <to> [resume] [no-verify]");
+            sender.sendMessage("§cUsage: /gencore import <essentials [folder]|csv <file>>");
+            sender.sendMessage("§cUsage: /gencore export <csv|ndjson> [filter, e.g. money>=1000,level>10]");
+            sender.sendMessage("§cUsage: /gencore backup [full|incremental|list|restore <number>]");
+            sender.sendMessage("§cUsage: /gencore season reset confirm");
+            sender.sendMessage("§cUsage: /gencore accrual [settle]");
+            sender.sendMessage("§cUsage: " + MASS_USAGE);
+            sender.sendMessage("§cUsage: /gencore <migrate|import|export> cancel");
+            return true;
+        }
+
+        String subCmd = args[0].toLowerCase();
+
+        switch (subCmd) {
+            case "migrate":
+                return handleMigrate(sender, args);
+            case "import":
+                return handleImport(sender, args);
+            case "export":
+                return handleExport(sender, args);
+            case "backup":
+                return handleBackup(sender, args);
+            case "season":
+                return handleSeason(sender, args);
+            case "accrual":
+                return handleAccrual(sender, args);
+            case "mass":
+                return handleMass(sender, args);
+            default:
+                sender.sendMessage("§cUnknown subcommand!");
+                return true;
+        }
+    }
+
+    // /gencore migrate <from> <to> [resume] [no-verify]
+    private boolean handleMigrate(CommandSender sender, String[] args) {
+        if (args.length == 2 && args[1].equalsIgnoreCase("cancel")) {
+            return handleCancel(sender);
+        }
+
+        if (args.length < 3) {
+            sender.sendMessage("§cUsage: /gencore migrate <from> <to> [resume] [no-verify]");
+            return true;
+        }
+
+        String from = args[1].toLowerCase();
+        String to = args[2].toLowerCase();
+        if (!BACKENDS.contains(from) || !BACKENDS.contains(to)) {
+            sender.sendMessage("§cBackends: " + String.join(", ", BACKENDS));
+            return true;
+        }
+        if (from.equals(to)) {
+            sender.sendMessage("§cSource and target must be different backends!");
+            return true;
+        }
+
+        DatabaseManager databaseManager = plugin.getDatabaseManager();
+        String active = plugin.getConfig().getString("database.type", "sqlite").toLowerCase();
+        if (to.equals(active)) {
+            // Live saves would race with the copied rows
+            sender.sendMessage("§cCannot migrate into the backend the server is using; stop the server and use the standalone tool.");
+            return true;
+        }
+
+        List<String> flags = Arrays.stream(args, 3, args.length).map(String::toLowerCase).toList();
+        boolean resume = flags.contains("resume");
+        boolean verify = !flags.contains("no-verify");
+
+        if (startJob(sender, () -> migrate(sender, from, to, from.equals(active), resume, verify))) {
+            sender.sendMessage("§aMigrating §f" + from + " §ato §f" + to + "§a; progress is logged to the console.");
+        }
+        return true;
+    }
+
+    // /gencore import essentials [folder] | csv <file>
+    private boolean handleImport(CommandSender sender, String[] args) {
+        if (args.length == 2 && args[1].equalsIgnoreCase("cancel")) {
+            return handleCancel(sender);
+        }
+
+        ImportFormat<?> format;
+        if (args.length >= 2 && args[1].equalsIgnoreCase("essentials")) {
+            File folder = args.length >= 3
+                    ? resolve(args[2])
+                    : new File(plugin.getDataFolder().getParentFile(), "Essentials/userdata");
+            format = new EssentialsUserdataFormat(folder);
+        } else if (args.length >= 3 && args[1].equalsIgnoreCase("csv")) {
+            format = new CsvAccountFormat(resolve(args[2]));
+        } else {
+            sender.sendMessage("§cUsage: /gencore import <essentials [folder]|csv <file>>");
+            return true;
+        }
+
+        // Players looked up before the import hold starting balances instead of their new rows;
+        // a failed import may still have written some batches, so the refresh always runs
+        if (startJob(sender, () -> importAccounts(sender, format), () -> refreshAfterImport(sender))) {
+            sender.sendMessage("§aImporting accounts from §f" + format.getName() + "§a; progress is logged to the console.");
+        }
+        return true;
+    }
+
+    // /gencore export <csv|ndjson> [filter]
+    private boolean handleExport(CommandSender sender, String[] args) {
+        if (args.length == 2 && args[1].equalsIgnoreCase("cancel")) {
+            return handleCancel(sender);
+        }
+        if (args.length < 2) {
+            sender.sendMessage("§cUsage: /gencore export <csv|ndjson> [filter, e.g. money>=1000,level>10]");
+            return true;
+        }
+
+        AccountExporter.Format format;
+        AccountFilter filter;
+        try {
+            format = AccountExporter.Format.valueOf(args[1].toUpperCase());
+            filter = AccountFilter.parse(String.join("", Arrays.copyOfRange(args, 2, args.length)));
+        } catch (IllegalArgumentException e) {
+            sender.sendMessage("§c" + (args[1].equalsIgnoreCase("csv") || args[1].equalsIgnoreCase("ndjson")
+                    ? e.getMessage() : "Formats: csv, ndjson"));
+            return true;
+        }
+
+        if (!busy.compareAndSet(false, true)) {
+            sender.sendMessage("§cA migration, import or export is already running!");
+            return true;
+        }
+
+        DatabaseManager databaseManager = plugin.getDatabaseManager();
+        String name = "economy-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + "." + format.getExtension();
+        AccountExporter exporter = databaseManager.createExporter(
+                new File(new File(plugin.getDataFolder(), "exports"), name), format, filter);
+        setCancel(exporter::cancel);
+
+        sender.sendMessage("§aExporting §f" + filter + " §aaccounts to §fexports/" + name + "§a...");
+        // Include changes still in the cache
+        databaseManager.saveAllAsync()
+                .thenCompose(v -> databaseManager.exportAsync(exporter))
+                .whenComplete((report, error) -> {
+                    cancelJob = null;
+                    cancelRequested = false;
+                    busy.set(false);
+                    if (error != null) {
+                        Throwable cause = error.getCause() != null ? error.getCause() : error;
+                        plugin.getLogger().severe("Failed to export accounts: " + cause.getMessage());
+                        reply(sender, "§cExport failed: " + cause.getMessage());
+                    } else {
+                        plugin.getLogger().info("Exported " + report);
+                        reply(sender, "§aExported §f" + report);
+                    }
+                });
+        return true;
+    }
+
+    // /gencore backup [full|incremental|list|restore <number>]
+    private boolean handleBackup(CommandSender sender, String[] args) {
+        DatabaseManager databaseManager = plugin.getDatabaseManager();
+        BackupManager backups = databaseManager.getBackups();
+        if (backups == null) {
+            sender.sendMessage("§cBackups are disabled; set §fdatabase.backup.enabled: true §cand restart.");
+            return true;
+        }
+
+        String action = args.length >= 2 ? args[1].toLowerCase() : "incremental";
+        switch (action) {
+            case "full", "incremental" -> {
+                sender.sendMessage("§aTaking a" + (action.equals("full") ? " full" : "n incremental") + " backup...");
+                // Long.MAX_VALUE: never due, so only a broken chain turns it into a full backup
+                databaseManager.backupAsync(action.equals("full") ? 0 : Long.MAX_VALUE)
+                        .whenComplete((backup, error) -> {
+                            if (error != null) {
+                                Throwable cause = error.getCause() != null ? error.getCause() : error;
+                                plugin.getLogger().severe("Failed to back up: " + cause.getMessage());
+                                reply(sender, "§cBackup failed: " + cause.getMessage());
+                            } else {
+                                reply(sender, backup == null
+                                        ? "§aNothing changed since the last backup."
+                                        : "§aBackup written: §f" + backup);
+                            }
+                        });
+            }
+            case "list" -> plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+                List<BackupManager.Backup> list = backups.list();
+                reply(sender, list.isEmpty() ? "§cNo backups yet." : "§aBackups (restore any by number):");
+                list.forEach(backup -> reply(sender, "§f" + backup));
+            });
+            case "restore" -> {
+                long sequence;
+                try {
+                    sequence = Long.parseLong(args.length >= 3 ? args[2] : "");
+                } catch (NumberFormatException e) {
+                    sender.sendMessage("§cUsage: /gencore backup restore <number>; see /gencore backup list");
+                    return true;
+                }
+                File file = new File(plugin.getDataFolder(), "restore-" + sequence + ".db");
+                if (file.exists()) {
+                    sender.sendMessage("§c" + file.getName() + " already exists; delete it first.");
+                    return true;
+                }
+                if (startJob(sender, () -> restore(sender, sequence, file))) {
+                    sender.sendMessage("§aRestoring backup §f#" + sequence + " §ainto §f" + file.getName() + "§a...");
+                }
+            }
+            default -> sender.sendMessage("§cUsage: /gencore backup [full|incremental|list|restore <number>]");
+        }
+        return true;
+    }
+
+    // /gencore season reset confirm
+    private boolean handleSeason(CommandSender sender, String[] args) {
+        List<String> carried = plugin.getConfig().getStringList("database.season.carry-over").stream()
+                .map(String::toLowerCase)
+                .toList();
+        for (String column : carried) {
+            if (!DatabaseManager.PlayerData.COLUMNS.contains(column)) {
+                sender.sendMessage("§cUnknown column in database.season.carry-over: §f" + column);
+                return true;
+            }
+        }
+
+        if (args.length < 2 || !args[1].equalsIgnoreCase("reset")) {
+            sender.sendMessage("§cUsage: /gencore season reset confirm");
+            return true;
+        }
+        if (args.length < 3 || !args[2].equalsIgnoreCase("confirm")) {
+            sender.sendMessage("§eThis archives every balance and starts a new season. Kept: §f"
+                    + (carried.isEmpty() ? "nothing" : String.join(", ", carried)) + "§e.");
+            sender.sendMessage("§eRun §f/gencore season reset confirm §eto continue.");
+            return true;
+        }
+
+        if (!busy.compareAndSet(false, true)) {
+            sender.sendMessage("§cA migration, import or export is already running!");
+            return true;
+        }
+
+        sender.sendMessage("§aStarting a new season...");
+        plugin.getDatabaseManager().resetSeasonAsync(Set.copyOf(carried))
+                .whenComplete((reset, error) -> {
+                    busy.set(false);
+                    if (error != null) {
+                        Throwable cause = error.getCause() != null ? error.getCause() : error;
+                        plugin.getLogger().severe("Failed to reset season: " + cause.getMessage());
+                        reply(sender, "§cSeason reset failed: " + cause.getMessage());
+                    } else {
+                        plugin.getLogger().info("New season: " + reset);
+                        reply(sender, "§aNew season started: §f" + reset);
+                    }
+                });
+        return true;
+    }
+
+    // /gencore accrual [settle]
+    private boolean handleAccrual(CommandSender sender, String[] args) {
+        AccrualPolicy accrual = plugin.getDatabaseManager().getAccrual();
+        if (args.length < 2) {
+            sender.sendMessage("§eAccrual: §f" + (accrual.isEnabled() ? accrual : "off"));
+            return true;
+        }
+        if (!args[1].equalsIgnoreCase("settle")) {
+            sender.sendMessage("§cUsage: /gencore accrual [settle]");
+            return true;
+        }
+        if (!accrual.isEnabled()) {
+            sender.sendMessage("§cNo interest or decay is configured under currencies!");
+            return true;
+        }
+
+        if (!busy.compareAndSet(false, true)) {
+            sender.sendMessage("§cA migration, import or export is already running!");
+            return true;
+        }
+
+        sender.sendMessage("§aSettling interest and decay for every account...");
+        plugin.getDatabaseManager().settleAccrualAsync()
+                .whenComplete((settlement, error) -> {
+                    busy.set(false);
+                    if (error != null) {
+                        Throwable cause = error.getCause() != null ? error.getCause() : error;
+                        plugin.getLogger().severe("Failed to settle accrual: " + cause.getMessage());
+                        reply(sender, "§cSettle failed: " + cause.getMessage());
+                    } else {
+                        plugin.getLogger().info("Accrual settled: " + settlement);
+                        reply(sender, "§aSettled: §f" + settlement);
+                    }
+                });
+        return true;
+    }
+
+    // /gencore mass <column> <give|take|set|multiply|clamp> <amount|min..max> <all|filter>
+    private boolean handleMass(CommandSender sender, String[] args) {
+        if (args.length < 5) {
+            sender.sendMessage("§cUsage: " + MASS_USAGE);
+            sender.sendMessage("§cExample: /gencore mass money give 10k rebirths>=5");
+            return true;
+        }
+
+        MassUpdate update;
+        try {
+            String operation = args[2].toLowerCase();
+            double value;
+            double max = 0;
+            if (operation.equals("clamp")) {
+                String[] bounds = args[3].split("\\.\\.", 2);
+                if (bounds.length < 2) {
+                    sender.sendMessage("§cClamp takes a range, e.g. 0..1m");
+                    return true;
+                }
+                value = NumberFormatter.parseFormattedNumber(bounds[0]);
+                max = NumberFormatter.parseFormattedNumber(bounds[1]);
+            } else {
+                value = NumberFormatter.parseFormattedNumber(args[3]);
+            }
+
+            AccountFilter filter = AccountFilter.parse(String.join("", Arrays.copyOfRange(args, 4, args.length)));
+            update = switch (operation) {
+                case "give" -> new MassUpdate(args[1].toLowerCase(), MassUpdate.Operation.ADD, value, 0, filter);
+                case "take" -> new MassUpdate(args[1].toLowerCase(), MassUpdate.Operation.ADD, -value, 0, filter);
+                case "set" -> new MassUpdate(args[1].toLowerCase(), MassUpdate.Operation.SET, value, 0, filter);
+                case "multiply" -> new MassUpdate(args[1].toLowerCase(), MassUpdate.Operation.MULTIPLY, value, 0, filter);
+                case "clamp" -> new MassUpdate(args[1].toLowerCase(), MassUpdate.Operation.CLAMP, value, max, filter);
+                default -> throw new IllegalArgumentException("Operations: give, take, set, multiply, clamp");
+            };
+        } catch (NumberFormatException e) {
+            sender.sendMessage("§cInvalid amount! Use formats like: 100, 1k, 5.5m, 2b");
+            return true;
+        } catch (IllegalArgumentException e) {
+            sender.sendMessage("§c" + e.getMessage());
+            return true;
+        }
+
+        if (!busy.compareAndSet(false, true)) {
+            sender.sendMessage("§cA migration, import or export is already running!");
+            return true;
+        }
+
+        sender.sendMessage("§aApplying §f" + update + "§a...");
+        plugin.getDatabaseManager().massUpdateAsync(update)
+                .whenComplete((result, error) -> {
+                    busy.set(false);
+                    if (error != null) {
+                        Throwable cause = error.getCause() != null ? error.getCause() : error;
+                        plugin.getLogger().severe("Failed to apply mass update: " + cause.getMessage());
+                        reply(sender, "§cMass update failed: " + cause.getMessage());
+                    } else {
+                        plugin.getLogger().info("Mass update by " + sender.getName() + ": " + result);
+                        reply(sender, "§aDone: §f" + result);
+                    }
+                });
+        return true;
+    }
+
+    private boolean handleCancel(CommandSender sender) {
+        if (!busy.get()) {
+            sender.sendMessage("§cNo migration, import or export is running!");
+            return true;
+        }
+        cancelRequested = true;
+        Runnable cancel = cancelJob;
+        if (cancel != null) {
+            cancel.run();
+        }
+        sender.sendMessage("§aCancelling; a migration can be continued later with §fresume§a, an import by running it again.");
+        return true;
+    }
+
+    /**
+     * Run a long job on the scans executor unless another one is running
+     */
+    private boolean startJob(CommandSender sender, Runnable job) {
+        return startJob(sender, job, () -> CompletableFuture.completedFuture(null));
+    }
+
+    /**
+     * Run a long job on the scans executor, then the scans it needs afterwards
+     * The next job can start once both are done. The follow-up is chained rather
+     * than joined inside the job, which would wait on the executor it occupies;
+     * it runs even if the job failed.
+     */
+    private boolean startJob(CommandSender sender, Runnable job, Supplier<CompletableFuture<?>> then) {
+        if (!busy.compareAndSet(false, true)) {
+            sender.sendMessage("§cA migration, import or export is already running!");
+            return false;
+        }
+
+        try {
+            CompletableFuture.runAsync(() -> {
+                try {
+                    job.run();
+                } finally {
+                    cancelJob = null;
+                    cancelRequested = false;
+                }
+            }, plugin.getDatabaseManager().getExecutor(DatabaseExecutors.Workload.SCANS))
+                    .handle((v, error) -> null)
+                    .thenCompose(v -> then.get())
+                    .whenComplete((v, error) -> busy.set(false));
+            return true;
+        } catch (RejectedExecutionException e) {
+            busy.set(false);
+            sender.sendMessage("§cToo many scans are queued, try again in a moment.");
+            return false;
+        }
+    }
+
+    /**
+     * Rebase cached accounts on the rows an import wrote, telling the sender if that failed
+     */
+    private CompletableFuture<Integer> refreshAfterImport(CommandSender sender) {
+        return plugin.getDatabaseManager().refreshCachedAsync().whenComplete((refreshed, error) -> {
+            if (error != null) {
+                Throwable cause = error.getCause() != null ? error.getCause() : error;
+                plugin.getLogger().severe("Failed to refresh cached accounts after import: " + cause.getMessage());
+                reply(sender, "§cImported accounts that were already cached may show old balances until they are reloaded.");
+            } else if (refreshed > 0) {
+                plugin.getLogger().info("Import: " + refreshed + " cached accounts took over their imported rows");
+            }
+        });
+    }
+
+    /**
+     * Make the running job cancellable; cancels it right away if a cancel came in while it was starting
+     */
+    private void setCancel(Runnable cancel) {
+        cancelJob = cancel;
+        if (cancelRequested) {
+            cancel.run();
+        }
+    }
+
+    private void migrate(CommandSender sender, String from, String to, boolean sourceIsActive,
+                         boolean resume, boolean verify) {
+        DatabaseManager databaseManager = plugin.getDatabaseManager();
+        StorageBackend source = null;
+        StorageBackend target = null;
+        try {
+            if (sourceIsActive) {
+                // Copy what is only in the cache so far; without it the copy would miss those changes
+                try {
+                    databaseManager.saveAllAsync().join();
+                } catch (CompletionException e) {
+                    plugin.getLogger().severe("Migration aborted: could not save cached players first");
+                    reply(sender, "§cMigration aborted: cached players could not be saved first, see the console.");
+                    return;
+                }
+                source = databaseManager.getBackend();
+            } else {
+                source = databaseManager.createBackend(from);
+                source.initialize();
+            }
+            target = databaseManager.createBackend(to);
+            target.initialize();
+
+            StorageTransfer running = new StorageTransfer(
+                    source,
+                    target,
+                    plugin.getConfig().getInt("database.transfer.page-size", 1000),
+                    plugin.getConfig().getInt("database.transfer.parallelism", 4),
+                    new File(plugin.getDataFolder(), "transfer.checkpoint"),
+                    plugin.getLogger()
+            );
+            setCancel(running::cancel);
+
+            StorageTransfer.Result result = running.run(resume, verify);
+            plugin.getLogger().info("Migration " + from + " -> " + to + " finished: " + result);
+            if (result.isVerified() && !result.matches()) {
+                // Expected if players changed balances during the copy
+                reply(sender, "§cMigration finished but the checksums differ: §f" + result);
+                reply(sender, "§cRun it again while no one is online before switching.");
+            } else {
+                reply(sender, "§aMigration finished: §f" + result);
+                reply(sender, "§aSet §fdatabase.type: " + to + " §aand restart to switch.");
+            }
+        } catch (StorageException | RuntimeException e) {
+            plugin.getLogger().severe("Failed to migrate player data: " + e.getMessage());
+            reply(sender, "§cMigration failed: " + e.getMessage());
+        } finally {
+            if (source != null && !sourceIsActive) {
+                source.close();
+            }
+            if (target != null) {
+                target.close();
+            }
+        }
+    }
+
+    private void importAccounts(CommandSender sender, ImportFormat<?> format) {
+        AccountImporter importer = new AccountImporter(
+                plugin.getDatabaseManager().getBackend(),
+                plugin.getConfig().getInt("database.import.parallelism", Runtime.getRuntime().availableProcessors()),
+                plugin.getConfig().getInt("database.import.batch-size", 1000),
+                plugin.getLogger()
+        );
+        setCancel(importer::cancel);
+
+        try {
+            AccountImporter.Report report = importer.run(format);
+            plugin.getLogger().info("Import from " + format.getName() + " finished: " + report);
+            reply(sender, "§aImport finished: §f" + report);
+        } catch (StorageException e) {
+            plugin.getLogger().severe("Failed to import accounts: " + e.getMessage());
+            reply(sender, "§cImport failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Restore into a new SQLite file next to the live data; the live accounts are not touched
+     */
+    private void restore(CommandSender sender, long sequence, File file) {
+        StorageBackend target = new SqliteStorageBackend(
+                file,
+                "normal",
+                plugin.getConfig().getInt("database.sqlite.max-group-size", 256),
+                1,
+                plugin.getConfig().getInt("database.bulk.chunk-size", 1000),
+                plugin.getLogger()
+        );
+        try {
+            target.initialize();
+            File folder = resolve(plugin.getConfig().getString("database.backup.folder", "backups"));
+            long rows = BackupManager.restore(folder, sequence, target,
+                    plugin.getConfig().getInt("database.export.page-size", 1000), plugin.getLogger());
+            plugin.getLogger().info("Restored backup #" + sequence + " into " + file.getName() + " (" + rows + " accounts)");
+            reply(sender, "§aRestored §f" + rows + " §aaccounts into §f" + file.getName() + "§a.");
+            reply(sender, "§aStop the server and replace §feconomy.db §awith it, or copy it into another backend with the standalone tool.");
+        } catch (StorageException | RuntimeException e) {
+            plugin.getLogger().severe("Failed to restore backup: " + e.getMessage());
+            reply(sender, "§cRestore failed: " + e.getMessage());
+        } finally {
+            target.close();
+        }
+    }
+
+    /**
+     * Paths are relative to the plugin folder unless absolute
+     */
+    private File resolve(String path) {
+        File file = new File(path);
+        return file.isAbsolute() ? file : new File(plugin.getDataFolder(), path);
+    }
+
+    private void reply(CommandSender sender, String message) {
+        plugin.getServer().getScheduler().runTask(plugin, () -> sender.sendMessage(message));
+    }
+
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
+        if (args.length == 1) {
+            return complete(args[0], List.of("migrate", "import", "export", "backup", "season", "accrual", "mass"));
+        }
+
+        boolean migrate = args[0].equalsIgnoreCase("migrate");
+        if (args.length == 2) {
+            return complete(args[1], switch (args[0].toLowerCase()) {
+                case "migrate" -> List.of("sqlite", "partitioned", "mysql", "mapped", "cancel");
+                case "import" -> List.of("essentials", "csv", "cancel");
+                case "export" -> List.of("csv", "ndjson", "cancel");
+                case "backup" -> List.of("full", "incremental", "list", "restore");
+                case "season" -> List.of("reset");
+                case "accrual" -> List.of("settle");
+                case "mass" -> DatabaseManager.PlayerData.COLUMNS;
+                default -> List.of();
+            });
+        } else if (args.length == 3 && args[0].equalsIgnoreCase("season")) {
+            return complete(args[2], List.of("confirm"));
+        } else if (args.length == 3 && args[0].equalsIgnoreCase("mass")) {
+            return complete(args[2], List.of("give", "take", "set", "multiply", "clamp"));
+        } else if (args.length == 5 && args[0].equalsIgnoreCase("mass")) {
+            return complete(args[4], List.of("all"));
+        } else if (migrate && args.length == 3) {
+            return complete(args[2], BACKENDS);
+        } else if (migrate) {
+            return complete(args[args.length - 1], List.of("resume", "no-verify"));
+        }
+        return java.util.List.of();
+    }
+
+    private static List<String> complete(String prefix, List<String> options) {
+        return options.stream()
+                .filter(s -> s.startsWith(prefix.toLowerCase()))
+                .toList();
+    }
+}
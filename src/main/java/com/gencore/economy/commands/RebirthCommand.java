@@ -29,6 +29,11 @@ public class RebirthCommand implements CommandExecutor, TabCompleter {
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
 
+        if (!plugin.getDatabaseManager().isReady()) {
+            sender.sendMessage("§cThe economy is still loading, try again in a moment.");
+            return true;
+        }
+
         if (!sender.hasPermission("gencore.rebirth")) {
             sender.sendMessage("§cYou don't have permission!");
             return true;
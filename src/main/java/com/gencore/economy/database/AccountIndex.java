@@ -0,0 +1,155 @@
+package com.gencore.economy.database;
+
+import com.gencore.economy.database.storage.StorageBackend;
+import com.gencore.economy.database.storage.StorageException;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter of the accounts that have a row in storage
+ *
+ * A miss means the account definitely has no row, so looking it up needs no
+ * query; a hit is wrong at about the configured false positive rate and is
+ * answered by storage. Accounts are only ever added: one that is deleted stays
+ * a harmless false positive until the next rebuild.
+ */
+public class AccountIndex {
+
+    private final long expected;
+    private final double falsePositiveRate;
+
+    private volatile Filter filter;
+    // Also receives adds while a rebuild scans storage, so none are lost in the swap
+    private volatile Filter next;
+
+    /**
+     * @param expected Accounts sized for at least; the filter grows on rebuild
+     * @param falsePositiveRate Share of lookups for missing accounts that still reach storage
+     */
+    public AccountIndex(long expected, double falsePositiveRate) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1");
+        }
+        this.expected = Math.max(1024, expected);
+        this.falsePositiveRate = falsePositiveRate;
+        this.filter = new Filter(this.expected, falsePositiveRate);
+    }
+
+    public boolean mightContain(UUID uuid) {
+        return filter.mightContain(uuid);
+    }
+
+    public void add(UUID uuid) {
+        filter.add(uuid);
+        Filter building = next;
+        if (building != null) {
+            building.add(uuid);
+        }
+    }
+
+    /**
+     * Whether more accounts were added than the filter was sized for, so its false positive rate is above target
+     */
+    public boolean isOverCapacity() {
+        Filter current = filter;
+        return next == null && current.count.get() > current.capacity;
+    }
+
+    /**
+     * Rebuild from every row in storage, sized for twice the accounts seen so far
+     * Lookups keep using the old filter until the new one is complete.
+     * @return Accounts in storage
+     */
+    public synchronized long rebuild(StorageBackend backend, int pageSize) throws StorageException {
+        long capacity = Math.max(expected, filter.count.get() * 2);
+        try {
+            while (true) {
+                Filter building = new Filter(capacity, falsePositiveRate);
+                next = building;
+                AtomicLong rows = new AtomicLong();
+                backend.scan(pageSize, page -> {
+                    page.forEach(entry -> building.add(entry.getKey()));
+                    rows.addAndGet(page.size());
+                });
+                if (rows.get() <= capacity) {
+                    filter = building;
+                    return rows.get();
+                }
+                // Far more accounts than expected; scan again at a size that fits them
+                capacity = rows.get() * 2;
+            }
+        } finally {
+            next = null;
+        }
+    }
+
+    /**
+     * Approximate heap used by the bit array
+     */
+    public long getSizeBytes() {
+        return filter.bits.length() * 8L;
+    }
+
+    public long getCapacity() {
+        return filter.capacity;
+    }
+
+    private static final class Filter {
+        private final AtomicLongArray bits;
+        private final long mask;
+        private final int hashes;
+        private final long capacity;
+        // Adds that set a new bit: distinct accounts, short by the false positives
+        private final AtomicLong count = new AtomicLong();
+
+        private Filter(long capacity, double falsePositiveRate) {
+            double optimalBits = -capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+            // Rounded up to a power of two so an index is a mask rather than a division
+            long words = Long.highestOneBit(Math.max(64, (long) optimalBits) - 1) >>> 5;
+            this.bits = new AtomicLongArray((int) Math.min(words, 1 << 30));
+            this.mask = bits.length() * 64L - 1;
+            this.hashes = Math.max(1, (int) Math.round(optimalBits / capacity * Math.log(2)));
+            this.capacity = capacity;
+        }
+
+        private boolean mightContain(UUID uuid) {
+            long h1 = mix(uuid.getMostSignificantBits() ^ uuid.getLeastSignificantBits());
+            long h2 = mix(uuid.getLeastSignificantBits() + 0x9E3779B97F4A7C15L) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long index = (h1 + i * h2) & mask;
+                if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void add(UUID uuid) {
+            long h1 = mix(uuid.getMostSignificantBits() ^ uuid.getLeastSignificantBits());
+            long h2 = mix(uuid.getLeastSignificantBits() + 0x9E3779B97F4A7C15L) | 1;
+            boolean added = false;
+            for (int i = 0; i < hashes; i++) {
+                long index = (h1 + i * h2) & mask;
+                int word = (int) (index >>> 6);
+                long bit = 1L << index;
+                if ((bits.get(word) & bit) == 0) {
+                    bits.getAndUpdate(word, value -> value | bit);
+                    added = true;
+                }
+            }
+            if (added) {
+                count.incrementAndGet();
+            }
+        }
+
+        private static long mix(long hash) {
+            hash ^= hash >>> 33;
+            hash *= 0xFF51AFD7ED558CCDL;
+            hash ^= hash >>> 33;
+            hash *= 0xC4CEB93F53E6D2B5L;
+            return hash ^ (hash >>> 33);
+        }
+    }
+}
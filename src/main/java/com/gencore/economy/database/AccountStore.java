@@ -0,0 +1,417 @@
+package com.gencore.economy.database;
+
+import com.gencore.economy.database.storage.SaveReport;
+import com.gencore.economy.database.storage.StorageBackend;
+import com.gencore.economy.database.storage.StorageException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Loads player data from a storage backend and writes it back, as full rows or as deltas
+ *
+ * Cache misses, single saves, write-behind flushes and the shutdown flush all
+ * go through here. Accounts without a row read as the starting balances and
+ * get their row with their first change. It does not depend on the server, so
+ * it can be driven on its own.
+ */
+public class AccountStore {
+
+    private final StorageBackend backend;
+    private final OrderedLanes lanes;
+    private final PersistenceMode mode;
+    private final boolean logChunks;
+    private final Logger logger;
+    // Shared by loads and writes, taken alone by a season reset, accrual settle or mass update so none of them straddles it
+    private final ReentrantReadWriteLock seasonLock = new ReentrantReadWriteLock();
+
+    private volatile AccountIndex index;
+    private volatile Executor indexRebuilds;
+    private volatile int indexPageSize;
+    private final AtomicBoolean indexGrowing = new AtomicBoolean();
+    private final AtomicLong lookupsSkipped = new AtomicLong();
+
+    public AccountStore(StorageBackend backend, OrderedLanes lanes, PersistenceMode mode, boolean logChunks,
+                        Logger logger) {
+        this.backend = backend;
+        this.lanes = lanes;
+        this.mode = mode;
+        this.logChunks = logChunks;
+        this.logger = logger;
+    }
+
+    public StorageBackend getBackend() {
+        return backend;
+    }
+
+    public PersistenceMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Skip queries for accounts the index rules out, and record every account given a row in it
+     * @param rebuilds Where the index is rebuilt larger once it is over capacity
+     * @param pageSize Rows read per query while rebuilding
+     */
+    public void attachIndex(AccountIndex index, Executor rebuilds, int pageSize) {
+        this.indexRebuilds = rebuilds;
+        this.indexPageSize = pageSize;
+        this.index = index;
+    }
+
+    /**
+     * Lookups answered "no account" by the index without a query
+     */
+    public long getLookupsSkipped() {
+        return lookupsSkipped.get();
+    }
+
+    /**
+     * Whether storage may have a row for the account; false is certain and costs no query
+     */
+    public boolean mightHaveRow(UUID uuid) {
+        AccountIndex current = index;
+        if (current != null && !current.mightContain(uuid)) {
+            lookupsSkipped.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Lock that loads hold until their rows are cached, so set-based work on every account waits for them
+     */
+    public Lock getSeasonLock() {
+        return seasonLock.readLock();
+    }
+
+    /**
+     * Queue a save of one player behind every save queued for them earlier
+     * The values are read inside the lane, so a later save always writes a newer state,
+     * and a save that is still waiting covers any save queued after it.
+     * @return CompletableFuture that completes once the save ran, or exceptionally if it failed
+     */
+    public CompletableFuture<Void> save(UUID uuid, DatabaseManager.PlayerData data) {
+        return lanes.submitCoalesced(uuid, data, () -> {
+            try {
+                write(List.of(Map.entry(uuid, data)));
+            } catch (StorageException e) {
+                logger.severe("Failed to save player data: " + e.getMessage());
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    /**
+     * Load accounts with one query; called with the season lock held until they are cached
+     * Accounts without a row get the starting balances and no row, and those the
+     * index rules out are not queried at all.
+     */
+    public Map<UUID, DatabaseManager.PlayerData> load(Collection<UUID> uuids, DatabaseManager.PlayerData starting)
+            throws StorageException {
+        Map<UUID, DatabaseManager.PlayerData> result = new HashMap<>();
+        List<UUID> toLoad = new ArrayList<>(uuids.size());
+        for (UUID uuid : uuids) {
+            if (mightHaveRow(uuid)) {
+                toLoad.add(uuid);
+            } else {
+                result.put(uuid, DatabaseManager.PlayerData.unsaved(starting));
+            }
+        }
+        if (toLoad.isEmpty()) {
+            return result;
+        }
+
+        Map<UUID, DatabaseManager.PlayerData> loaded = backend.loadAll(toLoad);
+        for (UUID uuid : toLoad) {
+            DatabaseManager.PlayerData data = loaded.get(uuid);
+            result.put(uuid, data != null ? data : DatabaseManager.PlayerData.unsaved(starting));
+        }
+        return result;
+    }
+
+    /**
+     * Create the row of an account that has none, holding the values it was loaded with
+     * @return false if it already had one
+     */
+    public boolean createAccount(UUID uuid, DatabaseManager.PlayerData data) throws StorageException {
+        seasonLock.readLock().lock();
+        try {
+            if (data.isPersisted()) {
+                return false;
+            }
+            List<Map.Entry<UUID, DatabaseManager.PlayerData>> row = List.of(Map.entry(uuid, data.storedSnapshot()));
+            backend.insertMissing(row);
+            data.markPersisted();
+            addAccounts(row);
+            return true;
+        } finally {
+            seasonLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Pick up rows written to storage behind the cache's back, e.g. by an import
+     * Rebuilds the index, then rebases every cached account on its row while no
+     * load or write runs; changes not yet written stay on top. Accounts with a
+     * row they already knew are unchanged, as their stored values match it.
+     * @param cached Cached accounts, read once loads and writes have stopped
+     * @param rebased Runs after the rebase, before loads and writes resume
+     * @return Cached accounts that took over a new row
+     */
+    public int rebase(Supplier<Map<UUID, DatabaseManager.PlayerData>> cached, Runnable rebased)
+            throws StorageException {
+        AccountIndex current = index;
+        if (current != null) {
+            current.rebuild(backend, indexPageSize);
+        }
+
+        seasonLock.writeLock().lock();
+        try {
+            Map<UUID, DatabaseManager.PlayerData> accounts = cached.get();
+            int adopted = 0;
+            Map<UUID, DatabaseManager.PlayerData> rows = backend.loadAll(accounts.keySet());
+            for (Map.Entry<UUID, DatabaseManager.PlayerData> row : rows.entrySet()) {
+                DatabaseManager.PlayerData data = accounts.get(row.getKey());
+                if (!data.isPersisted()) {
+                    adopted++;
+                }
+                data.adoptRow(row.getValue());
+            }
+            rebased.run();
+            return adopted;
+        } finally {
+            seasonLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Write cached entries in the configured persistence mode
+     */
+    public void write(List<Map.Entry<UUID, DatabaseManager.PlayerData>> live) throws StorageException {
+        if (mode == PersistenceMode.DELTA) {
+            saveDeltas(live);
+        } else {
+            saveSnapshots(live);
+        }
+    }
+
+    /**
+     * Upsert full rows in chunks with one round-trip per chunk
+     * @param rows Snapshots that must not change while they are written
+     */
+    public SaveReport bulkSave(List<Map.Entry<UUID, DatabaseManager.PlayerData>> rows) throws StorageException {
+        SaveReport report = backend.saveBatch(rows);
+        addAccounts(rows);
+
+        if (logChunks && report.getChunks() > 0) {
+            List<Long> chunkNanos = report.getChunkNanos();
+            for (int i = 0; i < chunkNanos.size(); i++) {
+                logger.info("Bulk save chunk " + (i + 1) + "/" + chunkNanos.size() + ": "
+                        + (chunkNanos.get(i) / 1_000_000) + "ms");
+            }
+        }
+        return report;
+    }
+
+    /**
+     * Write the current values of cached entries and record them as stored
+     * Copied out first so the storage work never sees a half-applied update.
+     * Accounts without a row are skipped until they change, so reading one never creates it.
+     */
+    public SaveReport saveSnapshots(List<Map.Entry<UUID, DatabaseManager.PlayerData>> live) throws StorageException {
+        seasonLock.readLock().lock();
+        try {
+            List<DatabaseManager.PlayerData> written = new ArrayList<>(live.size());
+            List<Map.Entry<UUID, DatabaseManager.PlayerData>> rows = new ArrayList<>(live.size());
+            for (Map.Entry<UUID, DatabaseManager.PlayerData> entry : live) {
+                DatabaseManager.PlayerData data = entry.getValue();
+                if (data.isPersisted() || data.isModified()) {
+                    written.add(data);
+                    rows.add(Map.entry(entry.getKey(), data.snapshot()));
+                }
+            }
+            if (rows.isEmpty()) {
+                return new SaveReport();
+            }
+
+            SaveReport report = bulkSave(rows);
+            for (int i = 0; i < written.size(); i++) {
+                written.get(i).markStored(rows.get(i).getValue());
+            }
+            return report;
+        } finally {
+            seasonLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Write what changed in cached entries since their last write
+     * Deltas are not idempotent, so they commit together or are all handed back
+     * to their entries for the next write. Changed accounts without a row get
+     * one first, holding the values their deltas start from.
+     */
+    public void saveDeltas(List<Map.Entry<UUID, DatabaseManager.PlayerData>> live) throws StorageException {
+        // A season reset must not land between taking the deltas and writing them
+        seasonLock.readLock().lock();
+        try {
+            insertNewAccounts(live);
+
+            List<PlayerDelta> taken = new ArrayList<>(live.size());
+            List<DatabaseManager.PlayerData> takenFrom = new ArrayList<>(live.size());
+            for (Map.Entry<UUID, DatabaseManager.PlayerData> entry : live) {
+                PlayerDelta delta = entry.getValue().takeDelta(entry.getKey());
+                if (!delta.isEmpty()) {
+                    taken.add(delta);
+                    takenFrom.add(entry.getValue());
+                }
+            }
+
+            if (taken.isEmpty()) {
+                return;
+            }
+
+            try {
+                backend.saveDeltas(taken);
+            } catch (StorageException e) {
+                for (int i = 0; i < taken.size(); i++) {
+                    takenFrom.get(i).restoreDelta(taken.get(i));
+                }
+                throw e;
+            }
+        } finally {
+            seasonLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Create the rows of changed accounts that have none yet; called with the season lock held
+     * Only inserted where missing, so a row an import wrote in the meantime is
+     * kept and the delta taken next applies to it.
+     */
+    private void insertNewAccounts(List<Map.Entry<UUID, DatabaseManager.PlayerData>> entries) throws StorageException {
+        List<DatabaseManager.PlayerData> created = new ArrayList<>();
+        List<Map.Entry<UUID, DatabaseManager.PlayerData>> rows = new ArrayList<>();
+        for (Map.Entry<UUID, DatabaseManager.PlayerData> entry : entries) {
+            DatabaseManager.PlayerData data = entry.getValue();
+            if (!data.isPersisted() && data.isModified()) {
+                created.add(data);
+                rows.add(Map.entry(entry.getKey(), data.storedSnapshot()));
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        backend.insertMissing(rows);
+        created.forEach(DatabaseManager.PlayerData::markPersisted);
+        addAccounts(rows);
+    }
+
+    /**
+     * Record accounts that now have a row, growing the index in the background once it is over capacity
+     */
+    private void addAccounts(List<Map.Entry<UUID, DatabaseManager.PlayerData>> rows) {
+        AccountIndex current = index;
+        if (current == null) {
+            return;
+        }
+        rows.forEach(row -> current.add(row.getKey()));
+
+        if (current.isOverCapacity() && indexGrowing.compareAndSet(false, true)) {
+            try {
+                indexRebuilds.execute(() -> {
+                    try {
+                        long rowCount = current.rebuild(backend, indexPageSize);
+                        logger.info("Account filter grown to " + current.getCapacity() + " accounts ("
+                                + rowCount + " stored)");
+                    } catch (StorageException e) {
+                        logger.severe("Failed to grow account filter: " + e.getMessage());
+                    } finally {
+                        indexGrowing.set(false);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Tried again on the next write
+                indexGrowing.set(false);
+            }
+        }
+    }
+
+    /**
+     * Archive this season in storage and start the next one while no load or write runs
+     * @param start Values the columns that are not carried start from
+     * @param resetCached Resets cached accounts the same way before loads and writes resume
+     * @return Accounts carried into the new season
+     */
+    public long resetSeason(String archive, Set<String> carried, DatabaseManager.PlayerData start,
+                            Runnable resetCached) throws StorageException {
+        seasonLock.writeLock().lock();
+        try {
+            long accounts = backend.resetSeason(archive, carried, start);
+            resetCached.run();
+            return accounts;
+        } finally {
+            seasonLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Apply interest and decay to every account in storage while no load or write runs
+     * @param settleCached Settles cached accounts at the same instant before loads and writes resume
+     * @return Accounts whose timestamp changed
+     */
+    public long settleAccrual(AccrualPolicy policy, long now, Runnable settleCached) throws StorageException {
+        seasonLock.writeLock().lock();
+        try {
+            long accounts = backend.settleAccrual(policy, now);
+            settleCached.run();
+            return accounts;
+        } finally {
+            seasonLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Apply one change to every matching account in storage while no load or write runs
+     * Balances that accrue are settled first when the update changes or filters on them.
+     * @param settleCached Settles cached accounts at the given instant, like storage
+     * @param updateCached Applies the change to cached accounts before loads and writes resume
+     * @return Accounts changed
+     */
+    public long massUpdate(MassUpdate update, AccrualPolicy policy, LongConsumer settleCached,
+                           Runnable updateCached) throws StorageException {
+        // Also when the filter reads a balance that accrues, so it sees the current value
+        boolean settle = (policy.accruesMoney() && update.reads("money"))
+                || (policy.decaysShards() && update.reads("shards"));
+        seasonLock.writeLock().lock();
+        try {
+            if (settle) {
+                long now = System.currentTimeMillis();
+                backend.settleAccrual(policy, now);
+                settleCached.accept(now);
+            }
+            long accounts = backend.massUpdate(update);
+            updateCached.run();
+            return accounts;
+        } finally {
+            seasonLock.writeLock().unlock();
+        }
+    }
+}
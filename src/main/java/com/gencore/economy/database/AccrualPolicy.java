@@ -0,0 +1,127 @@
+package com.gencore.economy.database;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+/**
+ * Money interest and shard decay, worked out in closed form from the time since an account last accrued
+ *
+ * Nothing runs on a timer: a balance read applies the growth since its
+ * timestamp without storing it, and a write stores the grown balance with a
+ * new timestamp, so the cost follows activity rather than the number of
+ * accounts. Rates compound per day; a timestamp of 0 means the account has not
+ * started accruing, which it does from its next write.
+ */
+public final class AccrualPolicy {
+
+    public static final long DAY_MILLIS = 86_400_000L;
+
+    public static final AccrualPolicy NONE = new AccrualPolicy(0, 0);
+
+    private final double moneyInterest;
+    private final double shardDecay;
+    // Natural log of the daily factor, so growth over any span is one exp()
+    private final double moneyRate;
+    private final double shardRate;
+
+    /**
+     * @param moneyInterest Fraction added to money per day, e.g. 0.01 for 1%
+     * @param shardDecay Fraction of shards lost per day, below 1
+     */
+    public AccrualPolicy(double moneyInterest, double shardDecay) {
+        if (moneyInterest < 0 || shardDecay < 0 || shardDecay >= 1) {
+            throw new IllegalArgumentException("Interest must be at least 0 and decay between 0 and 1");
+        }
+        this.moneyInterest = moneyInterest;
+        this.shardDecay = shardDecay;
+        this.moneyRate = Math.log1p(moneyInterest);
+        this.shardRate = Math.log1p(-shardDecay);
+    }
+
+    /**
+     * @param currencies The currencies section: money.interest-per-day and shards.decay-per-day
+     */
+    public static AccrualPolicy fromConfig(ConfigurationSection currencies) {
+        if (currencies == null) {
+            return NONE;
+        }
+        return new AccrualPolicy(currencies.getDouble("money.interest-per-day", 0),
+                currencies.getDouble("shards.decay-per-day", 0));
+    }
+
+    public boolean isEnabled() {
+        return accruesMoney() || decaysShards();
+    }
+
+    public boolean accruesMoney() {
+        return moneyRate != 0;
+    }
+
+    public boolean decaysShards() {
+        return shardRate != 0;
+    }
+
+    /**
+     * Natural log of the daily money factor, for storage that applies interest itself
+     */
+    public double getMoneyRate() {
+        return moneyRate;
+    }
+
+    /**
+     * Natural log of the daily shard factor (negative), for storage that applies decay itself
+     */
+    public double getShardRate() {
+        return shardRate;
+    }
+
+    public double getMoneyInterest() {
+        return moneyInterest;
+    }
+
+    public double getShardDecay() {
+        return shardDecay;
+    }
+
+    /**
+     * Money after interest from accruedAt to now
+     */
+    public double money(double money, long accruedAt, long now) {
+        if (moneyRate == 0 || money <= 0 || accruedAt <= 0 || now <= accruedAt) {
+            return money;
+        }
+        return money * Math.exp(moneyRate * (now - accruedAt) / DAY_MILLIS);
+    }
+
+    /**
+     * Shards left after decay from accruedAt to now
+     * A shard is only gone once it has decayed completely, so a read right after a write never shows one fewer.
+     */
+    public long shards(long shards, long accruedAt, long now) {
+        if (shardRate == 0 || shards <= 0 || accruedAt <= 0 || now <= accruedAt) {
+            return shards;
+        }
+        return (long) Math.ceil(shards * Math.exp(shardRate * (now - accruedAt) / DAY_MILLIS));
+    }
+
+    /**
+     * Timestamp to store along with {@link #shards}
+     * Only the time that whole lost shards account for is used up; the rest
+     * carries over, so frequent writes cannot round the decay away.
+     */
+    public long shardsAccruedAt(long shards, long accruedAt, long now) {
+        long left = shards(shards, accruedAt, now);
+        if (shardRate == 0 || accruedAt <= 0 || left == 0) {
+            return now;
+        }
+        if (left == shards) {
+            return accruedAt;
+        }
+        long used = (long) (Math.log((double) left / shards) / shardRate * DAY_MILLIS);
+        return Math.min(now, accruedAt + used);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%.4f%% money interest, %.4f%% shard decay per day", moneyInterest * 100, shardDecay * 100);
+    }
+}
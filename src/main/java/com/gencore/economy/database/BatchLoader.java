@@ -0,0 +1,167 @@
+package com.gencore.economy.database;
+
+import com.gencore.economy.database.storage.StorageException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Loads cache misses, merging concurrent requests
+ *
+ * Requests for a UUID that is already being loaded share the in-flight future
+ * (single flight). Requests for different UUIDs that arrive within a short
+ * window are loaded together through one batch call, so a scoreboard touching
+ * a hundred offline players costs one round-trip instead of a hundred.
+ */
+public class BatchLoader {
+
+    /**
+     * Loads a batch; the result must contain every requested UUID
+     */
+    @FunctionalInterface
+    public interface BatchFunction {
+        Map<UUID, DatabaseManager.PlayerData> load(List<UUID> uuids) throws StorageException;
+    }
+
+    private final BatchFunction function;
+    private final Executor executor;
+    private final long windowNanos;
+    private final int maxBatchSize;
+
+    private final ConcurrentHashMap<UUID, CompletableFuture<DatabaseManager.PlayerData>> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<UUID> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final ScheduledExecutorService timer;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder merged = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    /**
+     * @param executor Runs the batch function
+     * @param windowMicros How long to wait for more misses before loading, 0 to load every miss right away
+     */
+    public BatchLoader(BatchFunction function, Executor executor, long windowMicros, int maxBatchSize) {
+        this.function = function;
+        this.executor = executor;
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, windowMicros));
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "GenCore-Load-Batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return Future shared by everyone loading this UUID right now; fails with the storage error
+     */
+    public CompletableFuture<DatabaseManager.PlayerData> load(UUID uuid) {
+        requests.increment();
+
+        CompletableFuture<DatabaseManager.PlayerData> created = new CompletableFuture<>();
+        CompletableFuture<DatabaseManager.PlayerData> existing = inFlight.putIfAbsent(uuid, created);
+        if (existing != null) {
+            merged.increment();
+            return existing;
+        }
+
+        queue.add(uuid);
+        if (windowNanos == 0 || queued.incrementAndGet() >= maxBatchSize) {
+            // Full batch (or no window): no reason to wait
+            timer.execute(this::dispatch);
+        } else if (scheduled.compareAndSet(false, true)) {
+            timer.schedule(this::dispatch, windowNanos, TimeUnit.NANOSECONDS);
+        }
+        return created;
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getMerged() {
+        return merged.sum();
+    }
+
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    public void shutdown() {
+        timer.shutdown();
+    }
+
+    @Override
+    public String toString() {
+        return requests.sum() + " loads, " + merged.sum() + " merged into in-flight loads, " + batches.sum() + " batches";
+    }
+
+    private void dispatch() {
+        scheduled.set(false);
+
+        while (true) {
+            List<UUID> batch = new ArrayList<>(Math.min(maxBatchSize, Math.max(1, queued.get())));
+            UUID uuid;
+            while (batch.size() < maxBatchSize && (uuid = queue.poll()) != null) {
+                batch.add(uuid);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            queued.addAndGet(-batch.size());
+            batches.increment();
+            try {
+                executor.execute(() -> run(batch));
+            } catch (RejectedExecutionException e) {
+                // Load queue full: fail fast rather than leave callers waiting forever
+                for (UUID rejected : batch) {
+                    finish(rejected).completeExceptionally(e);
+                }
+            }
+        }
+    }
+
+    private void run(List<UUID> batch) {
+        Map<UUID, DatabaseManager.PlayerData> loaded;
+        try {
+            loaded = function.load(batch);
+        } catch (StorageException | RuntimeException e) {
+            for (UUID uuid : batch) {
+                finish(uuid).completeExceptionally(e);
+            }
+            return;
+        }
+
+        for (UUID uuid : batch) {
+            DatabaseManager.PlayerData data = loaded.get(uuid);
+            if (data != null) {
+                finish(uuid).complete(data);
+            } else {
+                finish(uuid).completeExceptionally(new StorageException("Batch load returned nothing for " + uuid));
+            }
+        }
+    }
+
+    /**
+     * Take the in-flight future out of the map so the next miss starts a fresh load
+     */
+    private CompletableFuture<DatabaseManager.PlayerData> finish(UUID uuid) {
+        return inFlight.remove(uuid);
+    }
+}
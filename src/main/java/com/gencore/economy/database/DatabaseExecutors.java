@@ -0,0 +1,125 @@
+package com.gencore.economy.database;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * One executor per kind of database work
+ *
+ * Storage calls block on I/O, so by default each task gets its own virtual
+ * thread. What actually bounds throughput is the number of connections, so
+ * tasks are admitted by a {@link QosScheduler} sized to the backend's
+ * connection pool: loads go before saves, and scans run only when nothing
+ * else is waiting. Each workload's queue is bounded.
+ */
+public class DatabaseExecutors {
+
+    public enum Workload {
+        /** Player loads; someone is usually waiting on them */
+        LOADS(QosScheduler.Priority.INTERACTIVE),
+        /** Single-player and bulk saves */
+        SAVES(QosScheduler.Priority.BACKGROUND),
+        /** Full-table scans (export, migration, backup); should never starve the other two */
+        SCANS(QosScheduler.Priority.BULK);
+
+        private final QosScheduler.Priority priority;
+
+        Workload(QosScheduler.Priority priority) {
+            this.priority = priority;
+        }
+
+        public QosScheduler.Priority getPriority() {
+            return priority;
+        }
+
+        private String displayName() {
+            String name = name().toLowerCase(Locale.ROOT);
+            return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        }
+    }
+
+    private final boolean virtualThreads;
+    private final QosScheduler scheduler;
+    private final Map<Workload, ExecutorService> delegates = new EnumMap<>(Workload.class);
+
+    /**
+     * @param virtualThreads Run tasks on virtual threads instead of fixed platform pools
+     * @param maxConcurrency Tasks allowed to run at once across all workloads
+     * @param limits Tasks allowed to run at once per workload, capped by maxConcurrency
+     * @param capacities Tasks allowed to wait per workload before new ones are rejected
+     */
+    public DatabaseExecutors(boolean virtualThreads, int maxConcurrency, Map<Workload, Integer> limits,
+                             Map<Workload, Integer> capacities) {
+        this.virtualThreads = virtualThreads;
+
+        Map<QosScheduler.Priority, Executor> runners = new EnumMap<>(QosScheduler.Priority.class);
+        Map<QosScheduler.Priority, Integer> maxRunning = new EnumMap<>(QosScheduler.Priority.class);
+        Map<QosScheduler.Priority, Integer> queueCapacities = new EnumMap<>(QosScheduler.Priority.class);
+        for (Workload workload : Workload.values()) {
+            int limit = Math.max(1, Math.min(limits.getOrDefault(workload, maxConcurrency), maxConcurrency));
+            String prefix = "GenCore-DB-" + workload.displayName() + "-";
+
+            // The scheduler never starts more than the limit, so these pools never queue
+            ExecutorService delegate = virtualThreads
+                    ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix, 1).factory())
+                    : Executors.newFixedThreadPool(limit, platformFactory(prefix));
+            delegates.put(workload, delegate);
+            runners.put(workload.priority, delegate);
+            maxRunning.put(workload.priority, limit);
+            if (capacities.containsKey(workload)) {
+                queueCapacities.put(workload.priority, capacities.get(workload));
+            }
+        }
+        this.scheduler = new QosScheduler(maxConcurrency, runners, maxRunning, queueCapacities);
+    }
+
+    /**
+     * Executor that queues by the workload's priority
+     * Its execute throws RejectedExecutionException when the workload's queue is full.
+     */
+    public Executor get(Workload workload) {
+        return scheduler.executor(workload.priority);
+    }
+
+    public QosScheduler getScheduler() {
+        return scheduler;
+    }
+
+    public boolean isVirtual() {
+        return virtualThreads;
+    }
+
+    /**
+     * Stop accepting work and wait a little for running tasks
+     */
+    public void shutdown(Logger logger) {
+        delegates.values().forEach(ExecutorService::shutdown);
+        try {
+            for (Map.Entry<Workload, ExecutorService> entry : delegates.entrySet()) {
+                if (!entry.getValue().awaitTermination(5, TimeUnit.SECONDS)) {
+                    logger.warning("Database " + entry.getKey().displayName().toLowerCase(Locale.ROOT)
+                            + " executor did not finish in time");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ThreadFactory platformFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger(1);
+        return r -> {
+            Thread thread = new Thread(r, prefix + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -1,153 +1,949 @@
 package com.gencore.economy.database;
 
 import com.gencore.economy.GenCoreEconomy;
-import com.zaxxer.hikari.HikariConfig;
-import com.zaxxer.hikari.HikariDataSource;
+import com.gencore.economy.database.backup.BackupManager;
+import com.gencore.economy.database.backup.ChangeTracker;
+import com.gencore.economy.database.backup.ChangeTrackingBackend;
+import com.gencore.economy.database.storage.MappedStorageBackend;
+import com.gencore.economy.database.storage.MemoryStorageBackend;
+import com.gencore.economy.database.storage.MySqlStorageBackend;
+import com.gencore.economy.database.storage.PartitionedSqliteStorageBackend;
+import com.gencore.economy.database.storage.SaveReport;
+import com.gencore.economy.database.storage.SqlStorageBackend;
+import com.gencore.economy.database.storage.SqliteStorageBackend;
+import com.gencore.economy.database.storage.StorageBackend;
+import com.gencore.economy.database.storage.StorageException;
+import com.gencore.economy.database.transfer.AccountExporter;
+import com.gencore.economy.database.transfer.AccountFilter;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.scheduler.BukkitTask;
 
 import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
 import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
 
 /**
- * Async database manager supporting both SQLite and MySQL
- * All operations return CompletableFuture for non-blocking performance
+ * Async database manager in front of a pluggable {@link StorageBackend}
+ * Owns the player cache and the write path (write-behind, journal); the backend
+ * only stores rows. All operations return CompletableFuture for non-blocking performance
  */
 public class DatabaseManager {
 
     private final GenCoreEconomy plugin;
-    private HikariDataSource dataSource;
-    private final ExecutorService asyncExecutor;
-
-
+    private StorageBackend backend;
+    private DatabaseExecutors executors;
+    private WriteBehindQueue writeBehind;
+    private PersistenceMode persistenceMode = PersistenceMode.FULL;
+    private AccrualPolicy accrual = AccrualPolicy.NONE;
+    // Balances of an account that has no row yet
+    private PlayerData startingBalances = new PlayerData(null);
+    // Whether database.account-filter is built; lookups skipped are counted by the store
+    private boolean accountIndexed;
+    private MutationJournal journal;
+    private volatile long journalFullWarnedAt;
+    private static final String RECOVERY_FILE = "recovery.dat";
+
+    private boolean logBulkChunks;
+    private BukkitTask autosaveTask;
+    private BackupManager backups;
+    private BukkitTask backupTask;
+    private final SessionManager sessions;
+    private BatchLoader loader;
+    private OrderedLanes saveLanes;
+    private AccountStore store;
+
+    // Players with a session; bounded only by the number of players online
     private final ConcurrentHashMap<UUID, PlayerData> cache = new ConcurrentHashMap<>();
+    // Everyone else that was looked up recently
+    private final OfflineCache<UUID, PlayerData> offlineCache;
+    // Guards moves between the two caches
+    private final Object cacheLock = new Object();
+
+    // Completed once storage is open and every replay has finished
+    private final CompletableFuture<Void> ready = new CompletableFuture<>();
 
     public DatabaseManager(GenCoreEconomy plugin) {
         this.plugin = plugin;
-        this.asyncExecutor = Executors.newFixedThreadPool(
-                Runtime.getRuntime().availableProcessors(),
-                r -> {
-                    Thread thread = new Thread(r, "GenCore-Database-Thread");
-                    thread.setDaemon(true);
-                    return thread;
-                }
+        // Available before storage, since listeners use them from the first login
+        this.offlineCache = new OfflineCache<>(plugin.getConfig().getInt("database.cache.offline-max-size", 10000));
+        this.sessions = new SessionManager(plugin, this,
+                plugin.getConfig().getLong("database.cache.quit-grace-seconds", 30) * 1000L);
+    }
+
+    /**
+     * Open storage on a background thread so server startup never waits on the database
+     * @return Future that completes when storage is ready, or fails if it could not start
+     */
+    public CompletableFuture<Void> initializeAsync() {
+        Thread thread = new Thread(() -> {
+            try {
+                initialize();
+                ready.complete(null);
+            } catch (StorageException | RuntimeException e) {
+                plugin.getLogger().severe("Failed to initialize storage: " + e.getMessage());
+                ready.completeExceptionally(e);
+            }
+        }, "GenCore-Database-Init");
+        thread.setDaemon(true);
+        thread.start();
+        return whenReady();
+    }
+
+    /**
+     * Completes once storage is ready; fails if it could not start
+     * Plugins that use the API during their own startup should wait on this.
+     */
+    public CompletableFuture<Void> whenReady() {
+        return ready.copy();
+    }
+
+    public boolean isReady() {
+        return ready.isDone() && !ready.isCompletedExceptionally();
+    }
+
+    private void requireReady() {
+        if (!isReady()) {
+            throw new StorageNotReadyException(ready.isCompletedExceptionally()
+                    ? "Economy storage failed to start"
+                    : "Economy storage is still starting");
+        }
+    }
+
+    private void initialize() throws StorageException {
+        sessions.start();
+
+        backend = createBackend(plugin.getConfig().getString("database.type", "sqlite"));
+        if (plugin.getConfig().getBoolean("database.backup.enabled", false)) {
+            // Wrapped before any replay below, so those writes reach the next incremental backup too
+            ChangeTracker tracker = new ChangeTracker();
+            backend = new ChangeTrackingBackend(backend, tracker);
+            backups = new BackupManager(
+                    new File(plugin.getDataFolder(), plugin.getConfig().getString("database.backup.folder", "backups")),
+                    backend,
+                    tracker,
+                    plugin.getConfig().getInt("database.backup.keep-full", 7),
+                    plugin.getConfig().getInt("database.export.page-size", 1000),
+                    plugin.getLogger()
+            );
+        }
+        backend.initialize();
+
+        executors = createExecutors(plugin.getConfig());
+        saveLanes = new OrderedLanes(executors.get(DatabaseExecutors.Workload.SAVES),
+                plugin.getConfig().getInt("database.executor.save-lanes", 64));
+        loader = new BatchLoader(
+                this::loadAccounts,
+                executors.get(DatabaseExecutors.Workload.LOADS),
+                plugin.getConfig().getLong("database.loader.batch-window-micros", 2000),
+                plugin.getConfig().getInt("database.loader.max-batch-size", 500)
+        );
+
+        persistenceMode = PersistenceMode.fromConfig(plugin.getConfig().getString("database.persistence-mode", "full"));
+        logBulkChunks = plugin.getConfig().getBoolean("database.bulk.log-chunks", false);
+        store = new AccountStore(backend, saveLanes, persistenceMode, logBulkChunks, plugin.getLogger());
+        try {
+            accrual = AccrualPolicy.fromConfig(plugin.getConfig().getConfigurationSection("currencies"));
+        } catch (IllegalArgumentException e) {
+            plugin.getLogger().warning("Ignoring currency interest and decay: " + e.getMessage());
+        }
+        startingBalances = startingBalances(plugin.getConfig());
+        // Built before the replays below, which add to it
+        if (plugin.getConfig().getBoolean("database.account-filter.enabled", true)) {
+            buildAccountIndex();
+        }
+
+        if (plugin.getConfig().getBoolean("database.write-behind.enabled", true)) {
+            writeBehind = new WriteBehindQueue(
+                    plugin,
+                    store,
+                    plugin.getConfig().getLong("database.write-behind.flush-interval-ms", 250),
+                    plugin.getConfig().getInt("database.write-behind.batch-size", 500),
+                    plugin.getConfig().getLong("database.write-behind.max-latency-ms", 1000)
+            );
+        }
+
+        if (plugin.getConfig().getBoolean("database.journal.enabled", false)) {
+            openJournal();
+        }
+        // Newer than anything in the journal, so replayed after it
+        replayRecovery();
+
+        // Write-behind already keeps the database current; autosave is the fallback without it
+        long autosaveTicks = plugin.getConfig().getLong("database.autosave-interval-seconds", 300) * 20L;
+        if (writeBehind == null && autosaveTicks > 0) {
+            autosaveTask = plugin.getServer().getScheduler().runTaskTimerAsynchronously(
+                    plugin, () -> saveAllAsync(), autosaveTicks, autosaveTicks);
+        }
+
+        if (backups != null) {
+            startBackups();
+        }
+    }
+
+    private static PlayerData startingBalances(FileConfiguration config) {
+        return new PlayerData(null,
+                config.getDouble("currencies.money.starting-balance", 0),
+                config.getLong("currencies.tokens.starting-balance", 0),
+                config.getLong("currencies.shards.starting-balance", 0),
+                config.getLong("currencies.credits.starting-balance", 0),
+                0, 0, 0);
+    }
+
+    /**
+     * Fill the account filter from storage; without it every lookup of an unknown player is a query
+     */
+    private void buildAccountIndex() {
+        try {
+            AccountIndex index = new AccountIndex(
+                    plugin.getConfig().getLong("database.account-filter.expected-accounts", 100000),
+                    plugin.getConfig().getDouble("database.account-filter.false-positive-rate", 0.01));
+            int pageSize = plugin.getConfig().getInt("database.export.page-size", 1000);
+            long start = System.nanoTime();
+            long rows = index.rebuild(backend, pageSize);
+            store.attachIndex(index, executors.get(DatabaseExecutors.Workload.SCANS), pageSize);
+            accountIndexed = true;
+            plugin.getLogger().info("Account filter: " + rows + " accounts in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms, "
+                    + (index.getSizeBytes() / 1024) + " KiB");
+        } catch (StorageException | IllegalArgumentException e) {
+            plugin.getLogger().severe("Failed to build account filter: " + e.getMessage());
+        }
+    }
+
+    private void startBackups() {
+        try {
+            backups.start();
+        } catch (IOException e) {
+            plugin.getLogger().severe("Failed to start backups: " + e.getMessage());
+            backups = null;
+            return;
+        }
+
+        long intervalTicks = Math.max(1, plugin.getConfig().getLong("database.backup.incremental-interval-minutes", 15)) * 60 * 20L;
+        long fullIntervalMillis = plugin.getConfig().getLong("database.backup.full-interval-minutes", 1440) * 60_000L;
+        backupTask = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin,
+                () -> backupAsync(fullIntervalMillis).exceptionally(e -> {
+                    plugin.getLogger().severe("Failed to back up: " + e.getMessage());
+                    return null;
+                }),
+                intervalTicks, intervalTicks);
+    }
+
+    /**
+     * Build a backend of the given type from this plugin's database settings, not yet initialized
+     * Startup uses database.type; the migrate command uses it to open the other side of a transfer.
+     */
+    public StorageBackend createBackend(String type) {
+        FileConfiguration config = plugin.getConfig();
+        int chunkSize = config.getInt("database.bulk.chunk-size", 1000);
+
+        if (type.equalsIgnoreCase("mysql")) {
+            return new MySqlStorageBackend(
+                    config.getString("database.host", "localhost"),
+                    config.getInt("database.port", 3306),
+                    config.getString("database.database", "gencore"),
+                    config.getString("database.username", "root"),
+                    config.getString("database.password", ""),
+                    config.getInt("database.pool-size", 10),
+                    chunkSize,
+                    plugin.getLogger()
+            );
+        }
+
+        if (type.equalsIgnoreCase("mapped")) {
+            return new MappedStorageBackend(
+                    new File(plugin.getDataFolder(), config.getString("database.mapped.file", "accounts.dat")),
+                    config.getInt("database.mapped.initial-slots", 65536),
+                    config.getBoolean("database.mapped.sync-writes", true),
+                    plugin.getLogger()
+            );
+        }
+
+        if (type.equalsIgnoreCase("partitioned")) {
+            return new PartitionedSqliteStorageBackend(
+                    new File(plugin.getDataFolder(), config.getString("database.partitioned.folder", "partitions")),
+                    config.getInt("database.partitioned.count", 4),
+                    config.getString("database.sqlite.synchronous", "normal"),
+                    config.getInt("database.sqlite.max-group-size", 256),
+                    config.getInt("database.partitioned.read-pool-size", 2),
+                    chunkSize,
+                    plugin.getLogger()
+            );
+        }
+
+        if (type.equalsIgnoreCase("memory")) {
+            plugin.getLogger().warning("Using in-memory storage; balances will be lost on restart");
+            return new MemoryStorageBackend();
+        }
+
+        return new SqliteStorageBackend(
+                new File(plugin.getDataFolder(), "economy.db"),
+                config.getString("database.sqlite.synchronous", "normal"),
+                config.getInt("database.sqlite.max-group-size", 256),
+                config.getInt("database.sqlite.read-pool-size", 4),
+                chunkSize,
+                plugin.getLogger()
         );
     }
 
-    public void initialize() {
-        String dbType = plugin.getConfig().getString("database.type", "sqlite");
+    /**
+     * Per-workload executors, limited to what the backend can run at once
+     */
+    private DatabaseExecutors createExecutors(FileConfiguration config) {
+        int maxConcurrency = config.getInt("database.executor.max-concurrency", 0);
+        if (maxConcurrency <= 0) {
+            maxConcurrency = backend.getMaxConcurrency();
+        }
 
-        HikariConfig config = new HikariConfig();
+        Map<DatabaseExecutors.Workload, Integer> limits = new EnumMap<>(DatabaseExecutors.Workload.class);
+        limits.put(DatabaseExecutors.Workload.LOADS, config.getInt("database.executor.loads", maxConcurrency));
+        limits.put(DatabaseExecutors.Workload.SAVES, config.getInt("database.executor.saves", Math.max(1, maxConcurrency / 2)));
+        limits.put(DatabaseExecutors.Workload.SCANS, config.getInt("database.executor.scans", 1));
 
-        if (dbType.equalsIgnoreCase("mysql")) {
-            String host = plugin.getConfig().getString("database.host", "localhost");
-            int port = plugin.getConfig().getInt("database.port", 3306);
-            String database = plugin.getConfig().getString("database.database", "gencore");
-            String username = plugin.getConfig().getString("database.username", "root");
-            String password = plugin.getConfig().getString("database.password", "");
+        Map<DatabaseExecutors.Workload, Integer> capacities = new EnumMap<>(DatabaseExecutors.Workload.class);
+        capacities.put(DatabaseExecutors.Workload.LOADS, config.getInt("database.executor.queue-capacity.loads", 10000));
+        capacities.put(DatabaseExecutors.Workload.SAVES, config.getInt("database.executor.queue-capacity.saves", 50000));
+        capacities.put(DatabaseExecutors.Workload.SCANS, config.getInt("database.executor.queue-capacity.scans", 16));
+
+        boolean virtual = !config.getString("database.executor.threads", "virtual").equalsIgnoreCase("platform");
+        plugin.getLogger().info("Database executor: " + (virtual ? "virtual" : "platform") + " threads, "
+                + maxConcurrency + " concurrent tasks");
+        return new DatabaseExecutors(virtual, maxConcurrency, limits, capacities);
+    }
+
+    public Executor getExecutor(DatabaseExecutors.Workload workload) {
+        return executors.get(workload);
+    }
+
+    /**
+     * Stream accounts to a compressed file on the scans executor
+     * Reads what is in storage; call saveAllAsync first to include changes still in the cache.
+     * @param file Destination, replaced if it exists; see {@link AccountExporter.Format#getExtension()}
+     */
+    public CompletableFuture<AccountExporter.Report> exportAsync(File file, AccountExporter.Format format,
+                                                                 AccountFilter filter) {
+        return exportAsync(createExporter(file, format, filter));
+    }
 
-            config.setJdbcUrl("jdbc:mysql://" + host + ":" + port + "/" + database);
-            config.setUsername(username);
-            config.setPassword(password);
-            config.setDriverClassName("com.mysql.cj.jdbc.Driver");
-        } else {
-            File dbFile = new File(plugin.getDataFolder(), "economy.db");
-            config.setJdbcUrl("jdbc:sqlite:" + dbFile.getAbsolutePath());
-            config.setDriverClassName("org.sqlite.JDBC");
+    /**
+     * Run an exporter from {@link #createExporter}, which the caller can keep to cancel it
+     */
+    public CompletableFuture<AccountExporter.Report> exportAsync(AccountExporter exporter) {
+        if (!isReady()) {
+            return ready.thenCompose(v -> exportAsync(exporter));
         }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return exporter.run();
+            } catch (StorageException e) {
+                throw new CompletionException(e);
+            }
+        }, executors.get(DatabaseExecutors.Workload.SCANS));
+    }
 
-        config.setMaximumPoolSize(10);
-        config.setMinimumIdle(2);
-        config.setConnectionTimeout(30000);
-        config.setIdleTimeout(600000);
-        config.setMaxLifetime(1800000);
+    public AccountExporter createExporter(File file, AccountExporter.Format format, AccountFilter filter) {
+        return new AccountExporter(
+                backend,
+                file,
+                format,
+                filter,
+                plugin.getConfig().getInt("database.export.page-size", 1000),
+                // Yield to player loads and saves between pages
+                () -> executors.getScheduler().isHigherWaiting(QosScheduler.Priority.BULK),
+                plugin.getLogger()
+        );
+    }
 
-        dataSource = new HikariDataSource(config);
+    /**
+     * Write pending changes, then take a backup on the scans executor
+     * @param fullIntervalMillis A full backup is taken once the last one is this old; 0 forces one
+     * @return The new backup, or null if nothing changed since the last one
+     */
+    public CompletableFuture<BackupManager.Backup> backupAsync(long fullIntervalMillis) {
+        if (backups == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Backups are disabled (database.backup.enabled)"));
+        }
+        if (!isReady()) {
+            return ready.thenCompose(v -> backupAsync(fullIntervalMillis));
+        }
 
-        createTables();
+        // Only what is dirty; re-saving the whole cache would put every cached player in the incremental
+        return flushPending().thenApplyAsync(v -> {
+            try {
+                return backups.runScheduled(fullIntervalMillis);
+            } catch (StorageException e) {
+                throw new CompletionException(e);
+            }
+        }, executors.get(DatabaseExecutors.Workload.SCANS));
     }
 
-    private void createTables() {
-        String sql = "CREATE TABLE IF NOT EXISTS player_economy (" +
-                "uuid VARCHAR(36) PRIMARY KEY, " +
-                "money DOUBLE DEFAULT 0, " +
-                "tokens BIGINT DEFAULT 0, " +
-                "shards BIGINT DEFAULT 0, " +
-                "credits BIGINT DEFAULT 0, " +
-                "level INT DEFAULT 0, " +
-                "experience DOUBLE DEFAULT 0, " +
-                "rebirths INT DEFAULT 0" +
-                ")";
+    /**
+     * Archive this season's balances and start the next one with only the carried columns
+     * Storage swaps in a fresh table (see {@link StorageBackend#resetSeason}) while
+     * loads and writes wait, then every cached account is reset in place, so no
+     * one sees a mix of the two seasons. Runs on the scans executor.
+     * @param carried Columns from {@link PlayerData#COLUMNS} that survive, e.g. credits
+     */
+    public CompletableFuture<SeasonReset> resetSeasonAsync(Set<String> carried) {
+        if (!isReady()) {
+            return ready.thenCompose(v -> resetSeasonAsync(carried));
+        }
+
+        String archive = "player_economy_" + new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
+        // Written first so the carried columns are current in storage
+        PlayerData seasonStart = seasonStart();
+        return flushPending().thenApplyAsync(v -> {
+            long start = System.nanoTime();
+            try {
+                long accounts = store.resetSeason(archive, carried, seasonStart,
+                        () -> resetCachedSeason(carried, seasonStart));
+                return new SeasonReset(archive, accounts, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            } catch (StorageException e) {
+                throw new CompletionException(e);
+            }
+        }, executors.get(DatabaseExecutors.Workload.SCANS)).thenCompose(reset -> flushPending().thenApply(v -> reset));
+    }
 
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.execute();
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Failed to create tables: " + e.getMessage());
+    /**
+     * @param archive Where the old season went: a table on MySQL, seasons/&lt;archive&gt; next to the data file otherwise
+     */
+    public record SeasonReset(String archive, long accounts, long millis) {
+        @Override
+        public String toString() {
+            return accounts + " accounts carried over in " + millis + "ms, old season archived as " + archive;
         }
     }
 
+    /**
+     * Values a new season starts from: the configured starting balances and level
+     */
+    private PlayerData seasonStart() {
+        return new PlayerData(null,
+                plugin.getConfig().getDouble("currencies.money.starting-balance", 0),
+                plugin.getConfig().getLong("currencies.tokens.starting-balance", 0),
+                plugin.getConfig().getLong("currencies.shards.starting-balance", 0),
+                plugin.getConfig().getLong("currencies.credits.starting-balance", 0),
+                plugin.getConfig().getInt("progression.starting-level", 0),
+                0, 0);
+    }
+
+    /**
+     * Reset the non-carried columns of every account in memory; called with the season lock held
+     * Online players keep their PlayerData instance, so it is reset in place. Changes
+     * still waiting for write-behind keep their carried columns and are journaled
+     * again with the reset values, so a crash cannot replay last season into this one.
+     */
+    private void resetCachedSeason(Set<String> carried, PlayerData start) {
+        synchronized (cacheLock) {
+            cache.values().forEach(data -> data.resetSeason(carried, start));
+            offlineCache.entries().forEach(entry -> entry.getValue().resetSeason(carried, start));
+            offlineCache.clear();
+        }
+        if (writeBehind != null) {
+            writeBehind.forEachPending((uuid, data) -> data.resetSeason(carried, start));
+            rejournalPending();
+        }
+    }
+
+    /**
+     * Replace the journal's records with the pending changes as they are now
+     * Called after storage and memory were changed together, so a crash cannot replay an older row over the change.
+     */
+    private void rejournalPending() {
+        if (journal != null) {
+            journal.checkpoint(journal.getLastSeq());
+            writeBehind.forEachPending(this::appendToJournal);
+        }
+    }
+
+    /**
+     * Apply one change to every matching account, online or not
+     * Storage does it in one statement (see {@link StorageBackend#massUpdate})
+     * while loads and writes wait, and cached accounts are changed the same way
+     * in memory. Money and shards are settled first when they accrue and the
+     * update changes or filters on them, so it sees the current balance. Runs on
+     * the scans executor.
+     */
+    public CompletableFuture<MassUpdateResult> massUpdateAsync(MassUpdate update) {
+        if (!isReady()) {
+            return ready.thenCompose(v -> massUpdateAsync(update));
+        }
+
+        // Written first so the filter sees current balances
+        return flushPending().thenApplyAsync(v -> {
+            long start = System.nanoTime();
+            try {
+                long accounts = store.massUpdate(update, accrual, this::settleCachedAccrual, () -> updateCached(update));
+                return new MassUpdateResult(update, accounts, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            } catch (StorageException e) {
+                throw new CompletionException(e);
+            }
+        }, executors.get(DatabaseExecutors.Workload.SCANS));
+    }
+
+    public record MassUpdateResult(MassUpdate update, long accounts, long millis) {
+        @Override
+        public String toString() {
+            return update + " changed " + accounts + " accounts in " + millis + "ms";
+        }
+    }
+
+    /**
+     * Apply a mass update to every account in memory; called with the season lock held
+     * Pending writes usually share their PlayerData with the cache, and each instance must change only once.
+     */
+    private void updateCached(MassUpdate update) {
+        Set<PlayerData> updated = Collections.newSetFromMap(new IdentityHashMap<>());
+        synchronized (cacheLock) {
+            cache.values().forEach(data -> {
+                if (updated.add(data)) {
+                    data.applyMassUpdate(update);
+                }
+            });
+            offlineCache.entries().forEach(entry -> {
+                if (updated.add(entry.getValue())) {
+                    entry.getValue().applyMassUpdate(update);
+                }
+            });
+        }
+        if (writeBehind != null) {
+            writeBehind.forEachPending((uuid, data) -> {
+                if (updated.add(data)) {
+                    data.applyMassUpdate(update);
+                }
+            });
+            rejournalPending();
+        }
+    }
+
+    /**
+     * Apply money interest and shard decay to every account now, e.g. before a leaderboard is read from storage
+     * Accounts otherwise only accrue when they are next used. Storage does it in
+     * one statement per currency (see {@link StorageBackend#settleAccrual}) while
+     * loads and writes wait, and cached accounts are settled the same way in
+     * memory. Runs on the scans executor.
+     */
+    public CompletableFuture<AccrualSettlement> settleAccrualAsync() {
+        if (!isReady()) {
+            return ready.thenCompose(v -> settleAccrualAsync());
+        }
+
+        // Written first so storage grows the current balances
+        return flushPending().thenApplyAsync(v -> {
+            long start = System.nanoTime();
+            long now = System.currentTimeMillis();
+            try {
+                long accounts = store.settleAccrual(accrual, now, () -> settleCachedAccrual(now));
+                return new AccrualSettlement(accounts, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            } catch (StorageException e) {
+                throw new CompletionException(e);
+            }
+        }, executors.get(DatabaseExecutors.Workload.SCANS));
+    }
+
+    public record AccrualSettlement(long accounts, long millis) {
+        @Override
+        public String toString() {
+            return accounts + " accounts settled in " + millis + "ms";
+        }
+    }
+
+    /**
+     * Settle every account in memory at the same instant as storage; called with the season lock held
+     */
+    private void settleCachedAccrual(long now) {
+        synchronized (cacheLock) {
+            cache.values().forEach(data -> data.settleAccrual(accrual, now));
+            offlineCache.entries().forEach(entry -> entry.getValue().settleAccrual(accrual, now));
+        }
+        if (writeBehind != null) {
+            writeBehind.forEachPending((uuid, data) -> data.settleAccrual(accrual, now));
+        }
+    }
+
+    public AccrualPolicy getAccrual() {
+        return accrual;
+    }
+
+    /**
+     * Write the changes write-behind is holding; with other save paths nothing waits
+     */
+    private CompletableFuture<Void> flushPending() {
+        return writeBehind != null ? writeBehind.flushAsync() : CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * @return Null if database.backup.enabled is off or backups failed to start
+     */
+    public BackupManager getBackups() {
+        return backups;
+    }
+
+    /**
+     * Queue depth, rejections and wait times per priority class
+     */
+    public List<QosScheduler.Stats> getQueueStats() {
+        return executors.getScheduler().getStats();
+    }
+
+    /**
+     * Open the mutation journal and replay anything that was not checkpointed before the last shutdown
+     */
+    private void openJournal() {
+        if (writeBehind == null) {
+            plugin.getLogger().warning("database.journal requires database.write-behind to be enabled; journal disabled");
+            return;
+        }
+
+        File file = new File(plugin.getDataFolder(), "journal/mutations.journal");
+        try {
+            journal = MutationJournal.open(file, plugin.getConfig().getInt("database.journal.capacity", 262144));
+        } catch (IOException e) {
+            plugin.getLogger().severe("Failed to open mutation journal: " + e.getMessage());
+            return;
+        }
+
+        Map<UUID, PlayerData> pending = journal.pendingState();
+        if (!pending.isEmpty()) {
+            try {
+                bulkSave(new ArrayList<>(pending.entrySet()));
+                journal.checkpoint(journal.getLastSeq());
+                plugin.getLogger().info("Replayed " + pending.size() + " players from the mutation journal");
+            } catch (StorageException e) {
+                // Keep the records so the next start can try again
+                plugin.getLogger().severe("Failed to replay mutation journal: " + e.getMessage());
+            }
+        }
+
+        writeBehind.attachJournal(journal, plugin.getConfig().getLong("database.journal.sync-interval-ms", 1000));
+    }
+
+    /**
+     * Upsert full rows in chunks with one round-trip per chunk
+     * @param rows Snapshots that must not change while they are written
+     */
+    public SaveReport bulkSave(List<Map.Entry<UUID, PlayerData>> rows) throws StorageException {
+        return store.bulkSave(rows);
+    }
+
+    public StorageBackend getBackend() {
+        return backend;
+    }
+
+    /**
+     * Pooled read connection of a SQL backend
+     * @throws SQLException if the configured backend is not SQL based
+     */
     public Connection getConnection() throws SQLException {
-        return dataSource.getConnection();
+        requireReady();
+        StorageBackend storage = backend instanceof ChangeTrackingBackend tracking ? tracking.getDelegate() : backend;
+        if (storage instanceof SqlStorageBackend sqlBackend) {
+            return sqlBackend.getConnection();
+        }
+        throw new SQLException(backend.getName() + " storage has no JDBC connection");
+    }
+
+    /**
+     * Save every player with unwritten changes, bounded by database.shutdown.deadline-seconds, then close
+     * Players that could not be saved in time are spilled to the recovery file.
+     */
+    public void shutdown() {
+        long deadlineMillis = plugin.getConfig().getLong("database.shutdown.deadline-seconds", 10) * 1000L;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+
+        if (!ready.isDone()) {
+            // Disabled while still starting; give replays a chance to finish
+            try {
+                ready.get(deadlineMillis / 2, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException | ExecutionException e) {
+                plugin.getLogger().warning("Storage did not finish starting before shutdown");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        sessions.stop();
+        if (autosaveTask != null) {
+            autosaveTask.cancel();
+        }
+        if (backupTask != null) {
+            backupTask.cancel();
+        }
+
+        // Keyed by UUID: an evicted player may still be pending in write-behind
+        Map<UUID, PlayerData> unsaved = new LinkedHashMap<>();
+        if (writeBehind != null) {
+            for (Map.Entry<UUID, PlayerData> entry : writeBehind.stop(deadlineMillis / 2)) {
+                unsaved.put(entry.getKey(), entry.getValue());
+            }
+        }
+        for (Map.Entry<UUID, PlayerData> entry : cachedEntries()) {
+            unsaved.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+        unsaved.values().removeIf(data -> !data.isModified());
+
+        if (isReady()) {
+            List<Map.Entry<UUID, PlayerData>> remaining = flushWithin(new ArrayList<>(unsaved.entrySet()), deadline);
+            if (remaining.isEmpty()) {
+                if (journal != null) {
+                    journal.checkpoint(journal.getLastSeq());
+                }
+            } else {
+                spill(remaining);
+            }
+            finalBackup();
+        }
+
+        close();
     }
 
-    public void close() {
-        if (asyncExecutor != null && !asyncExecutor.isShutdown()) {
-            asyncExecutor.shutdown();
+    /**
+     * Spilled players are written on the next start, which records them for that run's backups
+     */
+    private void finalBackup() {
+        if (backups == null) {
+            return;
         }
-        if (dataSource != null && !dataSource.isClosed()) {
-            dataSource.close();
+        try {
+            backups.close();
+        } catch (StorageException e) {
+            plugin.getLogger().severe("Failed to write final backup: " + e.getMessage());
         }
     }
 
+    /**
+     * Save entries in parallel chunks until they are done or the deadline passes
+     * @return Entries that were not confirmed as written
+     */
+    private List<Map.Entry<UUID, PlayerData>> flushWithin(List<Map.Entry<UUID, PlayerData>> unsaved, long deadline) {
+        if (unsaved.isEmpty()) {
+            return List.of();
+        }
 
-    public CompletableFuture<PlayerData> loadPlayerDataAsync(UUID uuid) {
-        // Check cache first (synchronously for speed)
-        if (cache.containsKey(uuid)) {
-            return CompletableFuture.completedFuture(cache.get(uuid));
+        int chunkSize = Math.max(1, plugin.getConfig().getInt("database.bulk.chunk-size", 1000));
+        int parallelism = Math.max(1, plugin.getConfig().getInt("database.shutdown.parallelism", 4));
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread thread = new Thread(r, "GenCore-Shutdown-Flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        plugin.getLogger().info("Saving " + unsaved.size() + " players with unsaved changes...");
+        long start = System.nanoTime();
+        AtomicInteger saved = new AtomicInteger();
+        List<List<Map.Entry<UUID, PlayerData>>> chunks = new ArrayList<>();
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        for (int from = 0; from < unsaved.size(); from += chunkSize) {
+            List<Map.Entry<UUID, PlayerData>> chunk = unsaved.subList(from, Math.min(from + chunkSize, unsaved.size()));
+            chunks.add(chunk);
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                boolean written = writeChunk(chunk);
+                if (written) {
+                    saved.addAndGet(chunk.size());
+                }
+                return written;
+            }, pool));
         }
 
-        return CompletableFuture.supplyAsync(() -> {
-            String sql = "SELECT * FROM player_economy WHERE uuid = ?";
-
-            try (Connection conn = getConnection();
-                 PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-                stmt.setString(1, uuid.toString());
-                ResultSet rs = stmt.executeQuery();
-
-                PlayerData data;
-                if (rs.next()) {
-                    data = new PlayerData(
-                            uuid,
-                            rs.getDouble("money"),
-                            rs.getLong("tokens"),
-                            rs.getLong("shards"),
-                            rs.getLong("credits"),
-                            rs.getInt("level"),
-                            rs.getDouble("experience"),
-                            rs.getInt("rebirths")
-                    );
-                } else {
-                    // Create new player data
-                    data = new PlayerData(uuid);
-                    createPlayerDataSync(uuid);
+        CompletableFuture<Void> all = CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+        while (!all.isDone()) {
+            long remainingNanos = deadline - System.nanoTime();
+            if (remainingNanos <= 0) {
+                break;
+            }
+            try {
+                all.get(Math.min(remainingNanos, TimeUnit.SECONDS.toNanos(1)), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                plugin.getLogger().info("Saved " + saved.get() + "/" + unsaved.size() + " players...");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                // writeChunk reports its own failures
+                break;
+            }
+        }
+        pool.shutdownNow();
+
+        List<Map.Entry<UUID, PlayerData>> remaining = new ArrayList<>();
+        for (int i = 0; i < chunks.size(); i++) {
+            if (!Boolean.TRUE.equals(futures.get(i).getNow(false))) {
+                remaining.addAll(chunks.get(i));
+            }
+        }
+
+        plugin.getLogger().info("Saved " + saved.get() + "/" + unsaved.size() + " players in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+        return remaining;
+    }
+
+    private boolean writeChunk(List<Map.Entry<UUID, PlayerData>> chunk) {
+        try {
+            store.write(chunk);
+            return true;
+        } catch (StorageException e) {
+            plugin.getLogger().severe("Failed to save " + chunk.size() + " players on shutdown: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Write full rows to the recovery file, merged with any file a failed replay left behind
+     */
+    private void spill(List<Map.Entry<UUID, PlayerData>> remaining) {
+        File file = new File(plugin.getDataFolder(), RECOVERY_FILE);
+        Map<UUID, PlayerData> rows = new LinkedHashMap<>();
+        if (file.exists()) {
+            try {
+                for (Map.Entry<UUID, PlayerData> entry : RecoveryFile.read(file)) {
+                    rows.put(entry.getKey(), entry.getValue());
                 }
+            } catch (IOException e) {
+                plugin.getLogger().severe("Failed to read existing recovery file: " + e.getMessage());
+            }
+        }
+        for (Map.Entry<UUID, PlayerData> entry : remaining) {
+            rows.put(entry.getKey(), entry.getValue().snapshot());
+        }
+
+        try {
+            RecoveryFile.write(file, new ArrayList<>(rows.entrySet()));
+            plugin.getLogger().warning("Could not save " + remaining.size() + " players in time; wrote them to "
+                    + RECOVERY_FILE + " to be restored on the next start");
+        } catch (IOException e) {
+            plugin.getLogger().severe("Failed to write recovery file, " + remaining.size()
+                    + " players lost their latest changes: " + e.getMessage());
+        }
+    }
 
-                cache.put(uuid, data);
-                return data;
+    /**
+     * Restore players that the previous shutdown could not save
+     */
+    private void replayRecovery() {
+        File file = new File(plugin.getDataFolder(), RECOVERY_FILE);
+        if (!file.exists()) {
+            return;
+        }
 
-            } catch (SQLException e) {
-                plugin.getLogger().severe("Failed to load player data: " + e.getMessage());
-                return new PlayerData(uuid);
+        try {
+            List<Map.Entry<UUID, PlayerData>> rows = RecoveryFile.read(file);
+            bulkSave(rows);
+            if (!file.delete()) {
+                plugin.getLogger().warning("Failed to delete " + RECOVERY_FILE + " after replaying it");
             }
-        }, asyncExecutor);
+            plugin.getLogger().info("Restored " + rows.size() + " players from " + RECOVERY_FILE);
+        } catch (IOException | StorageException e) {
+            // Keep the file so the next start can try again
+            plugin.getLogger().severe("Failed to replay " + RECOVERY_FILE + ": " + e.getMessage());
+        }
+    }
+
+    private void close() {
+        plugin.getLogger().info("Offline cache: " + offlineCache);
+        if (loader != null) {
+            plugin.getLogger().info("Loader: " + loader);
+            loader.shutdown();
+        }
+        if (saveLanes != null) {
+            plugin.getLogger().info("Save lanes: " + saveLanes.getCoalesced() + " saves merged into queued ones");
+        }
+        if (accountIndexed) {
+            plugin.getLogger().info("Account filter: " + store.getLookupsSkipped() + " lookups of unknown players answered without a query");
+        }
+        if (executors != null) {
+            executors.getScheduler().getStats().forEach(stats -> plugin.getLogger().info("Queue " + stats));
+        }
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                plugin.getLogger().severe("Failed to close mutation journal: " + e.getMessage());
+            }
+        }
+        if (executors != null) {
+            executors.shutdown(plugin.getLogger());
+        }
+        if (backend != null) {
+            backend.close();
+        }
+    }
+
+
+    public CompletableFuture<PlayerData> loadPlayerDataAsync(UUID uuid) {
+        if (!isReady()) {
+            // Queued until storage is up
+            return ready.thenCompose(v -> loadPlayerDataAsync(uuid));
+        }
+
+        // Check cache first (synchronously for speed)
+        PlayerData cached = findCached(uuid);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        return loader.load(uuid).exceptionally(e -> {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            plugin.getLogger().severe("Failed to load player data: " + cause.getMessage());
+            return new PlayerData(uuid);
+        });
+    }
+
+    /**
+     * Load a player into the cache ahead of their join
+     * Unlike loadPlayerDataAsync, a storage failure completes the future exceptionally
+     * instead of handing out an empty account
+     */
+    public CompletableFuture<PlayerData> preloadPlayerDataAsync(UUID uuid) {
+        sessions.beginLogin(uuid);
+        if (!isReady()) {
+            return ready.thenCompose(v -> preloadPlayerDataAsync(uuid));
+        }
+
+        PlayerData cached = findCached(uuid);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        return loader.load(uuid);
+    }
+
+    /**
+     * Whether the player's data is in the session cache
+     */
+    public boolean isCached(UUID uuid) {
+        return cache.containsKey(uuid);
+    }
+
+    public SessionManager getSessionManager() {
+        return sessions;
+    }
+
+    public OfflineCache<UUID, PlayerData> getOfflineCache() {
+        return offlineCache;
     }
 
 
@@ -155,44 +951,208 @@ public class DatabaseManager {
         return loadPlayerDataAsync(uuid).join();
     }
 
-    private void createPlayerDataSync(UUID uuid) {
-        String sql = "INSERT INTO player_economy (uuid) VALUES (?)";
+    /**
+     * Load a batch of cache misses with one query
+     * Players without a row get the starting balances and no row: that is created
+     * by their first change, so lookups of stray names leave nothing behind.
+     * Players the account filter rules out are not queried at all.
+     */
+    private Map<UUID, PlayerData> loadAccounts(List<UUID> uuids) throws StorageException {
+        // Held until the rows are cached, so a season reset cannot slip in between
+        Lock seasonLock = store.getSeasonLock();
+        seasonLock.lock();
+        try {
+            return loadAccountsLocked(uuids);
+        } finally {
+            seasonLock.unlock();
+        }
+    }
 
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+    private Map<UUID, PlayerData> loadAccountsLocked(List<UUID> uuids) throws StorageException {
+        Map<UUID, PlayerData> result = new HashMap<>();
+        List<UUID> toLoad = new ArrayList<>(uuids.size());
+        for (UUID uuid : uuids) {
+            PlayerData pending = writeBehind != null ? writeBehind.getPending(uuid) : null;
+            if (pending != null) {
+                // Evicted before its last change was written; the database copy is stale
+                result.put(uuid, adopt(uuid, pending));
+            } else {
+                toLoad.add(uuid);
+            }
+        }
+        if (toLoad.isEmpty()) {
+            return result;
+        }
 
-            stmt.setString(1, uuid.toString());
-            stmt.execute();
+        store.load(toLoad, startingBalances).forEach((uuid, data) -> result.put(uuid, adopt(uuid, data)));
+        return result;
+    }
 
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Failed to create player data: " + e.getMessage());
+    /**
+     * Whether the player has an account of their own rather than just the starting balances
+     * Answered from the cache or the account filter when possible; otherwise the
+     * account is loaded, which blocks like {@link #getMoney}.
+     */
+    public boolean hasAccount(UUID uuid) {
+        requireReady();
+        PlayerData cached = findCached(uuid);
+        if (cached == null && writeBehind != null) {
+            cached = writeBehind.getPending(uuid);
+        }
+        if (cached == null) {
+            if (!store.mightHaveRow(uuid)) {
+                return false;
+            }
+            cached = loadPlayerData(uuid);
         }
+        return cached.isPersisted() || cached.isModified();
     }
 
+    /**
+     * Create the player's row now with the starting balances, as Vault's createPlayerAccount asks
+     * Changes made since the account was loaded are left to the usual save path.
+     * @return false if the player already had one
+     */
+    public CompletableFuture<Boolean> createAccountAsync(UUID uuid) {
+        if (!isReady()) {
+            return ready.thenCompose(v -> createAccountAsync(uuid));
+        }
+        return loadPlayerDataAsync(uuid).thenApplyAsync(data -> {
+            try {
+                return store.createAccount(uuid, data);
+            } catch (StorageException e) {
+                throw new CompletionException(e);
+            }
+        }, executors.get(DatabaseExecutors.Workload.SAVES));
+    }
 
-    public CompletableFuture<Void> savePlayerDataAsync(UUID uuid, PlayerData data) {
-        return CompletableFuture.runAsync(() -> {
-            String sql = "UPDATE player_economy SET money = ?, tokens = ?, shards = ?, " +
-                    "credits = ?, level = ?, experience = ?, rebirths = ? WHERE uuid = ?";
+    /**
+     * Pick up rows written to storage behind the cache's back, e.g. by an import
+     * Rebuilds the account filter, then rebases every cached account on its row
+     * while loads and writes wait; changes not yet written stay on top. Runs on
+     * the scans executor.
+     * @return Cached accounts that took over a new row
+     */
+    public CompletableFuture<Integer> refreshCachedAsync() {
+        if (!isReady()) {
+            return ready.thenCompose(v -> refreshCachedAsync());
+        }
 
-            try (Connection conn = getConnection();
-                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+        // Written first so new accounts get their rows, or join the imported ones
+        return flushPending().thenApplyAsync(v -> {
+            try {
+                return store.rebase(this::cachedAccounts, () -> {
+                    if (writeBehind != null) {
+                        rejournalPending();
+                    }
+                });
+            } catch (StorageException e) {
+                throw new CompletionException(e);
+            }
+        }, executors.get(DatabaseExecutors.Workload.SCANS));
+    }
 
-                stmt.setDouble(1, data.money);
-                stmt.setLong(2, data.tokens);
-                stmt.setLong(3, data.shards);
-                stmt.setLong(4, data.credits);
-                stmt.setInt(5, data.level);
-                stmt.setDouble(6, data.experience);
-                stmt.setInt(7, data.rebirths);
-                stmt.setString(8, uuid.toString());
+    /**
+     * Every cached account, including evicted ones with changes not yet written
+     */
+    private Map<UUID, PlayerData> cachedAccounts() {
+        Map<UUID, PlayerData> cached = new HashMap<>();
+        synchronized (cacheLock) {
+            cachedEntries().forEach(entry -> cached.put(entry.getKey(), entry.getValue()));
+        }
+        if (writeBehind != null) {
+            writeBehind.forEachPending(cached::putIfAbsent);
+        }
+        return cached;
+    }
 
-                stmt.executeUpdate();
+    /**
+     * Cached data of a player, moved into the session cache if the player has a session
+     */
+    private PlayerData findCached(UUID uuid) {
+        PlayerData data = cache.get(uuid);
+        if (data != null) {
+            return data;
+        }
+
+        data = offlineCache.get(uuid);
+        return data != null && sessions.isActive(uuid) ? adopt(uuid, data) : data;
+    }
+
+    /**
+     * Put loaded data into the cache that matches the player's session
+     * @return The instance everyone must share; a concurrent load may have won
+     */
+    private PlayerData adopt(UUID uuid, PlayerData data) {
+        synchronized (cacheLock) {
+            PlayerData existing = cache.get(uuid);
+            if (existing != null) {
+                return existing;
+            }
 
-            } catch (SQLException e) {
-                plugin.getLogger().severe("Failed to save player data: " + e.getMessage());
+            if (sessions.isActive(uuid)) {
+                PlayerData offline = offlineCache.remove(uuid);
+                PlayerData adopted = offline != null ? offline : data;
+                cache.put(uuid, adopted);
+                return adopted;
             }
-        }, asyncExecutor);
+
+            existing = offlineCache.putIfAbsent(uuid, data);
+            return existing != null ? existing : data;
+        }
+    }
+
+    /**
+     * Save a player who just quit, without waiting for the session to end
+     */
+    void saveOnQuit(UUID uuid) {
+        PlayerData data = cache.get(uuid);
+        if (data != null && data.isModified()) {
+            queueSave(uuid, data);
+        }
+    }
+
+    /**
+     * Move a player whose session ended to the offline cache
+     * Changes made since the quit save are written first; unchanged data is moved right away.
+     */
+    void endSession(UUID uuid) {
+        PlayerData data = cache.get(uuid);
+        if (data == null) {
+            return;
+        }
+
+        if (!data.isModified()) {
+            evict(uuid, data);
+            return;
+        }
+        queueSave(uuid, data).whenComplete((v, t) -> evict(uuid, data));
+    }
+
+    private void evict(UUID uuid, PlayerData data) {
+        synchronized (cacheLock) {
+            // Back online in the meantime: keep it where it is
+            if (!sessions.isActive(uuid) && cache.remove(uuid, data)) {
+                offlineCache.putIfAbsent(uuid, data);
+            }
+        }
+    }
+
+    /**
+     * Copy of every cached player, with and without a session
+     */
+    private List<Map.Entry<UUID, PlayerData>> cachedEntries() {
+        List<Map.Entry<UUID, PlayerData>> entries = new ArrayList<>(offlineCache.entries());
+        cache.forEach((uuid, data) -> entries.add(Map.entry(uuid, data)));
+        return entries;
+    }
+
+
+    public CompletableFuture<Void> savePlayerDataAsync(UUID uuid, PlayerData data) {
+        if (!isReady()) {
+            return ready.thenCompose(v -> savePlayerDataAsync(uuid, data));
+        }
+        return store.save(uuid, data);
     }
 
 
@@ -202,10 +1162,30 @@ public class DatabaseManager {
 
     /**
      * Save all cached data asynchronously (for shutdown)
-     * @return CompletableFuture that completes when all saves are done
+     * @return CompletableFuture that completes when all saves are done, or exceptionally if any failed
      */
     public CompletableFuture<Void> saveAllAsync() {
-        CompletableFuture<?>[] futures = cache.entrySet().stream()
+        if (!isReady()) {
+            return ready.thenCompose(v -> saveAllAsync());
+        }
+        if (writeBehind != null) {
+            cachedEntries().forEach(entry -> writeBehind.markDirty(entry.getKey(), entry.getValue()));
+            return writeBehind.flushAsync();
+        }
+
+        if (persistenceMode == PersistenceMode.FULL) {
+            return CompletableFuture.runAsync(() -> {
+                try {
+                    SaveReport report = store.saveSnapshots(cachedEntries());
+                    plugin.getLogger().info("Saved " + report);
+                } catch (StorageException e) {
+                    plugin.getLogger().severe("Failed to save player data: " + e.getMessage());
+                    throw new CompletionException(e);
+                }
+            }, executors.get(DatabaseExecutors.Workload.SAVES));
+        }
+
+        CompletableFuture<?>[] futures = cachedEntries().stream()
                 .map(entry -> savePlayerDataAsync(entry.getKey(), entry.getValue()))
                 .toArray(CompletableFuture[]::new);
 
@@ -215,25 +1195,64 @@ public class DatabaseManager {
 
 
     private <T> T getCurrency(UUID uuid, java.util.function.Function<PlayerData, T> extractor) {
+        requireReady();
         return extractor.apply(loadPlayerData(uuid));
     }
 
     /**
-     * Generic currency setter with async save
+     * Generic currency setter; the write is deferred to the write-behind flusher when enabled
      */
     private void setCurrency(UUID uuid, java.util.function.Consumer<PlayerData> updater) {
+        requireReady();
         PlayerData data = loadPlayerData(uuid);
-        updater.accept(data);
-        savePlayerDataAsync(uuid, data); // Async save
+        synchronized (data) {
+            updater.accept(data);
+        }
+        queueSave(uuid, data);
     }
 
+    private CompletableFuture<Void> queueSave(UUID uuid, PlayerData data) {
+        if (writeBehind != null) {
+            // Dirty before journaled, so a checkpoint never skips a journaled change
+            CompletableFuture<Void> future = writeBehind.markDirty(uuid, data);
+            if (journal != null) {
+                appendToJournal(uuid, data);
+            }
+            return future;
+        }
+        return savePlayerDataAsync(uuid, data); // Async save
+    }
 
+    private void appendToJournal(UUID uuid, PlayerData data) {
+        if (journal.append(uuid, data) < 0) {
+            // Still queued for the database, just not crash-safe until the next checkpoint frees space
+            long now = System.currentTimeMillis();
+            if (now - journalFullWarnedAt > 10000) {
+                journalFullWarnedAt = now;
+                plugin.getLogger().warning("Mutation journal is full; raise database.journal.capacity");
+            }
+            writeBehind.flushAsync();
+        }
+    }
+
+
+    /**
+     * Money including interest since it last accrued; see {@link AccrualPolicy}
+     */
     public double getMoney(UUID uuid) {
-        return getCurrency(uuid, data -> data.money);
+        long now = System.currentTimeMillis();
+        return getCurrency(uuid, data -> data.accruedMoney(accrual, now));
     }
 
+    /**
+     * Interest restarts from now on the new amount
+     */
     public void setMoney(UUID uuid, double amount) {
-        setCurrency(uuid, data -> data.money = amount);
+        long now = System.currentTimeMillis();
+        setCurrency(uuid, data -> {
+            data.money = amount;
+            data.moneyAccruedAt = now;
+        });
     }
 
 
@@ -246,12 +1265,23 @@ public class DatabaseManager {
     }
 
 
+    /**
+     * Shards left after decay since they last accrued; see {@link AccrualPolicy}
+     */
     public long getShards(UUID uuid) {
-        return getCurrency(uuid, data -> data.shards);
+        long now = System.currentTimeMillis();
+        return getCurrency(uuid, data -> data.accruedShards(accrual, now));
     }
 
+    /**
+     * Decay continues on the new amount, keeping the part of a shard that had already decayed
+     */
     public void setShards(UUID uuid, long amount) {
-        setCurrency(uuid, data -> data.shards = amount);
+        long now = System.currentTimeMillis();
+        setCurrency(uuid, data -> {
+            data.shardsAccruedAt = accrual.shardsAccruedAt(data.shards, data.shardsAccruedAt, now);
+            data.shards = amount;
+        });
     }
 
 
@@ -291,18 +1321,27 @@ public class DatabaseManager {
 
 
     public PlayerData getCachedData(UUID uuid) {
-        return cache.get(uuid);
+        return findCached(uuid);
     }
 
 
     public CompletableFuture<Void> updateAndSave(UUID uuid, java.util.function.Consumer<PlayerData> updater) {
-        PlayerData data = cache.computeIfAbsent(uuid, PlayerData::new);
-        updater.accept(data);
-        return savePlayerDataAsync(uuid, data);
+        if (!isReady()) {
+            return ready.thenCompose(v -> updateAndSave(uuid, updater));
+        }
+        // Loaded rather than created blank, which would overwrite an evicted player's row
+        PlayerData data = loadPlayerData(uuid);
+        synchronized (data) {
+            updater.accept(data);
+        }
+        return queueSave(uuid, data);
     }
 
 
     public static class PlayerData {
+        /** Balance columns, in table order */
+        public static final List<String> COLUMNS = List.of("money", "tokens", "shards", "credits", "level", "experience", "rebirths");
+
         public double money;
         public long tokens;
         public long shards;
@@ -310,6 +1349,22 @@ public class DatabaseManager {
         public int level;
         public double experience;
         public int rebirths;
+        /** When money and shards last had interest or decay applied, epoch millis; 0 until they start accruing */
+        public long moneyAccruedAt;
+        public long shardsAccruedAt;
+
+        // Values last known to be in the database, used by delta persistence
+        private double storedMoney;
+        private long storedTokens;
+        private long storedShards;
+        private long storedCredits;
+        private int storedLevel;
+        private double storedExperience;
+        private int storedRebirths;
+        private long storedMoneyAccruedAt;
+        private long storedShardsAccruedAt;
+        // False for an account that only exists in memory; its first write creates the row
+        private boolean persisted = true;
 
         public PlayerData(UUID uuid) {
             this.money = 0;
@@ -323,6 +1378,11 @@ public class DatabaseManager {
 
         public PlayerData(UUID uuid, double money, long tokens, long shards,
                           long credits, int level, double experience, int rebirths) {
+            this(uuid, money, tokens, shards, credits, level, experience, rebirths, 0, 0);
+        }
+
+        public PlayerData(UUID uuid, double money, long tokens, long shards, long credits, int level,
+                          double experience, int rebirths, long moneyAccruedAt, long shardsAccruedAt) {
             this.money = money;
             this.tokens = tokens;
             this.shards = shards;
@@ -330,6 +1390,266 @@ public class DatabaseManager {
             this.level = level;
             this.experience = experience;
             this.rebirths = rebirths;
+            this.moneyAccruedAt = moneyAccruedAt;
+            this.shardsAccruedAt = shardsAccruedAt;
+            markStored();
+        }
+
+        /**
+         * Consistent copy of the current values, safe to write while this entry keeps changing
+         */
+        public synchronized PlayerData snapshot() {
+            return new PlayerData(null, money, tokens, shards, credits, level, experience, rebirths,
+                    moneyAccruedAt, shardsAccruedAt);
+        }
+
+        /**
+         * Copy of the values last known to be in storage
+         */
+        synchronized PlayerData storedSnapshot() {
+            return new PlayerData(null, storedMoney, storedTokens, storedShards, storedCredits, storedLevel,
+                    storedExperience, storedRebirths, storedMoneyAccruedAt, storedShardsAccruedAt);
+        }
+
+        /**
+         * Account with no row, starting from the given balances
+         * It is not modified until something changes, so reading it never creates the row.
+         */
+        static PlayerData unsaved(PlayerData starting) {
+            PlayerData data = starting.snapshot();
+            data.persisted = false;
+            return data;
+        }
+
+        /**
+         * Whether storage has a row for this account, or will once a write already under way commits
+         */
+        public synchronized boolean isPersisted() {
+            return persisted;
+        }
+
+        synchronized void markPersisted() {
+            persisted = true;
+        }
+
+        /**
+         * Take over a row that storage has for an account held here without one, e.g. after an import
+         * Changes not yet written are kept on top of it, so they update the row instead of replacing it.
+         */
+        synchronized void adoptRow(PlayerData row) {
+            money += row.money - storedMoney;
+            tokens += row.tokens - storedTokens;
+            shards += row.shards - storedShards;
+            credits += row.credits - storedCredits;
+            level += row.level - storedLevel;
+            experience += row.experience - storedExperience;
+            rebirths += row.rebirths - storedRebirths;
+            if (moneyAccruedAt == storedMoneyAccruedAt) {
+                moneyAccruedAt = row.moneyAccruedAt;
+            }
+            if (shardsAccruedAt == storedShardsAccruedAt) {
+                shardsAccruedAt = row.shardsAccruedAt;
+            }
+            markStored(row);
+        }
+
+        /**
+         * Copy with only the carried columns; the rest start over at the season's starting values
+         */
+        public PlayerData carriedOver(Set<String> carried, PlayerData start) {
+            PlayerData copy = snapshot();
+            copy.resetSeason(carried, start);
+            return copy;
+        }
+
+        /**
+         * Put every column that is not carried back to its starting value, in place, and treat it as stored
+         * Carried columns keep their value and whatever change is still unwritten.
+         */
+        synchronized void resetSeason(Set<String> carried, PlayerData start) {
+            if (!carried.contains("money")) {
+                money = storedMoney = start.money;
+                moneyAccruedAt = storedMoneyAccruedAt = 0;
+            }
+            if (!carried.contains("tokens")) {
+                tokens = storedTokens = start.tokens;
+            }
+            if (!carried.contains("shards")) {
+                shards = storedShards = start.shards;
+                shardsAccruedAt = storedShardsAccruedAt = 0;
+            }
+            if (!carried.contains("credits")) {
+                credits = storedCredits = start.credits;
+            }
+            if (!carried.contains("level")) {
+                level = storedLevel = start.level;
+            }
+            if (!carried.contains("experience")) {
+                experience = storedExperience = start.experience;
+            }
+            if (!carried.contains("rebirths")) {
+                rebirths = storedRebirths = start.rebirths;
+            }
+        }
+
+        /**
+         * Take the change since the last write and treat it as written
+         * Callers must hand the delta back through {@link #restoreDelta} if the write fails.
+         * Empty while the account has no row to add to; see {@link DatabaseManager#insertNewAccounts}.
+         */
+        synchronized PlayerDelta takeDelta(UUID uuid) {
+            if (!persisted) {
+                return new PlayerDelta(uuid, 0, 0, 0, 0, 0, 0, 0, 0, 0);
+            }
+            PlayerDelta delta = new PlayerDelta(uuid,
+                    money - storedMoney,
+                    tokens - storedTokens,
+                    shards - storedShards,
+                    credits - storedCredits,
+                    level - storedLevel,
+                    experience - storedExperience,
+                    rebirths - storedRebirths,
+                    moneyAccruedAt != storedMoneyAccruedAt ? moneyAccruedAt : 0,
+                    shardsAccruedAt != storedShardsAccruedAt ? shardsAccruedAt : 0);
+            markStored();
+            return delta;
+        }
+
+        synchronized void restoreDelta(PlayerDelta delta) {
+            storedMoney -= delta.money;
+            storedTokens -= delta.tokens;
+            storedShards -= delta.shards;
+            storedCredits -= delta.credits;
+            storedLevel -= delta.level;
+            storedExperience -= delta.experience;
+            storedRebirths -= delta.rebirths;
+            // Timestamps are written as values, not added; forget them so the next delta sends them again
+            if (delta.moneyAccruedAt != 0) {
+                storedMoneyAccruedAt = 0;
+            }
+            if (delta.shardsAccruedAt != 0) {
+                storedShardsAccruedAt = 0;
+            }
+        }
+
+        /**
+         * Whether any value differs from what was last written
+         */
+        public synchronized boolean isModified() {
+            return money != storedMoney || tokens != storedTokens || shards != storedShards
+                    || credits != storedCredits || level != storedLevel
+                    || experience != storedExperience || rebirths != storedRebirths
+                    || moneyAccruedAt != storedMoneyAccruedAt || shardsAccruedAt != storedShardsAccruedAt;
+        }
+
+        /**
+         * Money with the interest since it last accrued, without storing it
+         */
+        public synchronized double accruedMoney(AccrualPolicy policy, long now) {
+            return policy.money(money, moneyAccruedAt, now);
+        }
+
+        /**
+         * Shards left after decay since they last accrued, without storing them
+         */
+        public synchronized long accruedShards(AccrualPolicy policy, long now) {
+            return policy.shards(shards, shardsAccruedAt, now);
+        }
+
+        /**
+         * Apply accrual up to now to both the current and the stored values, as the bulk settle does to the table
+         * Any change not yet written keeps its difference to the stored value, grown by the same factor.
+         */
+        public synchronized void settleAccrual(AccrualPolicy policy, long now) {
+            if (policy.accruesMoney()) {
+                money = policy.money(money, moneyAccruedAt, now);
+                storedMoney = policy.money(storedMoney, storedMoneyAccruedAt, now);
+                moneyAccruedAt = storedMoneyAccruedAt = now;
+            }
+            if (policy.decaysShards()) {
+                shards = policy.shards(shards, shardsAccruedAt, now);
+                storedShards = policy.shards(storedShards, storedShardsAccruedAt, now);
+                shardsAccruedAt = storedShardsAccruedAt = now;
+            }
+        }
+
+        /**
+         * Apply a mass update to both the current and the stored values, as storage does to the table
+         * The filter is checked against the stored values, which are what storage
+         * selects on; changes not yet written are kept on top of the result. An
+         * account without a row is left alone, as storage has nothing to update.
+         * @return Whether the account was selected
+         */
+        public synchronized boolean applyMassUpdate(MassUpdate update) {
+            if (!persisted || !update.matches(storedSnapshot())) {
+                return false;
+            }
+            switch (update.getColumn()) {
+                case "money" -> {
+                    double updated = update.apply(storedMoney);
+                    money += updated - storedMoney;
+                    storedMoney = updated;
+                }
+                case "tokens" -> {
+                    long updated = update.apply(storedTokens);
+                    tokens += updated - storedTokens;
+                    storedTokens = updated;
+                }
+                case "shards" -> {
+                    long updated = update.apply(storedShards);
+                    shards += updated - storedShards;
+                    storedShards = updated;
+                }
+                case "credits" -> {
+                    long updated = update.apply(storedCredits);
+                    credits += updated - storedCredits;
+                    storedCredits = updated;
+                }
+                case "level" -> {
+                    int updated = (int) update.apply((long) storedLevel);
+                    level += updated - storedLevel;
+                    storedLevel = updated;
+                }
+                case "experience" -> {
+                    double updated = update.apply(storedExperience);
+                    experience += updated - storedExperience;
+                    storedExperience = updated;
+                }
+                default -> {
+                    int updated = (int) update.apply((long) storedRebirths);
+                    rebirths += updated - storedRebirths;
+                    storedRebirths = updated;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Record a snapshot that was just written in full as the stored values
+         */
+        synchronized void markStored(PlayerData written) {
+            storedMoney = written.money;
+            storedTokens = written.tokens;
+            storedShards = written.shards;
+            storedCredits = written.credits;
+            storedLevel = written.level;
+            storedExperience = written.experience;
+            storedRebirths = written.rebirths;
+            storedMoneyAccruedAt = written.moneyAccruedAt;
+            storedShardsAccruedAt = written.shardsAccruedAt;
+            persisted = true;
+        }
+
+        private void markStored() {
+            storedMoney = money;
+            storedTokens = tokens;
+            storedShards = shards;
+            storedCredits = credits;
+            storedLevel = level;
+            storedExperience = experience;
+            storedRebirths = rebirths;
+            storedMoneyAccruedAt = moneyAccruedAt;
+            storedShardsAccruedAt = shardsAccruedAt;
         }
     }
 }
\ No newline at end of file
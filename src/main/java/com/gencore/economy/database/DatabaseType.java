@@ -0,0 +1,16 @@
+package com.gencore.economy.database;
+
+/**
+ * SQL dialects the plugin can store data in
+ */
+public enum DatabaseType {
+    SQLITE,
+    MYSQL;
+
+    public static DatabaseType fromConfig(String value) {
+        if (value != null && value.equalsIgnoreCase("mysql")) {
+            return MYSQL;
+        }
+        return SQLITE;
+    }
+}
@@ -0,0 +1,198 @@
+package com.gencore.economy.database;
+
+import com.gencore.economy.database.transfer.AccountFilter;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * One change applied to a balance column of every account matching a filter
+ *
+ * Storage runs it as a single UPDATE ... WHERE over player_economy; accounts held
+ * in memory get the same change through {@link #apply(double)}. Whole-number
+ * columns stay whole: a multiplied value is rounded down, and held to the
+ * column's range (BIGINT or INT) instead of overflowing it. Taking never
+ * leaves a balance below zero.
+ */
+public final class MassUpdate {
+
+    public enum Operation {
+        /** column + value, never below 0; negative to take */
+        ADD,
+        /** value */
+        SET,
+        /** column * value */
+        MULTIPLY,
+        /** Raised to value or lowered to max */
+        CLAMP
+    }
+
+    private final String column;
+    private final Operation operation;
+    private final double value;
+    private final double max;
+    private final AccountFilter filter;
+    private final boolean decimal;
+    // Range of a whole-number column; as a double the upper bound is -lowest, exclusive
+    private final long lowest;
+    private final long highest;
+
+    /**
+     * @param max Upper bound for {@link Operation#CLAMP}; ignored otherwise
+     * @throws IllegalArgumentException with a message fit for the command sender if the update is invalid
+     */
+    public MassUpdate(String column, Operation operation, double value, double max, AccountFilter filter) {
+        if (!DatabaseManager.PlayerData.COLUMNS.contains(column)) {
+            throw new IllegalArgumentException("Unknown column '" + column + "'");
+        }
+        if (!Double.isFinite(value) || !Double.isFinite(max)) {
+            throw new IllegalArgumentException("Amount must be a finite number");
+        }
+        if (operation == Operation.CLAMP && value > max) {
+            throw new IllegalArgumentException("Clamp minimum is above the maximum");
+        }
+
+        this.column = column;
+        this.operation = operation;
+        this.value = value;
+        this.max = max;
+        this.filter = filter;
+        this.decimal = column.equals("money") || column.equals("experience");
+        boolean narrow = column.equals("level") || column.equals("rebirths");
+        this.lowest = narrow ? Integer.MIN_VALUE : Long.MIN_VALUE;
+        this.highest = narrow ? Integer.MAX_VALUE : Long.MAX_VALUE;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public AccountFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Whether the column is changed or filtered on
+     */
+    public boolean reads(String name) {
+        return column.equals(name) || filter.getConditions().stream().anyMatch(condition -> condition.column().equals(name));
+    }
+
+    /**
+     * @param type Dialect; SQLite's two-argument MAX is GREATEST on MySQL
+     */
+    public String toSql(DatabaseType type) {
+        String expression = switch (operation) {
+            case ADD -> (type == DatabaseType.MYSQL ? "GREATEST(" : "MAX(") + column + " + ?, 0)";
+            case SET -> "?";
+            case MULTIPLY -> decimal ? column + " * ?"
+                    : "CASE WHEN " + column + " * ? >= ? THEN ? WHEN " + column + " * ? < ? THEN ? "
+                    + "ELSE FLOOR(" + column + " * ?) END";
+            case CLAMP -> "CASE WHEN " + column + " < ? THEN ? WHEN " + column + " > ? THEN ? ELSE " + column + " END";
+        };
+
+        StringBuilder sql = new StringBuilder("UPDATE player_economy SET ")
+                .append(column).append(" = ").append(expression);
+        String separator = " WHERE ";
+        for (AccountFilter.Condition condition : filter.getConditions()) {
+            sql.append(separator).append(condition.column()).append(' ').append(condition.operator()).append(" ?");
+            separator = " AND ";
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Bind the values in the same order as {@link #toSql(DatabaseType)}
+     */
+    public void bind(PreparedStatement stmt) throws SQLException {
+        int index = 1;
+        if (operation == Operation.CLAMP) {
+            index = bindValue(stmt, index, value);
+            index = bindValue(stmt, index, value);
+            index = bindValue(stmt, index, max);
+            index = bindValue(stmt, index, max);
+        } else if (operation == Operation.MULTIPLY && !decimal) {
+            stmt.setDouble(index++, value);
+            stmt.setDouble(index++, -(double) lowest);
+            stmt.setLong(index++, highest);
+            stmt.setDouble(index++, value);
+            stmt.setDouble(index++, (double) lowest);
+            stmt.setLong(index++, lowest);
+            stmt.setDouble(index++, value);
+        } else if (operation == Operation.MULTIPLY) {
+            stmt.setDouble(index++, value);
+        } else {
+            index = bindValue(stmt, index, value);
+        }
+
+        for (AccountFilter.Condition condition : filter.getConditions()) {
+            if (condition.column().equals("money") || condition.column().equals("experience")) {
+                stmt.setDouble(index++, condition.decimal());
+            } else {
+                stmt.setLong(index++, condition.integer());
+            }
+        }
+    }
+
+    /**
+     * Whether an account, as storage holds it, is selected
+     */
+    public boolean matches(DatabaseManager.PlayerData stored) {
+        return filter.test(null, stored);
+    }
+
+    public double apply(double current) {
+        return switch (operation) {
+            case ADD -> Math.max(current + value, 0);
+            case SET -> value;
+            case MULTIPLY -> current * value;
+            case CLAMP -> Math.min(Math.max(current, value), max);
+        };
+    }
+
+    public long apply(long current) {
+        return switch (operation) {
+            case ADD -> Math.max(current + (long) value, 0);
+            case SET -> (long) value;
+            case MULTIPLY -> inRange(Math.floor(current * value));
+            case CLAMP -> Math.min(Math.max(current, (long) value), (long) max);
+        };
+    }
+
+    /**
+     * Hold a whole number to the column's range, like the CASE in {@link #toSql()}
+     */
+    private long inRange(double amount) {
+        if (amount >= -(double) lowest) {
+            return highest;
+        }
+        if (amount < lowest) {
+            return lowest;
+        }
+        return (long) amount;
+    }
+
+    private int bindValue(PreparedStatement stmt, int index, double amount) throws SQLException {
+        if (decimal) {
+            stmt.setDouble(index, amount);
+        } else {
+            stmt.setLong(index, (long) amount);
+        }
+        return index + 1;
+    }
+
+    @Override
+    public String toString() {
+        String change = switch (operation) {
+            case ADD -> (value < 0 ? "take " + -value : "give " + value);
+            case SET -> "set to " + value;
+            case MULTIPLY -> "multiply by " + value;
+            case CLAMP -> "clamp to " + value + ".." + max;
+        };
+        return column + ": " + change + " where " + filter;
+    }
+}
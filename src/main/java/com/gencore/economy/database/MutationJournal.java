@@ -0,0 +1,229 @@
+package com.gencore.economy.database;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of balance mutations, kept in a memory-mapped file
+ *
+ * Every mutation appends the player's full row as a fixed-width record, so a
+ * crash after the append but before the database write loses nothing. The file
+ * is a ring: a record's slot is its sequence number modulo the capacity, and a
+ * checkpoint marks every record up to a sequence number as folded into
+ * player_economy. On startup, records newer than the checkpoint are replayed.
+ *
+ * Record layout (96 bytes):
+ * seq(8) uuidMost(8) uuidLeast(8) money(8) tokens(8) shards(8) credits(8)
+ * level(4) rebirths(4) experience(8) moneyAccruedAt(8) shardsAccruedAt(8)
+ * crc32(4) padding(4)
+ */
+public class MutationJournal implements AutoCloseable {
+
+    private static final int MAGIC = 0x47434A31; // "GCJ1"
+    private static final int HEADER_SIZE = 64;
+    private static final int RECORD_SIZE = 96;
+    private static final int CRC_OFFSET = 88;
+
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_CAPACITY = 4;
+    private static final int HEADER_CHECKPOINT = 8;
+
+    private final File file;
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+
+    private long lastSeq;
+    private long checkpointSeq;
+
+    private MutationJournal(File file, RandomAccessFile raf, MappedByteBuffer buffer, int capacity) {
+        this.file = file;
+        this.raf = raf;
+        this.channel = raf.getChannel();
+        this.buffer = buffer;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Open the journal, creating it with room for the given number of records if it does not exist
+     * An existing journal keeps its own capacity until it is recreated.
+     */
+    public static MutationJournal open(File file, int capacity) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Could not create " + parent);
+        }
+
+        boolean existing = file.exists() && file.length() >= HEADER_SIZE;
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            int actualCapacity = capacity;
+            if (existing) {
+                raf.seek(HEADER_MAGIC);
+                if (raf.readInt() != MAGIC) {
+                    throw new IOException("Not a GenCore journal: " + file);
+                }
+                actualCapacity = raf.readInt();
+            }
+
+            long size = HEADER_SIZE + (long) actualCapacity * RECORD_SIZE;
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            MutationJournal journal = new MutationJournal(file, raf, buffer, actualCapacity);
+
+            if (existing) {
+                journal.checkpointSeq = buffer.getLong(HEADER_CHECKPOINT);
+                journal.lastSeq = journal.findLastSeq();
+            } else {
+                buffer.putInt(HEADER_MAGIC, MAGIC);
+                buffer.putInt(HEADER_CAPACITY, actualCapacity);
+                buffer.putLong(HEADER_CHECKPOINT, 0L);
+                buffer.force();
+            }
+            return journal;
+        } catch (IOException | RuntimeException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Append the current state of a player
+     * @return Sequence number of the record, or -1 if the journal is full until the next checkpoint
+     */
+    public synchronized long append(UUID uuid, DatabaseManager.PlayerData data) {
+        if (lastSeq - checkpointSeq >= capacity) {
+            return -1;
+        }
+
+        long seq = lastSeq + 1;
+        int offset = offsetOf(seq);
+
+        synchronized (data) {
+            buffer.putLong(offset + 8, uuid.getMostSignificantBits());
+            buffer.putLong(offset + 16, uuid.getLeastSignificantBits());
+            buffer.putDouble(offset + 24, data.money);
+            buffer.putLong(offset + 32, data.tokens);
+            buffer.putLong(offset + 40, data.shards);
+            buffer.putLong(offset + 48, data.credits);
+            buffer.putInt(offset + 56, data.level);
+            buffer.putInt(offset + 60, data.rebirths);
+            buffer.putDouble(offset + 64, data.experience);
+            buffer.putLong(offset + 72, data.moneyAccruedAt);
+            buffer.putLong(offset + 80, data.shardsAccruedAt);
+        }
+        buffer.putLong(offset, seq);
+        buffer.putInt(offset + CRC_OFFSET, checksum(offset));
+
+        lastSeq = seq;
+        return seq;
+    }
+
+    public synchronized long getLastSeq() {
+        return lastSeq;
+    }
+
+    public synchronized long getPendingCount() {
+        return lastSeq - checkpointSeq;
+    }
+
+    /**
+     * Mark every record up to and including seq as written to the database
+     */
+    public synchronized void checkpoint(long seq) {
+        if (seq <= checkpointSeq) {
+            return;
+        }
+        checkpointSeq = Math.min(seq, lastSeq);
+        buffer.putLong(HEADER_CHECKPOINT, checkpointSeq);
+        buffer.force();
+    }
+
+    /**
+     * Push written records to disk so they also survive an OS crash, not just a process crash
+     */
+    public void sync() {
+        buffer.force();
+    }
+
+    /**
+     * Latest journaled state of each player that has records after the last checkpoint
+     */
+    public synchronized Map<UUID, DatabaseManager.PlayerData> pendingState() {
+        Map<UUID, DatabaseManager.PlayerData> latest = new HashMap<>();
+        Map<UUID, Long> latestSeq = new HashMap<>();
+
+        for (int slot = 0; slot < capacity; slot++) {
+            int offset = HEADER_SIZE + slot * RECORD_SIZE;
+            long seq = buffer.getLong(offset);
+            if (seq <= checkpointSeq || seq > lastSeq || buffer.getInt(offset + CRC_OFFSET) != checksum(offset)) {
+                continue;
+            }
+
+            UUID uuid = new UUID(buffer.getLong(offset + 8), buffer.getLong(offset + 16));
+            Long known = latestSeq.get(uuid);
+            if (known != null && known > seq) {
+                continue;
+            }
+
+            latestSeq.put(uuid, seq);
+            latest.put(uuid, new DatabaseManager.PlayerData(
+                    uuid,
+                    buffer.getDouble(offset + 24),
+                    buffer.getLong(offset + 32),
+                    buffer.getLong(offset + 40),
+                    buffer.getLong(offset + 48),
+                    buffer.getInt(offset + 56),
+                    buffer.getDouble(offset + 64),
+                    buffer.getInt(offset + 60),
+                    buffer.getLong(offset + 72),
+                    buffer.getLong(offset + 80)
+            ));
+        }
+        return latest;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+        raf.close();
+    }
+
+    private long findLastSeq() {
+        long max = checkpointSeq;
+        for (int slot = 0; slot < capacity; slot++) {
+            int offset = HEADER_SIZE + slot * RECORD_SIZE;
+            long seq = buffer.getLong(offset);
+            if (seq > max && buffer.getInt(offset + CRC_OFFSET) == checksum(offset)) {
+                max = seq;
+            }
+        }
+        return max;
+    }
+
+    private int offsetOf(long seq) {
+        return HEADER_SIZE + (int) (seq % capacity) * RECORD_SIZE;
+    }
+
+    private int checksum(int offset) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(offset, CRC_OFFSET));
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,193 @@
+package com.gencore.economy.database;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Size-bounded cache for players looked up while offline (W-TinyLFU)
+ *
+ * New entries land in a small LRU window. An entry pushed out of the window
+ * only replaces the main cache's LRU victim if a frequency sketch says it is
+ * used more often, so one-off lookups (a /baltop scan, a PlaceholderAPI refresh
+ * of a random player) cannot flush out players that are looked up all the time.
+ * The main cache is a segmented LRU: a second hit promotes an entry from
+ * probation to the protected segment.
+ */
+public class OfflineCache<K, V> {
+
+    private final int maximumSize;
+    private final int windowMax;
+    private final int protectedMax;
+
+    // Access-ordered, eldest first
+    private final LinkedHashMap<K, V> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, V> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, V> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public OfflineCache(int maximumSize) {
+        this.maximumSize = Math.max(1, maximumSize);
+        this.windowMax = Math.max(1, this.maximumSize / 100);
+        this.protectedMax = (int) ((this.maximumSize - windowMax) * 0.8);
+        this.sketch = new FrequencySketch(this.maximumSize);
+    }
+
+    public synchronized V get(K key) {
+        sketch.increment(key);
+
+        V value = window.get(key);
+        if (value == null) {
+            value = protectedSegment.get(key);
+        }
+        if (value == null) {
+            value = probation.remove(key);
+            if (value != null) {
+                promote(key, value);
+            }
+        }
+
+        if (value != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return value;
+    }
+
+    /**
+     * @return The value already cached for the key, or null if the given value was added
+     */
+    public synchronized V putIfAbsent(K key, V value) {
+        V existing = peek(key);
+        if (existing != null) {
+            return existing;
+        }
+
+        sketch.increment(key);
+        window.put(key, value);
+        if (window.size() > windowMax) {
+            Iterator<Map.Entry<K, V>> eldest = window.entrySet().iterator();
+            Map.Entry<K, V> candidate = eldest.next();
+            eldest.remove();
+            admit(candidate.getKey(), candidate.getValue());
+        }
+        return null;
+    }
+
+    public synchronized V remove(K key) {
+        V value = window.remove(key);
+        if (value == null) {
+            value = probation.remove(key);
+        }
+        if (value == null) {
+            value = protectedSegment.remove(key);
+        }
+        return value;
+    }
+
+    /**
+     * Drop every entry; access frequencies are kept
+     */
+    public synchronized void clear() {
+        window.clear();
+        probation.clear();
+        protectedSegment.clear();
+    }
+
+    public synchronized int size() {
+        return window.size() + probation.size() + protectedSegment.size();
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Copy of every cached entry, in no particular order
+     */
+    public synchronized List<Map.Entry<K, V>> entries() {
+        List<Map.Entry<K, V>> entries = new ArrayList<>(size());
+        window.forEach((key, value) -> entries.add(Map.entry(key, value)));
+        probation.forEach((key, value) -> entries.add(Map.entry(key, value)));
+        protectedSegment.forEach((key, value) -> entries.add(Map.entry(key, value)));
+        return entries;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d/%d entries, %d hits, %d misses (%.1f%%), %d evictions",
+                size(), maximumSize, getHits(), getMisses(), getHitRate() * 100, getEvictions());
+    }
+
+    private V peek(K key) {
+        V value = window.get(key);
+        if (value == null) {
+            value = probation.get(key);
+        }
+        if (value == null) {
+            value = protectedSegment.get(key);
+        }
+        return value;
+    }
+
+    private void promote(K key, V value) {
+        protectedSegment.put(key, value);
+        if (protectedSegment.size() > protectedMax) {
+            // Demoted entries get another chance on probation
+            Iterator<Map.Entry<K, V>> eldest = protectedSegment.entrySet().iterator();
+            Map.Entry<K, V> demoted = eldest.next();
+            eldest.remove();
+            probation.put(demoted.getKey(), demoted.getValue());
+        }
+    }
+
+    /**
+     * Move an entry from the window into the main cache if it beats the main cache's victim
+     */
+    private void admit(K key, V value) {
+        if (probation.size() + protectedSegment.size() < maximumSize - windowMax) {
+            probation.put(key, value);
+            return;
+        }
+
+        LinkedHashMap<K, V> victims = probation.isEmpty() ? protectedSegment : probation;
+        if (victims.isEmpty()) {
+            evictions.increment();
+            return;
+        }
+        Iterator<Map.Entry<K, V>> eldest = victims.entrySet().iterator();
+        Map.Entry<K, V> victim = eldest.next();
+
+        if (sketch.frequency(key) > sketch.frequency(victim.getKey())) {
+            eldest.remove();
+            probation.put(key, value);
+        }
+        evictions.increment();
+    }
+}
@@ -0,0 +1,118 @@
+package com.gencore.economy.database;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs tasks for the same player one after another, in submission order
+ *
+ * Players are hashed onto a fixed number of lanes. Each lane chains its tasks
+ * onto the previous one, so two saves of one player can never commit out of
+ * order, while players on different lanes still run in parallel on the
+ * underlying executor. No thread is tied to a lane.
+ */
+public class OrderedLanes {
+
+    private final Executor executor;
+    private final Object[] locks;
+    private final CompletableFuture<?>[] tails;
+    // Tasks that have not started yet, by player
+    private final ConcurrentHashMap<UUID, Queued> queued = new ConcurrentHashMap<>();
+    private final LongAdder coalesced = new LongAdder();
+
+    public OrderedLanes(Executor executor, int lanes) {
+        this.executor = executor;
+        int count = Math.max(1, lanes);
+        this.locks = new Object[count];
+        this.tails = new CompletableFuture<?>[count];
+        for (int i = 0; i < count; i++) {
+            locks[i] = new Object();
+            tails[i] = CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /**
+     * Run the task after every task submitted earlier for the same player
+     * A failed task does not stop the ones queued behind it.
+     */
+    public CompletableFuture<Void> submit(UUID uuid, Runnable task) {
+        int lane = laneOf(uuid);
+        synchronized (locks[lane]) {
+            return chain(lane, task);
+        }
+    }
+
+    /**
+     * Like submit, but returns the queued task instead when one for the same player and owner has not started yet
+     * Only for tasks that read the state they write when they run, such as saves of the owner's current values.
+     */
+    public CompletableFuture<Void> submitCoalesced(UUID uuid, Object owner, Runnable task) {
+        int lane = laneOf(uuid);
+        synchronized (locks[lane]) {
+            Queued existing = queued.get(uuid);
+            if (existing != null && existing.owner == owner) {
+                coalesced.increment();
+                return existing.future;
+            }
+
+            // Registered before chaining, since the task may start before chain returns
+            Queued entry = new Queued(owner);
+            queued.put(uuid, entry);
+            entry.future = chain(lane, () -> {
+                queued.remove(uuid, entry);
+                task.run();
+            });
+            // A rejected task never runs, so it must not keep absorbing later saves
+            entry.future.whenComplete((result, error) -> queued.remove(uuid, entry));
+            return entry.future;
+        }
+    }
+
+    public int getLaneCount() {
+        return locks.length;
+    }
+
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    // Called with the lane's lock held
+    private CompletableFuture<Void> chain(int lane, Runnable task) {
+        CompletableFuture<Void> next = new CompletableFuture<>();
+        // Submitted by hand rather than with thenRunAsync: a rejection thrown into the
+        // thread completing the previous task would leave next, and the lane, never completing
+        tails[lane].whenComplete((result, error) -> {
+            try {
+                executor.execute(() -> {
+                    try {
+                        task.run();
+                        next.complete(null);
+                    } catch (Throwable t) {
+                        next.completeExceptionally(t);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                next.completeExceptionally(e);
+            }
+        });
+        tails[lane] = next;
+        return next;
+    }
+
+    private int laneOf(UUID uuid) {
+        return Math.floorMod(uuid.hashCode() * 0x9E3779B9, locks.length);
+    }
+
+    private static final class Queued {
+        private final Object owner;
+        private CompletableFuture<Void> future;
+
+        private Queued(Object owner) {
+            this.owner = owner;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.gencore.economy.database;
+
+/**
+ * How player rows are written back to the database
+ */
+public enum PersistenceMode {
+
+    /**
+     * Overwrite every column with the cached value
+     */
+    FULL,
+
+    /**
+     * Only write columns that changed, as "column = column + delta"
+     */
+    DELTA;
+
+    public static PersistenceMode fromConfig(String value) {
+        if (value != null && value.equalsIgnoreCase("delta")) {
+            return DELTA;
+        }
+        return FULL;
+    }
+}
@@ -0,0 +1,164 @@
+package com.gencore.economy.database;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.UUID;
+
+/**
+ * Per-column change of one player since the last successful write
+ * Written as "column = column + ?" so saves that finish out of order still add up
+ * to the right balance, and untouched columns are never rewritten. Accrual
+ * timestamps are the exception: they are written as "column = ?" with the new
+ * value, since adding up timestamps means nothing.
+ */
+public final class PlayerDelta {
+
+    static final int MONEY = 1;
+    static final int TOKENS = 1 << 1;
+    static final int SHARDS = 1 << 2;
+    static final int CREDITS = 1 << 3;
+    static final int LEVEL = 1 << 4;
+    static final int EXPERIENCE = 1 << 5;
+    static final int REBIRTHS = 1 << 6;
+    static final int MONEY_ACCRUED_AT = 1 << 7;
+    static final int SHARDS_ACCRUED_AT = 1 << 8;
+
+    private static final String[] COLUMNS = {
+            "money", "tokens", "shards", "credits", "level", "experience", "rebirths",
+            "money_accrued_at", "shards_accrued_at"
+    };
+    // Columns from this index on are set rather than added to
+    private static final int FIRST_ABSOLUTE = 7;
+
+    // One statement per combination of changed columns, built on first use
+    private static final String[] SQL_BY_MASK = new String[1 << COLUMNS.length];
+
+    private final UUID uuid;
+    private final int mask;
+    final double money;
+    final long tokens;
+    final long shards;
+    final long credits;
+    final int level;
+    final double experience;
+    final int rebirths;
+    // New value, or 0 if unchanged
+    final long moneyAccruedAt;
+    final long shardsAccruedAt;
+
+    PlayerDelta(UUID uuid, double money, long tokens, long shards, long credits,
+                int level, double experience, int rebirths, long moneyAccruedAt, long shardsAccruedAt) {
+        this.uuid = uuid;
+        this.money = money;
+        this.tokens = tokens;
+        this.shards = shards;
+        this.credits = credits;
+        this.level = level;
+        this.experience = experience;
+        this.rebirths = rebirths;
+        this.moneyAccruedAt = moneyAccruedAt;
+        this.shardsAccruedAt = shardsAccruedAt;
+
+        int m = 0;
+        if (money != 0) m |= MONEY;
+        if (tokens != 0) m |= TOKENS;
+        if (shards != 0) m |= SHARDS;
+        if (credits != 0) m |= CREDITS;
+        if (level != 0) m |= LEVEL;
+        if (experience != 0) m |= EXPERIENCE;
+        if (rebirths != 0) m |= REBIRTHS;
+        if (moneyAccruedAt != 0) m |= MONEY_ACCRUED_AT;
+        if (shardsAccruedAt != 0) m |= SHARDS_ACCRUED_AT;
+        this.mask = m;
+    }
+
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    /**
+     * Bit set of the columns this delta touches; deltas with the same mask share a statement
+     */
+    public int getMask() {
+        return mask;
+    }
+
+    public boolean isEmpty() {
+        return mask == 0;
+    }
+
+    public String toSql() {
+        return sqlFor(mask);
+    }
+
+    static String sqlFor(int mask) {
+        String sql = SQL_BY_MASK[mask];
+        if (sql == null) {
+            StringBuilder builder = new StringBuilder("UPDATE player_economy SET ");
+            boolean first = true;
+            for (int i = 0; i < COLUMNS.length; i++) {
+                if ((mask & (1 << i)) == 0) {
+                    continue;
+                }
+                if (!first) {
+                    builder.append(", ");
+                }
+                builder.append(COLUMNS[i]).append(" = ");
+                if (i < FIRST_ABSOLUTE) {
+                    builder.append(COLUMNS[i]).append(" + ");
+                }
+                builder.append('?');
+                first = false;
+            }
+            sql = builder.append(" WHERE uuid = ?").toString();
+            SQL_BY_MASK[mask] = sql;
+        }
+        return sql;
+    }
+
+    /**
+     * Delta that takes back the added columns of this one, for storage that has to undo a partly committed write
+     * Accrual timestamps are left alone; the retry writes the same values again.
+     */
+    public PlayerDelta reversed() {
+        return new PlayerDelta(uuid, -money, -tokens, -shards, -credits, -level, -experience, -rebirths, 0, 0);
+    }
+
+    /**
+     * Add this delta to a row held in memory
+     */
+    public void applyTo(DatabaseManager.PlayerData data) {
+        synchronized (data) {
+            data.money += money;
+            data.tokens += tokens;
+            data.shards += shards;
+            data.credits += credits;
+            data.level += level;
+            data.experience += experience;
+            data.rebirths += rebirths;
+            if ((mask & MONEY_ACCRUED_AT) != 0) {
+                data.moneyAccruedAt = moneyAccruedAt;
+            }
+            if ((mask & SHARDS_ACCRUED_AT) != 0) {
+                data.shardsAccruedAt = shardsAccruedAt;
+            }
+        }
+    }
+
+    /**
+     * Bind the changed columns in the same order as {@link #toSql()}
+     */
+    public void bind(PreparedStatement stmt) throws SQLException {
+        int index = 1;
+        if ((mask & MONEY) != 0) stmt.setDouble(index++, money);
+        if ((mask & TOKENS) != 0) stmt.setLong(index++, tokens);
+        if ((mask & SHARDS) != 0) stmt.setLong(index++, shards);
+        if ((mask & CREDITS) != 0) stmt.setLong(index++, credits);
+        if ((mask & LEVEL) != 0) stmt.setInt(index++, level);
+        if ((mask & EXPERIENCE) != 0) stmt.setDouble(index++, experience);
+        if ((mask & REBIRTHS) != 0) stmt.setInt(index++, rebirths);
+        if ((mask & MONEY_ACCRUED_AT) != 0) stmt.setLong(index++, moneyAccruedAt);
+        if ((mask & SHARDS_ACCRUED_AT) != 0) stmt.setLong(index++, shardsAccruedAt);
+        stmt.setBytes(index, UuidCodec.toBytes(uuid));
+    }
+}
@@ -0,0 +1,220 @@
+package com.gencore.economy.database;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, prioritized admission for database tasks
+ *
+ * At most {@code concurrency} tasks run at once (one per connection). When all
+ * are busy, tasks wait in a bounded queue per priority class and the next free
+ * slot always goes to the highest class with work waiting, so a player's
+ * balance lookup never queues behind an autosave. One slot is kept free of
+ * background and bulk work so interactive tasks start even while the other
+ * classes saturate the pool. A full queue rejects new tasks instead of growing.
+ */
+public class QosScheduler {
+
+    public enum Priority {
+        /** Someone is waiting on the result, e.g. a player's balance */
+        INTERACTIVE,
+        /** Saves and flushes */
+        BACKGROUND,
+        /** Scans and mass operations; runs only when nothing else waits */
+        BULK
+    }
+
+    /**
+     * Point-in-time metrics of one priority class
+     */
+    public record Stats(Priority priority, int queued, int running, long submitted, long rejected,
+                        double averageWaitMillis, double maxWaitMillis) {
+        @Override
+        public String toString() {
+            return String.format("%s: %d queued, %d running, %d submitted, %d rejected, wait avg %.2fms max %.2fms",
+                    priority.name().toLowerCase(), queued, running, submitted, rejected, averageWaitMillis, maxWaitMillis);
+        }
+    }
+
+    private final int concurrency;
+    private final int reserved;
+    private final Map<Priority, PriorityClass> classes = new EnumMap<>(Priority.class);
+    private int running;
+
+    /**
+     * @param runners Starts tasks of each class; must not queue them itself
+     * @param maxRunning Most tasks of each class running at once, capped by concurrency
+     * @param capacities Most tasks of each class waiting at once
+     */
+    public QosScheduler(int concurrency, Map<Priority, Executor> runners,
+                        Map<Priority, Integer> maxRunning, Map<Priority, Integer> capacities) {
+        this.concurrency = Math.max(1, concurrency);
+        this.reserved = this.concurrency > 1 ? 1 : 0;
+        for (Priority priority : Priority.values()) {
+            classes.put(priority, new PriorityClass(
+                    priority,
+                    runners.get(priority),
+                    Math.max(1, Math.min(maxRunning.getOrDefault(priority, this.concurrency), this.concurrency)),
+                    Math.max(0, capacities.getOrDefault(priority, Integer.MAX_VALUE))
+            ));
+        }
+    }
+
+    /**
+     * Start the task now or queue it behind higher-priority work
+     * @throws RejectedExecutionException if the class's queue is full
+     */
+    public void execute(Priority priority, Runnable task) {
+        PriorityClass target = classes.get(priority);
+        Waiting waiting = new Waiting(task, System.nanoTime());
+
+        synchronized (this) {
+            target.submitted.increment();
+            if (target.queue.isEmpty() && !higherWaiting(priority) && canStart(target)) {
+                start(target, waiting);
+                return;
+            }
+            if (target.queue.size() >= target.capacity) {
+                target.rejected.increment();
+                throw new RejectedExecutionException("Database " + priority.name().toLowerCase()
+                        + " queue is full (" + target.capacity + " tasks waiting)");
+            }
+            target.queue.add(waiting);
+        }
+    }
+
+    /**
+     * Executor view for one class, e.g. for CompletableFuture.supplyAsync
+     */
+    public Executor executor(Priority priority) {
+        return task -> execute(priority, task);
+    }
+
+    public synchronized List<Stats> getStats() {
+        List<Stats> stats = new ArrayList<>(classes.size());
+        for (PriorityClass priorityClass : classes.values()) {
+            long started = priorityClass.started.sum();
+            stats.add(new Stats(
+                    priorityClass.priority,
+                    priorityClass.queue.size(),
+                    priorityClass.running,
+                    priorityClass.submitted.sum(),
+                    priorityClass.rejected.sum(),
+                    started == 0 ? 0.0 : priorityClass.waitNanos.sum() / 1_000_000.0 / started,
+                    priorityClass.maxWaitNanos.get() / 1_000_000.0
+            ));
+        }
+        return stats;
+    }
+
+    public synchronized int getQueueDepth() {
+        int depth = 0;
+        for (PriorityClass priorityClass : classes.values()) {
+            depth += priorityClass.queue.size();
+        }
+        return depth;
+    }
+
+    /**
+     * Whether work of a higher class than this one is waiting for a slot
+     * Long bulk jobs check this between pages to step aside for players.
+     */
+    public synchronized boolean isHigherWaiting(Priority priority) {
+        return higherWaiting(priority);
+    }
+
+    private boolean higherWaiting(Priority priority) {
+        for (PriorityClass priorityClass : classes.values()) {
+            if (priorityClass.priority.ordinal() >= priority.ordinal()) {
+                return false;
+            }
+            if (!priorityClass.queue.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean canStart(PriorityClass priorityClass) {
+        int limit = priorityClass.priority == Priority.INTERACTIVE ? concurrency : concurrency - reserved;
+        return running < limit && priorityClass.running < priorityClass.maxRunning;
+    }
+
+    // Called with the lock held
+    private void start(PriorityClass priorityClass, Waiting waiting) {
+        running++;
+        priorityClass.running++;
+
+        long waited = System.nanoTime() - waiting.enqueuedAt;
+        priorityClass.started.increment();
+        priorityClass.waitNanos.add(waited);
+        priorityClass.maxWaitNanos.accumulateAndGet(waited, Math::max);
+
+        try {
+            priorityClass.runner.execute(() -> {
+                try {
+                    waiting.task.run();
+                } finally {
+                    finished(priorityClass);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Runner shut down
+            running--;
+            priorityClass.running--;
+            throw e;
+        }
+    }
+
+    private synchronized void finished(PriorityClass priorityClass) {
+        running--;
+        priorityClass.running--;
+
+        // Fill every free slot, highest class first
+        for (PriorityClass next : classes.values()) {
+            while (!next.queue.isEmpty() && canStart(next)) {
+                try {
+                    start(next, next.queue.poll());
+                } catch (RejectedExecutionException e) {
+                    return;
+                }
+            }
+            if (!next.queue.isEmpty() && next.running < next.maxRunning) {
+                // Waiting on a global slot; lower classes must not take it
+                return;
+            }
+        }
+    }
+
+    private record Waiting(Runnable task, long enqueuedAt) {
+    }
+
+    private static final class PriorityClass {
+        private final Priority priority;
+        private final Executor runner;
+        private final int maxRunning;
+        private final int capacity;
+        private final ArrayDeque<Waiting> queue = new ArrayDeque<>();
+        private int running;
+
+        private final LongAdder submitted = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder started = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+
+        private PriorityClass(Priority priority, Executor runner, int maxRunning, int capacity) {
+            this.priority = priority;
+            this.runner = runner;
+            this.maxRunning = maxRunning;
+            this.capacity = capacity;
+        }
+    }
+}
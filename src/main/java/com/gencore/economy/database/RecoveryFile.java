@@ -0,0 +1,105 @@
+package com.gencore.economy.database;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Full rows that could not be written before shutdown, replayed on the next start
+ *
+ * Layout: magic(4) count(4), then per row uuidMost(8) uuidLeast(8) money(8)
+ * tokens(8) shards(8) credits(8) level(4) rebirths(4) experience(8)
+ * moneyAccruedAt(8) shardsAccruedAt(8), then a CRC32 of everything before it.
+ * The file is written next to its final name and moved into place, so a crash
+ * while spilling leaves the old file intact.
+ */
+public final class RecoveryFile {
+
+    private static final int MAGIC = 0x47435231; // "GCR1"
+
+    private RecoveryFile() {
+    }
+
+    public static void write(File file, List<Map.Entry<UUID, DatabaseManager.PlayerData>> rows) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Could not create " + parent);
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(temp)) {
+            CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(fileOut), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+
+            out.writeInt(MAGIC);
+            out.writeInt(rows.size());
+            for (Map.Entry<UUID, DatabaseManager.PlayerData> entry : rows) {
+                DatabaseManager.PlayerData data = entry.getValue();
+                out.writeLong(entry.getKey().getMostSignificantBits());
+                out.writeLong(entry.getKey().getLeastSignificantBits());
+                out.writeDouble(data.money);
+                out.writeLong(data.tokens);
+                out.writeLong(data.shards);
+                out.writeLong(data.credits);
+                out.writeInt(data.level);
+                out.writeInt(data.rebirths);
+                out.writeDouble(data.experience);
+                out.writeLong(data.moneyAccruedAt);
+                out.writeLong(data.shardsAccruedAt);
+            }
+            out.writeLong(checked.getChecksum().getValue());
+            out.flush();
+            fileOut.getFD().sync();
+        }
+
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static List<Map.Entry<UUID, DatabaseManager.PlayerData>> read(File file) throws IOException {
+        try (FileInputStream fileIn = new FileInputStream(file)) {
+            CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(fileIn), new CRC32());
+            DataInputStream in = new DataInputStream(checked);
+
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a GenCore recovery file: " + file);
+            }
+
+            int count = in.readInt();
+            List<Map.Entry<UUID, DatabaseManager.PlayerData>> rows = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                UUID uuid = new UUID(in.readLong(), in.readLong());
+                double money = in.readDouble();
+                long tokens = in.readLong();
+                long shards = in.readLong();
+                long credits = in.readLong();
+                int level = in.readInt();
+                int rebirths = in.readInt();
+                double experience = in.readDouble();
+                long moneyAccruedAt = in.readLong();
+                long shardsAccruedAt = in.readLong();
+                rows.add(Map.entry(uuid, new DatabaseManager.PlayerData(uuid, money, tokens, shards, credits,
+                        level, experience, rebirths, moneyAccruedAt, shardsAccruedAt)));
+            }
+
+            long expected = checked.getChecksum().getValue();
+            if (in.readLong() != expected) {
+                throw new IOException("Recovery file is corrupt (checksum mismatch): " + file);
+            }
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.gencore.economy.database;
+
+import com.gencore.economy.GenCoreEconomy;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks which players hold a session, i.e. keep their data in the unbounded player cache
+ *
+ * A session starts at pre-login and ends a grace period after quit, so a quick
+ * reconnect keeps the cached data. The data is saved as soon as the player quits;
+ * the grace period only delays moving it to the bounded offline cache. Logins that never reach PlayerJoinEvent (denied
+ * by another plugin, timed out) end on their own after a minute.
+ */
+public class SessionManager {
+
+    private static final long LOGIN_TIMEOUT_MILLIS = 60000;
+
+    private enum State { LOGIN, ONLINE, QUIT }
+
+    private record Session(State state, long since) {
+    }
+
+    private final GenCoreEconomy plugin;
+    private final DatabaseManager databaseManager;
+    private final long quitGraceMillis;
+    private final ConcurrentHashMap<UUID, Session> sessions = new ConcurrentHashMap<>();
+    private BukkitTask sweepTask;
+
+    public SessionManager(GenCoreEconomy plugin, DatabaseManager databaseManager, long quitGraceMillis) {
+        this.plugin = plugin;
+        this.databaseManager = databaseManager;
+        this.quitGraceMillis = Math.max(0, quitGraceMillis);
+    }
+
+    public void start() {
+        sweepTask = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::sweep, 20L, 20L);
+    }
+
+    public void stop() {
+        if (sweepTask != null) {
+            sweepTask.cancel();
+        }
+    }
+
+    /**
+     * A session is active from pre-login until the quit grace period runs out
+     */
+    public boolean isActive(UUID uuid) {
+        return sessions.containsKey(uuid);
+    }
+
+    public int getActiveCount() {
+        return sessions.size();
+    }
+
+    public void beginLogin(UUID uuid) {
+        // A reconnect inside the grace period revives the session as well
+        sessions.compute(uuid, (key, existing) -> existing != null && existing.state() == State.ONLINE
+                ? existing
+                : new Session(State.LOGIN, System.currentTimeMillis()));
+    }
+
+    public void joined(UUID uuid) {
+        sessions.put(uuid, new Session(State.ONLINE, System.currentTimeMillis()));
+    }
+
+    public void quit(UUID uuid) {
+        sessions.computeIfPresent(uuid, (key, existing) -> new Session(State.QUIT, System.currentTimeMillis()));
+        databaseManager.saveOnQuit(uuid);
+    }
+
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<UUID, Session> entry : sessions.entrySet()) {
+            Session session = entry.getValue();
+            long age = now - session.since();
+            boolean expired = (session.state() == State.QUIT && age >= quitGraceMillis)
+                    || (session.state() == State.LOGIN && age >= LOGIN_TIMEOUT_MILLIS);
+
+            // Only if nothing changed since the read, so a reconnect wins
+            if (expired && sessions.remove(entry.getKey(), session)) {
+                databaseManager.endSession(entry.getKey());
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.gencore.economy.database;
+
+/**
+ * Thrown by synchronous economy calls made before storage has finished starting
+ * Wait on {@link DatabaseManager#whenReady()} instead of calling in too early.
+ */
+public class StorageNotReadyException extends IllegalStateException {
+
+    public StorageNotReadyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,53 @@
+package com.gencore.economy.database;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Converts UUIDs to and from the 16-byte form used as the player_economy key
+ */
+public final class UuidCodec {
+
+    private UuidCodec() {
+    }
+
+    public static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    public static UUID fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length != 16) {
+            throw new IllegalArgumentException("UUID key must be 16 bytes");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    /**
+     * Order of the 16-byte keys as the databases sort them (unsigned, byte by byte)
+     */
+    public static int compare(UUID a, UUID b) {
+        int most = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return most != 0 ? most : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    }
+
+    /**
+     * Keys after the given one (all keys if null), in {@link #compare} order
+     */
+    public static List<UUID> sortedAfter(Collection<UUID> keys, UUID after) {
+        List<UUID> sorted = new ArrayList<>(keys.size());
+        for (UUID key : keys) {
+            if (after == null || compare(key, after) > 0) {
+                sorted.add(key);
+            }
+        }
+        sorted.sort(UuidCodec::compare);
+        return sorted;
+    }
+}
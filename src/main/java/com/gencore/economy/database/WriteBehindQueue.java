@@ -0,0 +1,233 @@
+package com.gencore.economy.database;
+
+import com.gencore.economy.GenCoreEconomy;
+import com.gencore.economy.database.storage.StorageException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+/**
+ * Write-behind layer for player data
+ * Mutations only mark a player dirty; a single flusher thread writes all dirty
+ * players together as JDBC batches, so repeated changes to one player between
+ * flushes collapse into a single UPDATE.
+ */
+public class WriteBehindQueue {
+
+    private final GenCoreEconomy plugin;
+    private final AccountStore store;
+    private final int batchSize;
+    private final long maxLatencyMillis;
+
+    private final ConcurrentHashMap<UUID, DirtyEntry> dirty = new ConcurrentHashMap<>();
+    // Drained by the running flush but not yet committed
+    private final ConcurrentHashMap<UUID, DirtyEntry> flushing = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private volatile MutationJournal journal;
+
+    // Completed once the flush that picks up currently dirty entries has committed
+    private volatile CompletableFuture<Void> nextFlush = new CompletableFuture<>();
+
+    public WriteBehindQueue(GenCoreEconomy plugin, AccountStore store,
+                            long flushIntervalMillis, int batchSize, long maxLatencyMillis) {
+        this.plugin = plugin;
+        this.store = store;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxLatencyMillis = Math.max(0, maxLatencyMillis);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "GenCore-WriteBehind-Thread");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long interval = Math.max(1, flushIntervalMillis);
+        flusher.scheduleWithFixedDelay(this::tick, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Mark a player as dirty so the next flush writes it
+     * @return CompletableFuture that completes once the change has been committed, or
+     * exceptionally if that flush failed; the change stays queued for the next one
+     */
+    public CompletableFuture<Void> markDirty(UUID uuid, DatabaseManager.PlayerData data) {
+        dirty.compute(uuid, (key, existing) -> existing != null && existing.data == data
+                ? existing
+                : new DirtyEntry(data, System.currentTimeMillis()));
+
+        CompletableFuture<Void> future = nextFlush;
+        if (dirty.size() >= batchSize && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(this::flush);
+        }
+        return future;
+    }
+
+    /**
+     * Checkpoint the journal after every successful flush and sync it to disk periodically
+     * @param syncIntervalMillis How often to force the mapped file to disk, 0 to leave it to the OS
+     */
+    public void attachJournal(MutationJournal journal, long syncIntervalMillis) {
+        this.journal = journal;
+        if (syncIntervalMillis > 0) {
+            flusher.scheduleWithFixedDelay(journal::sync, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Data of a player with changes that are not in the database yet, or null
+     */
+    public DatabaseManager.PlayerData getPending(UUID uuid) {
+        DirtyEntry entry = dirty.get(uuid);
+        if (entry == null) {
+            entry = flushing.get(uuid);
+        }
+        return entry != null ? entry.data : null;
+    }
+
+    /**
+     * Every player with changes that are not in the database yet
+     */
+    public void forEachPending(BiConsumer<UUID, DatabaseManager.PlayerData> action) {
+        flushing.forEach((uuid, entry) -> action.accept(uuid, entry.data));
+        dirty.forEach((uuid, entry) -> action.accept(uuid, entry.data));
+    }
+
+    public int getPendingCount() {
+        return dirty.size();
+    }
+
+    /**
+     * Flush everything that is dirty right now on the flusher thread
+     * @return CompletableFuture that completes like {@link #markDirty} for everything dirty now
+     */
+    public CompletableFuture<Void> flushAsync() {
+        CompletableFuture<Void> future = nextFlush;
+        try {
+            flusher.execute(this::flush);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return future;
+    }
+
+    /**
+     * Stop the flusher without writing what is still dirty
+     * @param timeoutMillis How long to wait for a flush that is already running
+     * @return Players whose changes may not be in the database yet
+     */
+    public List<Map.Entry<UUID, DatabaseManager.PlayerData>> stop(long timeoutMillis) {
+        flusher.shutdown();
+        try {
+            if (!flusher.awaitTermination(Math.max(0, timeoutMillis), TimeUnit.MILLISECONDS)) {
+                plugin.getLogger().warning("Write-behind flusher did not stop in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<Map.Entry<UUID, DatabaseManager.PlayerData>> pending = new ArrayList<>(dirty.size() + flushing.size());
+        flushing.forEach((uuid, entry) -> pending.add(Map.entry(uuid, entry.data)));
+        dirty.forEach((uuid, entry) -> pending.add(Map.entry(uuid, entry.data)));
+        return pending;
+    }
+
+    private void tick() {
+        if (dirty.isEmpty()) {
+            // Nothing left to write, so every journaled mutation is in the database
+            if (journal != null && journal.getPendingCount() > 0) {
+                flush();
+            }
+            return;
+        }
+
+        if (dirty.size() >= batchSize || oldestAge() >= maxLatencyMillis) {
+            flush();
+        }
+    }
+
+    private long oldestAge() {
+        long now = System.currentTimeMillis();
+        long oldest = now;
+        for (DirtyEntry entry : dirty.values()) {
+            oldest = Math.min(oldest, entry.dirtySince);
+        }
+        return now - oldest;
+    }
+
+    private void flush() {
+        flushRequested.set(false);
+
+        // Mutations mark the player dirty before journaling, so everything up to here is in this drain
+        long journalSeq = journal != null ? journal.getLastSeq() : 0;
+
+        CompletableFuture<Void> completing = nextFlush;
+        nextFlush = new CompletableFuture<>();
+
+        List<Map.Entry<UUID, DirtyEntry>> drained = new ArrayList<>(dirty.size());
+        for (Map.Entry<UUID, DirtyEntry> entry : dirty.entrySet()) {
+            // In flushing before it leaves dirty, so getPending never misses it
+            flushing.put(entry.getKey(), entry.getValue());
+            if (dirty.remove(entry.getKey(), entry.getValue())) {
+                drained.add(Map.entry(entry.getKey(), entry.getValue()));
+            } else {
+                flushing.remove(entry.getKey(), entry.getValue());
+            }
+        }
+
+        boolean written = drained.isEmpty() || write(drained);
+        if (written) {
+            if (journal != null) {
+                journal.checkpoint(journalSeq);
+            }
+            completing.complete(null);
+        } else {
+            // Put them back unless a newer change already did
+            for (Map.Entry<UUID, DirtyEntry> entry : drained) {
+                dirty.putIfAbsent(entry.getKey(), entry.getValue());
+            }
+            // The cause is already logged; the players stay queued for the next flush
+            completing.completeExceptionally(new IllegalStateException(
+                    "Failed to flush " + drained.size() + " dirty players"));
+        }
+
+        for (Map.Entry<UUID, DirtyEntry> entry : drained) {
+            flushing.remove(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private boolean write(List<Map.Entry<UUID, DirtyEntry>> drained) {
+        List<Map.Entry<UUID, DatabaseManager.PlayerData>> rows = new ArrayList<>(drained.size());
+        for (Map.Entry<UUID, DirtyEntry> entry : drained) {
+            rows.add(Map.entry(entry.getKey(), entry.getValue().data));
+        }
+
+        try {
+            // In delta mode the whole flush commits or none of it does
+            store.write(rows);
+            return true;
+        } catch (StorageException e) {
+            plugin.getLogger().severe("Failed to flush " + rows.size() + " dirty players: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static final class DirtyEntry {
+        private final DatabaseManager.PlayerData data;
+        private final long dirtySince;
+
+        private DirtyEntry(DatabaseManager.PlayerData data, long dirtySince) {
+            this.data = data;
+            this.dirtySince = dirtySince;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.gencore.economy.database.backup;
+
+import com.gencore.economy.database.DatabaseManager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * One backup: every account (full) or the accounts changed since the previous backup (incremental)
+ *
+ * Gzip-compressed stream of magic(4) version(4) type(1) sequence(8) base(8)
+ * createdAt(8), then records, each a tag byte: 1 for a row, uuidMost(8)
+ * uuidLeast(8) money(8) tokens(8) shards(8) credits(8) level(4) rebirths(4)
+ * experience(8) moneyAccruedAt(8) shardsAccruedAt(8); 2 for a deleted account,
+ * uuidMost(8) uuidLeast(8); 0 ends the records and is followed by the record
+ * count(8) and a CRC32(8) of everything before it. Rows are streamed in and out,
+ * so neither side holds a backup in memory. The file is written next to its
+ * final name and moved into place.
+ */
+public final class BackupFile {
+
+    public enum Type {
+        FULL, INCREMENTAL
+    }
+
+    /**
+     * @param base Sequence of the full backup this one builds on (its own for a full backup)
+     */
+    public record Header(Type type, long sequence, long base, long createdAt) {
+    }
+
+    /**
+     * Receives the records of a backup in file order
+     */
+    public interface Visitor {
+        void row(UUID uuid, DatabaseManager.PlayerData data) throws IOException;
+
+        void deleted(UUID uuid) throws IOException;
+    }
+
+    private static final int MAGIC = 0x47434231; // "GCB1"
+    private static final int VERSION = 1;
+    private static final int TAG_END = 0;
+    private static final int TAG_ROW = 1;
+    private static final int TAG_DELETED = 2;
+
+    private BackupFile() {
+    }
+
+    /**
+     * Streams records into a new backup file
+     */
+    public static final class Writer implements Closeable {
+        private final File file;
+        private final File temp;
+        private final FileOutputStream fileOut;
+        private final GZIPOutputStream gzip;
+        private final CheckedOutputStream checked;
+        private final DataOutputStream out;
+        private long records;
+        private boolean finished;
+
+        public Writer(File file, Header header) throws IOException {
+            this.file = file;
+            this.temp = new File(file.getPath() + ".tmp");
+            File parent = file.getAbsoluteFile().getParentFile();
+            if (parent != null && !parent.exists() && !parent.mkdirs()) {
+                throw new IOException("Could not create " + parent);
+            }
+
+            this.fileOut = new FileOutputStream(temp);
+            this.gzip = new GZIPOutputStream(fileOut, 65536);
+            this.checked = new CheckedOutputStream(new BufferedOutputStream(gzip, 65536), new CRC32());
+            this.out = new DataOutputStream(checked);
+
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeByte(header.type().ordinal());
+            out.writeLong(header.sequence());
+            out.writeLong(header.base());
+            out.writeLong(header.createdAt());
+        }
+
+        public void row(UUID uuid, DatabaseManager.PlayerData data) throws IOException {
+            out.writeByte(TAG_ROW);
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+            out.writeDouble(data.money);
+            out.writeLong(data.tokens);
+            out.writeLong(data.shards);
+            out.writeLong(data.credits);
+            out.writeInt(data.level);
+            out.writeInt(data.rebirths);
+            out.writeDouble(data.experience);
+            out.writeLong(data.moneyAccruedAt);
+            out.writeLong(data.shardsAccruedAt);
+            records++;
+        }
+
+        public void deleted(UUID uuid) throws IOException {
+            out.writeByte(TAG_DELETED);
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+            records++;
+        }
+
+        public long getRecords() {
+            return records;
+        }
+
+        /**
+         * Seal the file and move it into place
+         */
+        public void finish() throws IOException {
+            out.writeByte(TAG_END);
+            out.writeLong(records);
+            out.writeLong(checked.getChecksum().getValue());
+            out.flush();
+            gzip.finish();
+            fileOut.getFD().sync();
+            out.close();
+            finished = true;
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        /**
+         * Without finish, discards the partial file
+         */
+        @Override
+        public void close() throws IOException {
+            if (!finished) {
+                try {
+                    out.close();
+                } finally {
+                    fileOut.close();
+                    Files.deleteIfExists(temp.toPath());
+                }
+            }
+        }
+    }
+
+    public static Header readHeader(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new GZIPInputStream(new BufferedInputStream(new FileInputStream(file)), 8192))) {
+            return readHeader(in, file);
+        }
+    }
+
+    /**
+     * Stream every record to the visitor, then check the trailer
+     * @throws IOException if the file is truncated or corrupt; records before the damage have already been visited
+     */
+    public static Header read(File file, Visitor visitor) throws IOException {
+        try (FileInputStream fileIn = new FileInputStream(file)) {
+            CheckedInputStream checked = new CheckedInputStream(
+                    new BufferedInputStream(new GZIPInputStream(fileIn, 65536), 65536), new CRC32());
+            DataInputStream in = new DataInputStream(checked);
+
+            Header header = readHeader(in, file);
+            long records = 0;
+            try {
+                while (true) {
+                    int tag = in.readUnsignedByte();
+                    if (tag == TAG_END) {
+                        break;
+                    }
+
+                    UUID uuid = new UUID(in.readLong(), in.readLong());
+                    if (tag == TAG_ROW) {
+                        double money = in.readDouble();
+                        long tokens = in.readLong();
+                        long shards = in.readLong();
+                        long credits = in.readLong();
+                        int level = in.readInt();
+                        int rebirths = in.readInt();
+                        double experience = in.readDouble();
+                        long moneyAccruedAt = in.readLong();
+                        long shardsAccruedAt = in.readLong();
+                        visitor.row(uuid, new DatabaseManager.PlayerData(uuid, money, tokens, shards, credits,
+                                level, experience, rebirths, moneyAccruedAt, shardsAccruedAt));
+                    } else if (tag == TAG_DELETED) {
+                        visitor.deleted(uuid);
+                    } else {
+                        throw new IOException("Corrupt backup " + file.getName() + ": unknown record type " + tag);
+                    }
+                    records++;
+                }
+
+                long expectedRecords = in.readLong();
+                long expectedChecksum = checked.getChecksum().getValue();
+                if (expectedRecords != records || in.readLong() != expectedChecksum) {
+                    throw new IOException("Backup " + file.getName() + " is corrupt (checksum mismatch)");
+                }
+            } catch (EOFException e) {
+                throw new IOException("Backup " + file.getName() + " is truncated", e);
+            }
+            return header;
+        }
+    }
+
+    private static Header readHeader(DataInputStream in, File file) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a GenCore backup: " + file.getName());
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported backup version " + version + ": " + file.getName());
+        }
+        int type = in.readUnsignedByte();
+        if (type >= Type.values().length) {
+            throw new IOException("Corrupt backup " + file.getName() + ": unknown type " + type);
+        }
+        return new Header(Type.values()[type], in.readLong(), in.readLong(), in.readLong());
+    }
+}
@@ -0,0 +1,387 @@
+package com.gencore.economy.database.backup;
+
+import com.gencore.economy.database.DatabaseManager;
+import com.gencore.economy.database.UuidCodec;
+import com.gencore.economy.database.storage.StorageBackend;
+import com.gencore.economy.database.storage.StorageException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Full and incremental backups of player_economy in a folder
+ *
+ * A full backup streams every account. An incremental one holds only the
+ * accounts written since the previous backup, as recorded by the
+ * {@link ChangeTracker}, so its cost follows churn rather than the number of
+ * accounts. A full backup and the incrementals after it form a chain; any
+ * backup in it can be restored by replaying the chain up to that point. Older
+ * chains are deleted once more than keepFull full backups exist.
+ *
+ * The tracker lives in memory, so after a crash the changes since the last
+ * backup are unknown and the next backup is a full one. A clean shutdown takes
+ * a last incremental and records that in state.properties.
+ */
+public class BackupManager {
+
+    /**
+     * A backup file on disk
+     */
+    public record Backup(File file, BackupFile.Header header) {
+        public long getSequence() {
+            return header.sequence();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("#%d %s %tF %<tT (%d KiB)", header.sequence(),
+                    header.type() == BackupFile.Type.FULL ? "full" : "incremental",
+                    header.createdAt(), file.length() / 1024);
+        }
+    }
+
+    private static final Pattern FILE_NAME = Pattern.compile("(\\d+)-(full|incr)\\.gcb");
+    private static final String STATE_FILE = "state.properties";
+
+    private final File folder;
+    private final StorageBackend backend;
+    private final ChangeTracker tracker;
+    private final int keepFull;
+    private final int pageSize;
+    private final java.util.logging.Logger logger;
+
+    private long nextSequence = 1;
+    private Backup lastFull;
+    private boolean needFull;
+
+    /**
+     * @param backend Storage to back up; writes to it must be recorded in the tracker
+     * @param keepFull Full backups (with their incrementals) to keep
+     */
+    public BackupManager(File folder, StorageBackend backend, ChangeTracker tracker, int keepFull, int pageSize,
+                         java.util.logging.Logger logger) {
+        this.folder = folder;
+        this.backend = backend;
+        this.tracker = tracker;
+        this.keepFull = Math.max(1, keepFull);
+        this.pageSize = Math.max(1, pageSize);
+        this.logger = logger;
+    }
+
+    /**
+     * Find existing backups and decide whether the chain can be continued
+     */
+    public synchronized void start() throws IOException {
+        if (!folder.exists() && !folder.mkdirs()) {
+            throw new IOException("Could not create " + folder);
+        }
+
+        List<Backup> backups = list();
+        for (Backup backup : backups) {
+            nextSequence = Math.max(nextSequence, backup.getSequence() + 1);
+            if (backup.header().type() == BackupFile.Type.FULL) {
+                lastFull = backup;
+            }
+        }
+
+        // Only a clean shutdown guarantees every change up to now is in a backup
+        Properties state = readState();
+        needFull = lastFull == null || !Boolean.parseBoolean(state.getProperty("clean", "false"));
+        state.setProperty("clean", "false");
+        writeState(state);
+    }
+
+    /**
+     * Full backup if one is due (or the chain cannot be continued), otherwise incremental
+     * @return The new backup, or null if nothing changed since the last one
+     */
+    public synchronized Backup runScheduled(long fullIntervalMillis) throws StorageException {
+        boolean due = lastFull == null
+                || System.currentTimeMillis() - lastFull.header().createdAt() >= fullIntervalMillis;
+        return due || needFull ? runFull() : runIncremental();
+    }
+
+    public synchronized Backup runFull() throws StorageException {
+        // Changes from here on belong to the next incremental, even if the scan also sees them
+        boolean everything = tracker.takeEverything();
+        Set<UUID> drained = tracker.drain();
+        long sequence = nextSequence;
+        File file = new File(folder, String.format("%08d-full.gcb", sequence));
+        BackupFile.Header header = new BackupFile.Header(BackupFile.Type.FULL, sequence, sequence, System.currentTimeMillis());
+        long start = System.nanoTime();
+
+        try (BackupFile.Writer writer = new BackupFile.Writer(file, header)) {
+            try {
+                backend.scan(pageSize, page -> {
+                    try {
+                        for (Map.Entry<UUID, DatabaseManager.PlayerData> entry : page) {
+                            writer.row(entry.getKey(), entry.getValue());
+                        }
+                    } catch (IOException e) {
+                        // Stops the scan
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writer.finish();
+            logger.info("Full backup #" + sequence + ": " + writer.getRecords() + " accounts in "
+                    + (System.nanoTime() - start) / 1_000_000 + "ms");
+        } catch (IOException | StorageException e) {
+            tracker.recordAll(drained);
+            if (everything) {
+                needFull = true;
+            }
+            throw e instanceof StorageException storage ? storage
+                    : new StorageException("Failed to write backup " + file.getName() + ": " + e.getMessage(), e);
+        }
+
+        nextSequence++;
+        lastFull = new Backup(file, header);
+        needFull = false;
+        rotate();
+        return lastFull;
+    }
+
+    /**
+     * @return The new backup, or null if nothing changed since the last one
+     */
+    public synchronized Backup runIncremental() throws StorageException {
+        if (tracker.takeEverything()) {
+            needFull = true;
+        }
+        if (lastFull == null || needFull) {
+            return runFull();
+        }
+
+        Set<UUID> drained = tracker.drain();
+        if (drained.isEmpty()) {
+            return null;
+        }
+
+        long sequence = nextSequence;
+        File file = new File(folder, String.format("%08d-incr.gcb", sequence));
+        BackupFile.Header header = new BackupFile.Header(BackupFile.Type.INCREMENTAL, sequence,
+                lastFull.getSequence(), System.currentTimeMillis());
+        long start = System.nanoTime();
+
+        List<UUID> keys = UuidCodec.sortedAfter(drained, null);
+        int deleted = 0;
+        try (BackupFile.Writer writer = new BackupFile.Writer(file, header)) {
+            for (int from = 0; from < keys.size(); from += pageSize) {
+                List<UUID> chunk = keys.subList(from, Math.min(from + pageSize, keys.size()));
+                Map<UUID, DatabaseManager.PlayerData> rows = backend.loadAll(chunk);
+                for (UUID uuid : chunk) {
+                    DatabaseManager.PlayerData row = rows.get(uuid);
+                    if (row != null) {
+                        writer.row(uuid, row);
+                    } else {
+                        writer.deleted(uuid);
+                        deleted++;
+                    }
+                }
+            }
+            writer.finish();
+        } catch (IOException | StorageException e) {
+            tracker.recordAll(drained);
+            throw e instanceof StorageException storage ? storage
+                    : new StorageException("Failed to write backup " + file.getName() + ": " + e.getMessage(), e);
+        }
+
+        nextSequence++;
+        logger.info("Incremental backup #" + sequence + ": " + (keys.size() - deleted) + " changed, " + deleted
+                + " deleted accounts in " + (System.nanoTime() - start) / 1_000_000 + "ms");
+        return new Backup(file, header);
+    }
+
+    /**
+     * Put the last changes in an incremental backup so the next start continues the chain
+     * Call at shutdown once nothing else writes. When the chain is already broken
+     * this does nothing rather than delay shutdown with a full backup; the next
+     * start takes that one.
+     */
+    public synchronized void close() throws StorageException {
+        if (lastFull == null || needFull || tracker.takeEverything()) {
+            // Left unclean, so the next start takes a full backup
+            return;
+        }
+        runIncremental();
+        try {
+            Properties state = readState();
+            state.setProperty("clean", "true");
+            writeState(state);
+        } catch (IOException e) {
+            logger.warning("Failed to write backup state: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Backups in the folder, oldest first
+     */
+    public List<Backup> list() {
+        return list(folder, logger);
+    }
+
+    public static List<Backup> list(File folder, java.util.logging.Logger logger) {
+        List<Backup> backups = new ArrayList<>();
+        File[] files = folder.listFiles();
+        if (files == null) {
+            return backups;
+        }
+
+        for (File file : files) {
+            Matcher matcher = FILE_NAME.matcher(file.getName());
+            if (!matcher.matches()) {
+                continue;
+            }
+            try {
+                backups.add(new Backup(file, BackupFile.readHeader(file)));
+            } catch (IOException e) {
+                logger.warning("Skipping unreadable backup " + file.getName() + ": " + e.getMessage());
+            }
+        }
+        backups.sort(Comparator.comparingLong(Backup::getSequence));
+        return backups;
+    }
+
+    /**
+     * Write the state as of the given backup into target by replaying its chain
+     * Every file in the chain is checked before anything is written. The target
+     * should be empty: accounts it has that the backup does not are left alone.
+     * @return Accounts written
+     */
+    public static long restore(File folder, long sequence, StorageBackend target, int pageSize,
+                               java.util.logging.Logger logger) throws StorageException {
+        List<Backup> backups = list(folder, logger);
+        Backup point = backups.stream()
+                .filter(backup -> backup.getSequence() == sequence)
+                .findFirst()
+                .orElseThrow(() -> new StorageException("No backup #" + sequence + " in " + folder));
+
+        long base = point.header().base();
+        List<Backup> chain = backups.stream()
+                .filter(backup -> backup.header().base() == base && backup.getSequence() <= sequence)
+                .toList();
+        if (chain.isEmpty() || chain.get(0).header().type() != BackupFile.Type.FULL) {
+            throw new StorageException("Full backup #" + base + " for backup #" + sequence + " is missing");
+        }
+
+        try {
+            for (Backup backup : chain) {
+                BackupFile.read(backup.file(), new BackupFile.Visitor() {
+                    @Override
+                    public void row(UUID uuid, DatabaseManager.PlayerData data) {
+                    }
+
+                    @Override
+                    public void deleted(UUID uuid) {
+                    }
+                });
+            }
+        } catch (IOException e) {
+            throw new StorageException("Cannot restore backup #" + sequence + ": " + e.getMessage(), e);
+        }
+
+        long written = 0;
+        for (Backup backup : chain) {
+            written += replay(backup, target, pageSize);
+            logger.info("Restored " + backup);
+        }
+        return written;
+    }
+
+    private static long replay(Backup backup, StorageBackend target, int pageSize) throws StorageException {
+        List<Map.Entry<UUID, DatabaseManager.PlayerData>> batch = new ArrayList<>(pageSize);
+        long[] written = new long[1];
+        try {
+            BackupFile.read(backup.file(), new BackupFile.Visitor() {
+                @Override
+                public void row(UUID uuid, DatabaseManager.PlayerData data) throws IOException {
+                    batch.add(Map.entry(uuid, data));
+                    if (batch.size() >= pageSize) {
+                        flush();
+                    }
+                }
+
+                @Override
+                public void deleted(UUID uuid) throws IOException {
+                    try {
+                        target.delete(uuid);
+                    } catch (StorageException e) {
+                        throw new IOException(e.getMessage(), e);
+                    }
+                }
+
+                private void flush() throws IOException {
+                    try {
+                        target.saveBatch(batch);
+                        written[0] += batch.size();
+                        batch.clear();
+                    } catch (StorageException e) {
+                        throw new IOException(e.getMessage(), e);
+                    }
+                }
+            });
+        } catch (IOException e) {
+            throw new StorageException("Failed to restore " + backup.file().getName() + ": " + e.getMessage(), e);
+        }
+
+        if (!batch.isEmpty()) {
+            target.saveBatch(batch);
+            written[0] += batch.size();
+        }
+        return written[0];
+    }
+
+    /**
+     * Delete chains older than the newest keepFull full backups
+     */
+    private void rotate() {
+        List<Backup> backups = list();
+        List<Backup> fulls = backups.stream()
+                .filter(backup -> backup.header().type() == BackupFile.Type.FULL)
+                .toList();
+        if (fulls.size() <= keepFull) {
+            return;
+        }
+
+        long oldestKept = fulls.get(fulls.size() - keepFull).getSequence();
+        for (Backup backup : backups) {
+            if (backup.getSequence() < oldestKept && !backup.file().delete()) {
+                logger.warning("Could not delete old backup " + backup.file().getName());
+            }
+        }
+    }
+
+    private Properties readState() throws IOException {
+        Properties state = new Properties();
+        File file = new File(folder, STATE_FILE);
+        if (file.exists()) {
+            try (InputStream in = new FileInputStream(file)) {
+                state.load(in);
+            }
+        }
+        return state;
+    }
+
+    private void writeState(Properties state) throws IOException {
+        try (OutputStream out = new FileOutputStream(new File(folder, STATE_FILE))) {
+            state.store(out, "GenCore backup state");
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.gencore.economy.database.backup;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Accounts written to storage since the last backup
+ * Bounded by churn, not by the number of accounts: a player saved a hundred
+ * times between two backups is one entry.
+ */
+public class ChangeTracker {
+
+    // Recording shares the lock, draining takes it alone, so no record lands in a set after it was drained
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Set<UUID> changed = ConcurrentHashMap.newKeySet();
+    // Set by writes that touch every account at once, e.g. a season reset
+    private final AtomicBoolean everything = new AtomicBoolean();
+
+    public void record(UUID uuid) {
+        lock.readLock().lock();
+        try {
+            changed.add(uuid);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void recordAll(Collection<UUID> uuids) {
+        lock.readLock().lock();
+        try {
+            changed.addAll(uuids);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Record that every account changed, so the next backup must be a full one
+     */
+    public void recordEverything() {
+        everything.set(true);
+    }
+
+    /**
+     * @return Whether {@link #recordEverything} was called since the last call to this
+     */
+    public boolean takeEverything() {
+        return everything.getAndSet(false);
+    }
+
+    /**
+     * Take everything recorded so far and start a new set
+     */
+    public Set<UUID> drain() {
+        lock.writeLock().lock();
+        try {
+            Set<UUID> taken = changed;
+            changed = ConcurrentHashMap.newKeySet();
+            return taken;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return changed.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
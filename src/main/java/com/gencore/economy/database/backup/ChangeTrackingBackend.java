@@ -0,0 +1,138 @@
+package com.gencore.economy.database.backup;
+
+import com.gencore.economy.database.AccrualPolicy;
+import com.gencore.economy.database.DatabaseManager;
+import com.gencore.economy.database.MassUpdate;
+import com.gencore.economy.database.PlayerDelta;
+import com.gencore.economy.database.storage.SaveReport;
+import com.gencore.economy.database.storage.StorageBackend;
+import com.gencore.economy.database.storage.StorageException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Passes every call to another backend and records which accounts were written
+ *
+ * Sits between the cache and storage when backups are on, so every path that
+ * persists a change (write-behind, autosave, imports, admin tools) feeds the
+ * {@link ChangeTracker} without knowing about backups. Keys are recorded after
+ * the write returns: a backup that drains the tracker in between still reads
+ * the old value, and the key then goes into the next backup.
+ */
+public class ChangeTrackingBackend implements StorageBackend {
+
+    private final StorageBackend delegate;
+    private final ChangeTracker tracker;
+
+    public ChangeTrackingBackend(StorageBackend delegate, ChangeTracker tracker) {
+        this.delegate = delegate;
+        this.tracker = tracker;
+    }
+
+    public StorageBackend getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public void initialize() throws StorageException {
+        delegate.initialize();
+    }
+
+    @Override
+    public DatabaseManager.PlayerData load(UUID uuid) throws StorageException {
+        return delegate.load(uuid);
+    }
+
+    @Override
+    public Map<UUID, DatabaseManager.PlayerData> loadAll(Collection<UUID> uuids) throws StorageException {
+        return delegate.loadAll(uuids);
+    }
+
+    @Override
+    public SaveReport saveBatch(List<Map.Entry<UUID, DatabaseManager.PlayerData>> rows) throws StorageException {
+        SaveReport report = delegate.saveBatch(rows);
+        tracker.recordAll(keys(rows));
+        return report;
+    }
+
+    @Override
+    public SaveReport insertMissing(List<Map.Entry<UUID, DatabaseManager.PlayerData>> rows) throws StorageException {
+        SaveReport report = delegate.insertMissing(rows);
+        tracker.recordAll(keys(rows));
+        return report;
+    }
+
+    @Override
+    public void saveDeltas(Collection<PlayerDelta> deltas) throws StorageException {
+        delegate.saveDeltas(deltas);
+        for (PlayerDelta delta : deltas) {
+            tracker.record(delta.getUuid());
+        }
+    }
+
+    @Override
+    public long resetSeason(String archive, Set<String> carried, DatabaseManager.PlayerData start)
+            throws StorageException {
+        long rows = delegate.resetSeason(archive, carried, start);
+        tracker.recordEverything();
+        return rows;
+    }
+
+    @Override
+    public long settleAccrual(AccrualPolicy policy, long now) throws StorageException {
+        long rows = delegate.settleAccrual(policy, now);
+        tracker.recordEverything();
+        return rows;
+    }
+
+    @Override
+    public long massUpdate(MassUpdate update) throws StorageException {
+        long rows = delegate.massUpdate(update);
+        if (rows > 0) {
+            tracker.recordEverything();
+        }
+        return rows;
+    }
+
+    @Override
+    public void scan(UUID after, int pageSize, Consumer<List<Map.Entry<UUID, DatabaseManager.PlayerData>>> pages)
+            throws StorageException {
+        delegate.scan(after, pageSize, pages);
+    }
+
+    @Override
+    public boolean delete(UUID uuid) throws StorageException {
+        boolean deleted = delegate.delete(uuid);
+        tracker.record(uuid);
+        return deleted;
+    }
+
+    @Override
+    public int getMaxConcurrency() {
+        return delegate.getMaxConcurrency();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    private static List<UUID> keys(List<Map.Entry<UUID, DatabaseManager.PlayerData>> rows) {
+        List<UUID> keys = new ArrayList<>(rows.size());
+        for (Map.Entry<UUID, DatabaseManager.PlayerData> row : rows) {
+            keys.add(row.getKey());
+        }
+        return keys;
+    }
+}
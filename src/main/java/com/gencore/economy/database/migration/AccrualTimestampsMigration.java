@@ -0,0 +1,58 @@
+package com.gencore.economy.database.migration;
+
+import com.gencore.economy.database.DatabaseType;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Version 3: when money and shards last had interest or decay applied (epoch millis, 0 for never)
+ *
+ * Existing accounts start accruing from the moment of the upgrade. On MySQL the
+ * column is added with that moment as its default, which 8.0 applies without
+ * rewriting the table, and the default is then put back to 0. SQLite cannot
+ * change a column default, so there the existing rows are updated once instead.
+ */
+public class AccrualTimestampsMigration implements Migration {
+
+    private static final String[] COLUMNS = {"money_accrued_at", "shards_accrued_at"};
+
+    @Override
+    public int getVersion() {
+        return 3;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Accrual timestamps";
+    }
+
+    @Override
+    public void apply(Connection conn, DatabaseType type) throws SQLException {
+        long now = System.currentTimeMillis();
+        try (Statement stmt = conn.createStatement()) {
+            for (String column : COLUMNS) {
+                // MySQL commits each ALTER, so a retry may find the column already there
+                if (hasColumn(conn, column)) {
+                    continue;
+                }
+
+                if (type == DatabaseType.MYSQL) {
+                    stmt.execute("ALTER TABLE player_economy ADD COLUMN " + column + " BIGINT NOT NULL DEFAULT " + now);
+                    stmt.execute("ALTER TABLE player_economy ALTER COLUMN " + column + " SET DEFAULT 0");
+                } else {
+                    stmt.execute("ALTER TABLE player_economy ADD COLUMN " + column + " BIGINT NOT NULL DEFAULT 0");
+                    stmt.execute("UPDATE player_economy SET " + column + " = " + now);
+                }
+            }
+        }
+    }
+
+    private boolean hasColumn(Connection conn, String column) throws SQLException {
+        try (ResultSet rs = conn.getMetaData().getColumns(conn.getCatalog(), null, "player_economy", column)) {
+            return rs.next();
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.gencore.economy.database.migration;
+
+import com.gencore.economy.database.DatabaseType;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.logging.Logger;
+
+/**
+ * Version 2: store the player_economy key as 16 raw bytes instead of a 36 character string
+ *
+ * The table is rebuilt under a new name and swapped in. On MySQL rows are copied
+ * in key-ordered chunks with a commit per chunk while other servers keep writing.
+ * Triggers record the key of every row written or deleted meanwhile, and only
+ * those rows are copied again while both tables are locked for the atomic RENAME
+ * TABLE, so writes made during the copy are not lost. That needs MySQL 8.0.13 or
+ * later; MariaDB cannot rename locked tables and is refused. Rows whose key is not
+ * a UUID cannot be converted; they are moved to player_economy_rejected instead
+ * of dropped.
+ */
+public class BinaryUuidMigration implements Migration {
+
+    private static final int CHUNK_SIZE = 10000;
+
+    private static final String COLUMNS = "money, tokens, shards, credits, level, experience, rebirths";
+
+    private static final String REJECTED_TABLE = "player_economy_rejected";
+
+    private static final String CHANGES_TABLE = "player_economy_changes";
+    private static final String[] CHANGE_TRIGGERS = {
+            "player_economy_changes_insert", "player_economy_changes_update", "player_economy_changes_delete"
+    };
+
+    private static final String SQLITE_VALID = "COALESCE(length(uuid) = 36 AND length(unhex(replace(uuid, '-', ''))) = 16, 0)";
+    private static final Pattern VERSION_PATTERN = Pattern.compile("^(\\d+)\\.(\\d+)\\.(\\d+)");
+
+    private static final String MYSQL_VALID = "COALESCE(CHAR_LENGTH(uuid) = 36 AND LENGTH(UNHEX(REPLACE(uuid, '-', ''))) = 16, 0)";
+
+    private final Logger logger;
+
+    public BinaryUuidMigration(Logger logger) {
+        this.logger = logger;
+    }
+
+    @Override
+    public int getVersion() {
+        return 2;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Binary UUID keys";
+    }
+
+    @Override
+    public void apply(Connection conn, DatabaseType type) throws SQLException {
+        if (type == DatabaseType.MYSQL) {
+            applyMySql(conn);
+        } else {
+            applySqlite(conn);
+        }
+    }
+
+    private void applySqlite(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS player_economy_new");
+            // WITHOUT ROWID clusters rows on the 16-byte key instead of a hidden rowid
+            stmt.execute("CREATE TABLE player_economy_new (" +
+                    "uuid BLOB PRIMARY KEY, " +
+                    "money DOUBLE DEFAULT 0, " +
+                    "tokens BIGINT DEFAULT 0, " +
+                    "shards BIGINT DEFAULT 0, " +
+                    "credits BIGINT DEFAULT 0, " +
+                    "level INT DEFAULT 0, " +
+                    "experience DOUBLE DEFAULT 0, " +
+                    "rebirths INT DEFAULT 0" +
+                    ") WITHOUT ROWID");
+            createRejectedTable(stmt);
+            keepRejected(stmt, SQLITE_VALID);
+            stmt.execute("INSERT INTO player_economy_new (uuid, " + COLUMNS + ") " +
+                    "SELECT unhex(replace(uuid, '-', '')), " + COLUMNS + " FROM player_economy " +
+                    "WHERE " + SQLITE_VALID);
+            stmt.execute("DROP TABLE player_economy");
+            stmt.execute("ALTER TABLE player_economy_new RENAME TO player_economy");
+            dropRejectedIfEmpty(stmt);
+        }
+    }
+
+    private void applyMySql(Connection conn) throws SQLException {
+        requireRenameUnderLock(conn);
+
+        try (Statement stmt = conn.createStatement()) {
+            // Left over if a previous attempt died mid-copy
+            stmt.execute("DROP TABLE IF EXISTS player_economy_new");
+            stmt.execute("CREATE TABLE player_economy_new (" +
+                    "uuid BINARY(16) PRIMARY KEY, " +
+                    "money DOUBLE DEFAULT 0, " +
+                    "tokens BIGINT DEFAULT 0, " +
+                    "shards BIGINT DEFAULT 0, " +
+                    "credits BIGINT DEFAULT 0, " +
+                    "level INT DEFAULT 0, " +
+                    "experience DOUBLE DEFAULT 0, " +
+                    "rebirths INT DEFAULT 0" +
+                    ")");
+            // Tables cannot be created while others are locked, so this one exists up front
+            createRejectedTable(stmt);
+        }
+
+        // GET_LOCK only keeps upgraded servers out; one still on the old version keeps
+        // writing the string-keyed table, and fails once the binary table is swapped in
+        logger.warning("Converting player_economy to binary keys. Stop or upgrade every other server "
+                + "sharing this database first: writes from old versions fail after the swap.");
+
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(true);
+        try (Statement stmt = conn.createStatement()) {
+            // Before the copy starts, so every write it could miss is recorded
+            trackChanges(stmt);
+            copyInChunks(conn);
+
+            stmt.execute("LOCK TABLES player_economy WRITE, player_economy_new WRITE, "
+                    + CHANGES_TABLE + " WRITE, " + REJECTED_TABLE + " WRITE");
+            try {
+                // Rows written or deleted by other servers since their chunk was copied
+                stmt.execute("DELETE FROM player_economy_new WHERE uuid IN " +
+                        "(SELECT UNHEX(REPLACE(uuid, '-', '')) FROM " + CHANGES_TABLE + ")");
+                stmt.execute("INSERT INTO player_economy_new (uuid, " + COLUMNS + ") " +
+                        "SELECT UNHEX(REPLACE(uuid, '-', '')), " + COLUMNS + " FROM player_economy " +
+                        "WHERE uuid IN (SELECT uuid FROM " + CHANGES_TABLE + ") AND " + MYSQL_VALID);
+                keepRejected(stmt, MYSQL_VALID);
+                // Allowed under LOCK TABLES since MySQL 8.0.13 when every table involved is write-locked
+                stmt.execute("RENAME TABLE player_economy TO player_economy_v1, player_economy_new TO player_economy");
+                // Takes the change triggers with it
+                stmt.execute("DROP TABLE player_economy_v1");
+            } finally {
+                stmt.execute("UNLOCK TABLES");
+            }
+            dropRejectedIfEmpty(stmt);
+        } finally {
+            try (Statement stmt = conn.createStatement()) {
+                dropChangeTracking(stmt);
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    /**
+     * Fail before touching anything if the server cannot rename the tables while they are locked
+     */
+    private void requireRenameUnderLock(Connection conn) throws SQLException {
+        String version;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT VERSION()")) {
+            version = rs.next() ? rs.getString(1) : "";
+        }
+
+        if (version.toLowerCase(Locale.ROOT).contains("mariadb")) {
+            throw new SQLException("Cannot convert player_economy to binary keys on MariaDB (" + version
+                    + "): it does not allow RENAME TABLE under LOCK TABLES. Use MySQL 8.0.13 or later.");
+        }
+
+        Matcher matcher = VERSION_PATTERN.matcher(version);
+        boolean supported = false;
+        if (matcher.find()) {
+            int major = Integer.parseInt(matcher.group(1));
+            int minor = Integer.parseInt(matcher.group(2));
+            int patch = Integer.parseInt(matcher.group(3));
+            supported = major > 8 || (major == 8 && (minor > 0 || patch >= 13));
+        }
+        if (!supported) {
+            throw new SQLException("Cannot convert player_economy to binary keys on MySQL " + version
+                    + ": RENAME TABLE under LOCK TABLES needs MySQL 8.0.13 or later.");
+        }
+    }
+
+    /**
+     * Record the key of every row inserted, updated or deleted from now on
+     */
+    private void trackChanges(Statement stmt) throws SQLException {
+        dropChangeTracking(stmt);
+        stmt.execute("CREATE TABLE " + CHANGES_TABLE + " (uuid VARCHAR(36) PRIMARY KEY)");
+        try {
+            stmt.execute("CREATE TRIGGER " + CHANGE_TRIGGERS[0] + " AFTER INSERT ON player_economy " +
+                    "FOR EACH ROW INSERT IGNORE INTO " + CHANGES_TABLE + " (uuid) VALUES (NEW.uuid)");
+            stmt.execute("CREATE TRIGGER " + CHANGE_TRIGGERS[1] + " AFTER UPDATE ON player_economy " +
+                    "FOR EACH ROW INSERT IGNORE INTO " + CHANGES_TABLE + " (uuid) VALUES (OLD.uuid), (NEW.uuid)");
+            stmt.execute("CREATE TRIGGER " + CHANGE_TRIGGERS[2] + " AFTER DELETE ON player_economy " +
+                    "FOR EACH ROW INSERT IGNORE INTO " + CHANGES_TABLE + " (uuid) VALUES (OLD.uuid)");
+        } catch (SQLException e) {
+            throw new SQLException("Cannot create the triggers that track writes during the binary key "
+                    + "conversion; the database user needs the TRIGGER privilege: " + e.getMessage(), e);
+        }
+    }
+
+    private void dropChangeTracking(Statement stmt) throws SQLException {
+        for (String trigger : CHANGE_TRIGGERS) {
+            stmt.execute("DROP TRIGGER IF EXISTS " + trigger);
+        }
+        stmt.execute("DROP TABLE IF EXISTS " + CHANGES_TABLE);
+    }
+
+    /**
+     * Copy rows with unconvertible keys aside so dropping the old table does not take their balances with it
+     */
+    private void keepRejected(Statement stmt, String valid) throws SQLException {
+        long rejected;
+        try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM player_economy WHERE NOT " + valid)) {
+            rejected = rs.next() ? rs.getLong(1) : 0;
+        }
+        if (rejected == 0) {
+            return;
+        }
+
+        stmt.execute("DELETE FROM " + REJECTED_TABLE);
+        stmt.execute("INSERT INTO " + REJECTED_TABLE + " (uuid, " + COLUMNS + ") " +
+                "SELECT uuid, " + COLUMNS + " FROM player_economy WHERE NOT " + valid);
+        logger.warning(rejected + " rows in player_economy have a key that is not a UUID and were moved to "
+                + REJECTED_TABLE + " with their balances; fix their keys and copy them back by hand.");
+    }
+
+    private void createRejectedTable(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS " + REJECTED_TABLE + " (" +
+                "uuid VARCHAR(36) PRIMARY KEY, " +
+                "money DOUBLE DEFAULT 0, " +
+                "tokens BIGINT DEFAULT 0, " +
+                "shards BIGINT DEFAULT 0, " +
+                "credits BIGINT DEFAULT 0, " +
+                "level INT DEFAULT 0, " +
+                "experience DOUBLE DEFAULT 0, " +
+                "rebirths INT DEFAULT 0" +
+                ")");
+    }
+
+    private void dropRejectedIfEmpty(Statement stmt) throws SQLException {
+        boolean empty;
+        try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + REJECTED_TABLE)) {
+            empty = rs.next() && rs.getLong(1) == 0;
+        }
+        if (empty) {
+            stmt.execute("DROP TABLE " + REJECTED_TABLE);
+        }
+    }
+
+    private void copyInChunks(Connection conn) throws SQLException {
+        String insert = "INSERT INTO player_economy_new (uuid, " + COLUMNS + ") " +
+                "SELECT UNHEX(REPLACE(uuid, '-', '')), " + COLUMNS + " FROM player_economy ";
+        String boundarySql = "SELECT uuid FROM player_economy WHERE uuid > ? ORDER BY uuid LIMIT 1 OFFSET " + (CHUNK_SIZE - 1);
+        String copySql = insert + "WHERE uuid > ? AND uuid <= ? AND " + MYSQL_VALID;
+        String lastSql = insert + "WHERE uuid > ? AND " + MYSQL_VALID;
+
+        try (PreparedStatement boundary = conn.prepareStatement(boundarySql);
+             PreparedStatement copy = conn.prepareStatement(copySql);
+             PreparedStatement last = conn.prepareStatement(lastSql)) {
+
+            String lower = "";
+            while (true) {
+                boundary.setString(1, lower);
+                String upper = null;
+                try (ResultSet rs = boundary.executeQuery()) {
+                    if (rs.next()) {
+                        upper = rs.getString(1);
+                    }
+                }
+
+                if (upper == null) {
+                    last.setString(1, lower);
+                    last.executeUpdate();
+                    return;
+                }
+
+                copy.setString(1, lower);
+                copy.setString(2, upper);
+                copy.executeUpdate();
+                lower = upper;
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.gencore.economy.database.migration;
+
+import com.gencore.economy.database.DatabaseType;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Version 1: the original player_economy table keyed by the UUID string
+ * Databases created before migrations existed already have this table, so it is created only if missing.
+ */
+public class CreatePlayerEconomyMigration implements Migration {
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Create player_economy";
+    }
+
+    @Override
+    public void apply(Connection conn, DatabaseType type) throws SQLException {
+        String sql = "CREATE TABLE IF NOT EXISTS player_economy (" +
+                "uuid VARCHAR(36) PRIMARY KEY, " +
+                "money DOUBLE DEFAULT 0, " +
+                "tokens BIGINT DEFAULT 0, " +
+                "shards BIGINT DEFAULT 0, " +
+                "credits BIGINT DEFAULT 0, " +
+                "level INT DEFAULT 0, " +
+                "experience DOUBLE DEFAULT 0, " +
+                "rebirths INT DEFAULT 0" +
+                ")";
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
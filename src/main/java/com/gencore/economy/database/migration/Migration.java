@@ -0,0 +1,24 @@
+package com.gencore.economy.database.migration;
+
+import com.gencore.economy.database.DatabaseType;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * One ordered step in the player_economy schema history
+ * Migrations are applied once, in version order, and recorded in schema_version.
+ */
+public interface Migration {
+
+    int getVersion();
+
+    String getDescription();
+
+    /**
+     * Apply the migration
+     * On SQLite this runs inside the migrator's transaction. MySQL commits DDL
+     * implicitly, so MySQL steps must be safe to re-run after a partial failure.
+     */
+    void apply(Connection conn, DatabaseType type) throws SQLException;
+}
@@ -0,0 +1,128 @@
+package com.gencore.economy.database.migration;
+
+import com.gencore.economy.database.DatabaseType;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Brings the database schema up to date
+ * The applied version is tracked in schema_version, and each pending migration
+ * is applied in order and recorded as soon as it succeeds.
+ */
+public class SchemaMigrator {
+
+    private static final String LOCK_NAME = "gencore_schema";
+
+    private final Logger logger;
+    private final DatabaseType type;
+    private final List<Migration> migrations = new ArrayList<>();
+
+    public SchemaMigrator(Logger logger, DatabaseType type) {
+        this.logger = logger;
+        this.type = type;
+
+        migrations.add(new CreatePlayerEconomyMigration());
+        migrations.add(new BinaryUuidMigration(logger));
+        migrations.add(new AccrualTimestampsMigration());
+        migrations.sort(Comparator.comparingInt(Migration::getVersion));
+    }
+
+    public int getLatestVersion() {
+        return migrations.get(migrations.size() - 1).getVersion();
+    }
+
+    /**
+     * Apply every migration newer than the recorded schema version
+     * @return The schema version after migrating
+     */
+    public int migrate(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+                    "version INT PRIMARY KEY, " +
+                    "description VARCHAR(255), " +
+                    "applied_at BIGINT" +
+                    ")");
+        }
+
+        // Servers sharing one MySQL database must not migrate at the same time
+        if (type == DatabaseType.MYSQL) {
+            acquireLock(conn);
+        }
+
+        try {
+            int current = getCurrentVersion(conn);
+            for (Migration migration : migrations) {
+                if (migration.getVersion() <= current) {
+                    continue;
+                }
+
+                logger.info("Applying schema migration " + migration.getVersion() + ": " + migration.getDescription());
+                long start = System.currentTimeMillis();
+                apply(conn, migration);
+                current = migration.getVersion();
+                logger.info("Schema migration " + current + " done in " + (System.currentTimeMillis() - start) + "ms");
+            }
+            return current;
+        } finally {
+            if (type == DatabaseType.MYSQL) {
+                releaseLock(conn);
+            }
+        }
+    }
+
+    private void apply(Connection conn, Migration migration) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            migration.apply(conn, type);
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO schema_version (version, description, applied_at) VALUES (?, ?, ?)")) {
+                stmt.setInt(1, migration.getVersion());
+                stmt.setString(2, migration.getDescription());
+                stmt.setLong(3, System.currentTimeMillis());
+                stmt.executeUpdate();
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw new SQLException("Schema migration " + migration.getVersion() + " failed: " + e.getMessage(), e);
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    private int getCurrentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MAX(version) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private void acquireLock(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT GET_LOCK(?, 300)")) {
+            stmt.setString(1, LOCK_NAME);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Timed out waiting for another server to finish migrating");
+                }
+            }
+        }
+    }
+
+    private void releaseLock(Connection conn) {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            stmt.setString(1, LOCK_NAME);
+            stmt.executeQuery().close();
+        } catch (SQLException e) {
+            logger.warning("Failed to release schema lock: " + e.getMessage());
+        }
+    }
+}
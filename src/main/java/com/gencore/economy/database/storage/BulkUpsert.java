@@ -0,0 +1,117 @@
+package com.gencore.economy.database.storage;
+
+import com.gencore.economy.database.DatabaseManager;
+import com.gencore.economy.database.DatabaseType;
+import com.gencore.economy.database.UuidCodec;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Writes many full player rows with as few round-trips as possible
+ *
+ * Rows go out as batched upserts: INSERT ... ON DUPLICATE KEY UPDATE on MySQL,
+ * which the driver rewrites into multi-row statements when
+ * rewriteBatchedStatements is on, and INSERT ... ON CONFLICT on SQLite.
+ * Missing rows are created, so callers do not need to know whether a player
+ * already has one. Inserts that must not touch existing rows use
+ * INSERT ... ON DUPLICATE KEY UPDATE uuid = uuid and ON CONFLICT DO NOTHING.
+ */
+public class BulkUpsert {
+
+    private static final String COLUMNS = "uuid, money, tokens, shards, credits, level, experience, rebirths, " +
+            "money_accrued_at, shards_accrued_at";
+    private static final String VALUES = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String MYSQL_SQL = "INSERT INTO player_economy (" + COLUMNS + ") VALUES " + VALUES +
+            " ON DUPLICATE KEY UPDATE money = VALUES(money), tokens = VALUES(tokens), shards = VALUES(shards), " +
+            "credits = VALUES(credits), level = VALUES(level), experience = VALUES(experience), " +
+            "rebirths = VALUES(rebirths), money_accrued_at = VALUES(money_accrued_at), " +
+            "shards_accrued_at = VALUES(shards_accrued_at)";
+
+    private static final String SQLITE_SQL = "INSERT INTO player_economy (" + COLUMNS + ") VALUES " + VALUES +
+            " ON CONFLICT(uuid) DO UPDATE SET money = excluded.money, tokens = excluded.tokens, " +
+            "shards = excluded.shards, credits = excluded.credits, level = excluded.level, " +
+            "experience = excluded.experience, rebirths = excluded.rebirths, " +
+            "money_accrued_at = excluded.money_accrued_at, shards_accrued_at = excluded.shards_accrued_at";
+
+    private static final String MYSQL_INSERT_SQL = "INSERT INTO player_economy (" + COLUMNS + ") VALUES " + VALUES +
+            " ON DUPLICATE KEY UPDATE uuid = uuid";
+
+    private static final String SQLITE_INSERT_SQL = "INSERT INTO player_economy (" + COLUMNS + ") VALUES " + VALUES +
+            " ON CONFLICT(uuid) DO NOTHING";
+
+    private final DatabaseType type;
+    private final int chunkSize;
+
+    public BulkUpsert(DatabaseType type, int chunkSize) {
+        this.type = type;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public static String sqlFor(DatabaseType type) {
+        return type == DatabaseType.MYSQL ? MYSQL_SQL : SQLITE_SQL;
+    }
+
+    /**
+     * Upsert the rows in chunks
+     * @param rows Snapshots of the rows to write; they must not change while this runs
+     * @param commitEachChunk Commit after every chunk (keeps MySQL transactions short);
+     *                        otherwise the caller's transaction covers everything
+     */
+    public SaveReport write(Connection conn, List<Map.Entry<UUID, DatabaseManager.PlayerData>> rows,
+                        boolean commitEachChunk) throws SQLException {
+        return write(conn, rows, commitEachChunk, true);
+    }
+
+    /**
+     * Write the rows in chunks
+     * @param overwrite Replace existing rows; otherwise only missing rows are inserted
+     */
+    public SaveReport write(Connection conn, List<Map.Entry<UUID, DatabaseManager.PlayerData>> rows,
+                        boolean commitEachChunk, boolean overwrite) throws SQLException {
+        SaveReport report = new SaveReport();
+        if (rows.isEmpty()) {
+            return report;
+        }
+
+        String sql = overwrite ? sqlFor(type) : (type == DatabaseType.MYSQL ? MYSQL_INSERT_SQL : SQLITE_INSERT_SQL);
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int from = 0; from < rows.size(); from += chunkSize) {
+                long start = System.nanoTime();
+                int to = Math.min(rows.size(), from + chunkSize);
+
+                for (int i = from; i < to; i++) {
+                    Map.Entry<UUID, DatabaseManager.PlayerData> row = rows.get(i);
+                    DatabaseManager.PlayerData data = row.getValue();
+                    stmt.setBytes(1, UuidCodec.toBytes(row.getKey()));
+                    stmt.setDouble(2, data.money);
+                    stmt.setLong(3, data.tokens);
+                    stmt.setLong(4, data.shards);
+                    stmt.setLong(5, data.credits);
+                    stmt.setInt(6, data.level);
+                    stmt.setDouble(7, data.experience);
+                    stmt.setInt(8, data.rebirths);
+                    stmt.setLong(9, data.moneyAccruedAt);
+                    stmt.setLong(10, data.shardsAccruedAt);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                if (commitEachChunk) {
+                    conn.commit();
+                }
+
+                report.addChunk(to - from, System.nanoTime() - start);
+            }
+        }
+        return report;
+    }
+}
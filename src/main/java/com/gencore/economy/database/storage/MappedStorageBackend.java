@@ -0,0 +1,675 @@
+package com.gencore.economy.database.storage;
+
+import com.gencore.economy.database.AccrualPolicy;
+import com.gencore.economy.database.DatabaseManager;
+import com.gencore.economy.database.MassUpdate;
+import com.gencore.economy.database.PlayerDelta;
+import com.gencore.economy.database.UuidCodec;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps every account in a memory-mapped file of fixed-width slots
+ *
+ * A player's row lives in one slot for its whole life, found through an
+ * in-memory UUID to slot index that is rebuilt from the file on startup. Each
+ * slot holds two copies of the row, each with a generation counter and CRC;
+ * a write always overwrites the older copy, so a crash in the middle of a write
+ * leaves the previous value readable. Single server only: the file must not be
+ * shared between processes.
+ *
+ * Slot layout (176 bytes):
+ * uuidMost(8) uuidLeast(8) copyA(80) copyB(80)
+ * Copy layout (80 bytes):
+ * generation(8) money(8) tokens(8) shards(8) credits(8) experience(8)
+ * level(4) rebirths(4) moneyAccruedAt(8) shardsAccruedAt(8) crc32(4) padding(4)
+ */
+public class MappedStorageBackend implements StorageBackend {
+
+    private static final int MAGIC = 0x47434D31; // "GCM1"
+    private static final int HEADER_SIZE = 64;
+    private static final int SLOT_SIZE = 176;
+    private static final int COPY_SIZE = 80;
+    private static final int COPY_CRC = 72;
+
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_SLOTS = 4;
+
+    // One mapping cannot exceed 2 GiB
+    private static final int MAX_SLOTS = (Integer.MAX_VALUE - HEADER_SIZE) / SLOT_SIZE;
+    private static final int LOCK_STRIPES = 64;
+
+    private final File file;
+    private final int initialSlots;
+    private final boolean syncWrites;
+    private final Logger logger;
+
+    private final ConcurrentHashMap<UUID, Integer> index = new ConcurrentHashMap<>();
+    private final ArrayDeque<Integer> freeSlots = new ArrayDeque<>();
+    private final Object[] slotLocks = new Object[LOCK_STRIPES];
+    // Held for reading by every slot access, for writing while the file is remapped
+    private final ReentrantReadWriteLock mappingLock = new ReentrantReadWriteLock();
+
+    private RandomAccessFile raf;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int slotCount;
+    private int nextUnused;
+
+    public MappedStorageBackend(File file, int initialSlots, boolean syncWrites, Logger logger) {
+        this.file = file;
+        this.initialSlots = Math.max(1, Math.min(initialSlots, MAX_SLOTS));
+        this.syncWrites = syncWrites;
+        this.logger = logger;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            slotLocks[i] = new Object();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "mapped";
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public int getAccountCount() {
+        return index.size();
+    }
+
+    @Override
+    public void initialize() throws StorageException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new StorageException("Could not create " + parent);
+        }
+
+        boolean existing = file.exists() && file.length() >= HEADER_SIZE;
+        try {
+            raf = new RandomAccessFile(file, "rw");
+            channel = raf.getChannel();
+
+            int slots = initialSlots;
+            if (existing) {
+                raf.seek(HEADER_MAGIC);
+                if (raf.readInt() != MAGIC) {
+                    throw new StorageException("Not a GenCore account file: " + file);
+                }
+                slots = raf.readInt();
+            }
+
+            map(slots);
+            if (!existing) {
+                buffer.putInt(HEADER_MAGIC, MAGIC);
+                buffer.putInt(HEADER_SLOTS, slots);
+                buffer.force();
+            }
+        } catch (IOException e) {
+            closeQuietly();
+            throw new StorageException("Failed to open " + file + ": " + e.getMessage(), e);
+        }
+
+        buildIndex();
+        logger.info("Loaded " + index.size() + " accounts from " + file.getName());
+    }
+
+    @Override
+    public DatabaseManager.PlayerData load(UUID uuid) {
+        Integer slot = index.get(uuid);
+        if (slot == null) {
+            return null;
+        }
+
+        mappingLock.readLock().lock();
+        try {
+            synchronized (lockFor(slot)) {
+                return readSlot(slotOffset(slot), uuid);
+            }
+        } finally {
+            mappingLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<UUID, DatabaseManager.PlayerData> loadAll(Collection<UUID> uuids) {
+        Map<UUID, DatabaseManager.PlayerData> result = new HashMap<>();
+        for (UUID uuid : uuids) {
+            DatabaseManager.PlayerData row = load(uuid);
+            if (row != null) {
+                result.put(uuid, row);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public SaveReport saveBatch(List<Map.Entry<UUID, DatabaseManager.PlayerData>> rows) throws StorageException {
+        long start = System.nanoTime();
+        for (Map.Entry<UUID, DatabaseManager.PlayerData> entry : rows) {
+            save(entry.getKey(), entry.getValue());
+        }
+        sync();
+
+        SaveReport report = new SaveReport();
+        report.addChunk(rows.size(), System.nanoTime() - start);
+        return report;
+    }
+
+    @Override
+    public SaveReport insertMissing(List<Map.Entry<UUID, DatabaseManager.PlayerData>> rows) throws StorageException {
+        long start = System.nanoTime();
+        for (Map.Entry<UUID, DatabaseManager.PlayerData> entry : rows) {
+            // Leaves an account that already has a slot untouched
+            insert(entry.getKey(), entry.getValue());
+        }
+        sync();
+
+        SaveReport report = new SaveReport();
+        report.addChunk(rows.size(), System.nanoTime() - start);
+        return report;
+    }
+
+    /**
+     * Every row is checked before the first delta is applied, and applied deltas are
+     * undone if a later one fails. A crash part-way through still leaves earlier slots updated.
+     */
+    @Override
+    public void saveDeltas(Collection<PlayerDelta> deltas) throws StorageException {
+        mappingLock.readLock().lock();
+        try {
+            for (PlayerDelta delta : deltas) {
+                Integer slot = index.get(delta.getUuid());
+                if (slot != null) {
+                    synchronized (lockFor(slot)) {
+                        int offset = slotOffset(slot);
+                        if (ownsSlot(offset, delta.getUuid()) && readSlot(offset, delta.getUuid()) == null) {
+                            throw new StorageException("Account slot " + slot + " of " + delta.getUuid()
+                                    + " is unreadable; no deltas were applied");
+                        }
+                    }
+                }
+            }
+
+            List<PlayerDelta> applied = new ArrayList<>(deltas.size());
+            List<DatabaseManager.PlayerData> previous = new ArrayList<>(deltas.size());
+            try {
+                for (PlayerDelta delta : deltas) {
+                    // Like an UPDATE, a delta for a missing row changes nothing
+                    Integer slot = index.get(delta.getUuid());
+                    if (slot == null) {
+                        continue;
+                    }
+
+                    synchronized (lockFor(slot)) {
+                        int offset = slotOffset(slot);
+                        DatabaseManager.PlayerData row = readSlot(offset, delta.getUuid());
+                        if (row != null) {
+                            previous.add(readSlot(offset, delta.getUuid()));
+                            applied.add(delta);
+                            delta.applyTo(row);
+                            writeSlot(offset, row);
+                        }
+                    }
+                }
+            } catch (RuntimeException e) {
+                // The caller hands every delta back and retries them all, which would count these twice
+                for (int i = applied.size() - 1; i >= 0; i--) {
+                    restore(applied.get(i).getUuid(), previous.get(i));
+                }
+                throw new StorageException("Failed to apply deltas: " + e.getMessage(), e);
+            }
+        } finally {
+            mappingLock.readLock().unlock();
+        }
+        sync();
+    }
+
+    @Override
+    public void scan(UUID after, int pageSize, Consumer<List<Map.Entry<UUID, DatabaseManager.PlayerData>>> pages) {
+        List<Map.Entry<UUID, DatabaseManager.PlayerData>> page = new ArrayList<>(pageSize);
+        for (UUID uuid : UuidCodec.sortedAfter(index.keySet(), after)) {
+            DatabaseManager.PlayerData row = load(uuid);
+            if (row == null) {
+                continue;
+            }
+
+            page.add(Map.entry(uuid, row));
+            if (page.size() >= pageSize) {
+                pages.accept(page);
+                page = new ArrayList<>(pageSize);
+            }
+        }
+        if (!page.isEmpty()) {
+            pages.accept(page);
+        }
+    }
+
+    @Override
+    public boolean delete(UUID uuid) {
+        synchronized (freeSlots) {
+            Integer slot = index.remove(uuid);
+            if (slot == null) {
+                return false;
+            }
+
+            mappingLock.readLock().lock();
+            try {
+                synchronized (lockFor(slot)) {
+                    int offset = slotOffset(slot);
+                    // A zeroed key marks the slot free; generations reset so a reuse starts clean
+                    buffer.putLong(offset, 0L);
+                    buffer.putLong(offset + 8, 0L);
+                    buffer.putLong(offset + 16, 0L);
+                    buffer.putLong(offset + 16 + COPY_SIZE, 0L);
+                }
+            } finally {
+                mappingLock.readLock().unlock();
+            }
+            freeSlots.push(slot);
+            return true;
+        }
+    }
+
+    /**
+     * The file is copied to seasons/&lt;archive&gt;.dat, then every slot is rewritten in place
+     * A crash during the rewrite leaves some accounts reset and some not; the archive is complete by then.
+     */
+    @Override
+    public long resetSeason(String archive, Set<String> carried, DatabaseManager.PlayerData start)
+            throws StorageException {
+        File archiveFile = new File(file.getAbsoluteFile().getParentFile(), "seasons/" + archive + ".dat");
+        if (archiveFile.exists()) {
+            throw new StorageException("Season archive " + archiveFile + " already exists");
+        }
+        if (!archiveFile.getParentFile().exists() && !archiveFile.getParentFile().mkdirs()) {
+            throw new StorageException("Could not create " + archiveFile.getParentFile());
+        }
+
+        // Exclusive, so no slot changes while the file is copied
+        mappingLock.writeLock().lock();
+        try {
+            buffer.force();
+            Files.copy(file.toPath(), archiveFile.toPath());
+        } catch (IOException e) {
+            throw new StorageException("Failed to archive " + file + ": " + e.getMessage(), e);
+        } finally {
+            mappingLock.writeLock().unlock();
+        }
+
+        long rows = 0;
+        mappingLock.readLock().lock();
+        try {
+            for (Map.Entry<UUID, Integer> entry : index.entrySet()) {
+                int slot = entry.getValue();
+                synchronized (lockFor(slot)) {
+                    int offset = slotOffset(slot);
+                    DatabaseManager.PlayerData row = readSlot(offset, entry.getKey());
+                    if (row != null) {
+                        writeSlot(offset, row.carriedOver(carried, start));
+                        rows++;
+                    }
+                }
+            }
+        } finally {
+            mappingLock.readLock().unlock();
+        }
+        sync();
+        return rows;
+    }
+
+    /**
+     * Copy every account into another backend, e.g. to move back to SQL
+     * @return Number of accounts copied
+     */
+    public long exportTo(StorageBackend target, int pageSize) throws StorageException {
+        long[] copied = new long[1];
+        StorageException[] failure = new StorageException[1];
+
+        scan(pageSize, page -> {
+            if (failure[0] != null) {
+                return;
+            }
+            try {
+                target.saveBatch(page);
+                copied[0] += page.size();
+            } catch (StorageException e) {
+                failure[0] = e;
+            }
+        });
+
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        return copied[0];
+    }
+
+    @Override
+    public long settleAccrual(AccrualPolicy policy, long now) {
+        long rows = 0;
+        mappingLock.readLock().lock();
+        try {
+            for (Map.Entry<UUID, Integer> entry : index.entrySet()) {
+                int slot = entry.getValue();
+                synchronized (lockFor(slot)) {
+                    int offset = slotOffset(slot);
+                    DatabaseManager.PlayerData row = readSlot(offset, entry.getKey());
+                    if (row != null) {
+                        row.settleAccrual(policy, now);
+                        writeSlot(offset, row);
+                        rows++;
+                    }
+                }
+            }
+        } finally {
+            mappingLock.readLock().unlock();
+        }
+        sync();
+        return rows;
+    }
+
+    @Override
+    public long massUpdate(MassUpdate update) {
+        long rows = 0;
+        mappingLock.readLock().lock();
+        try {
+            for (Map.Entry<UUID, Integer> entry : index.entrySet()) {
+                int slot = entry.getValue();
+                synchronized (lockFor(slot)) {
+                    int offset = slotOffset(slot);
+                    DatabaseManager.PlayerData row = readSlot(offset, entry.getKey());
+                    if (row != null && row.applyMassUpdate(update)) {
+                        writeSlot(offset, row);
+                        rows++;
+                    }
+                }
+            }
+        } finally {
+            mappingLock.readLock().unlock();
+        }
+        sync();
+        return rows;
+    }
+
+    @Override
+    public void close() {
+        mappingLock.writeLock().lock();
+        try {
+            if (buffer != null) {
+                buffer.force();
+            }
+            closeQuietly();
+        } finally {
+            mappingLock.writeLock().unlock();
+        }
+    }
+
+    private void sync() {
+        if (!syncWrites) {
+            return;
+        }
+        mappingLock.readLock().lock();
+        try {
+            buffer.force();
+        } finally {
+            mappingLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Overwrite an account's row, claiming a slot if the account is new
+     */
+    private void save(UUID uuid, DatabaseManager.PlayerData data) throws StorageException {
+        while (true) {
+            Integer slot = index.get(uuid);
+            if (slot == null) {
+                if (insert(uuid, data)) {
+                    return;
+                }
+                continue;
+            }
+
+            mappingLock.readLock().lock();
+            try {
+                synchronized (lockFor(slot)) {
+                    int offset = slotOffset(slot);
+                    // Deleted and possibly reused since the index lookup; look it up again
+                    if (ownsSlot(offset, uuid)) {
+                        writeSlot(offset, data);
+                        return;
+                    }
+                }
+            } finally {
+                mappingLock.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Claim a free slot for a new account and write its first copy
+     * The slot is only published in the index once that copy is valid, so a
+     * concurrent load never sees a claimed slot without a row.
+     * @return false if the account already has a slot
+     */
+    private boolean insert(UUID uuid, DatabaseManager.PlayerData data) throws StorageException {
+        synchronized (freeSlots) {
+            if (index.containsKey(uuid)) {
+                return false;
+            }
+
+            int slot;
+            if (!freeSlots.isEmpty()) {
+                slot = freeSlots.pop();
+            } else {
+                if (nextUnused >= slotCount) {
+                    grow();
+                }
+                slot = nextUnused++;
+            }
+
+            mappingLock.readLock().lock();
+            try {
+                synchronized (lockFor(slot)) {
+                    int offset = slotOffset(slot);
+                    // Copies first, so the key never points at a stale row
+                    buffer.putLong(offset + 16, 0L);
+                    buffer.putLong(offset + 16 + COPY_SIZE, 0L);
+                    buffer.putLong(offset, uuid.getMostSignificantBits());
+                    buffer.putLong(offset + 8, uuid.getLeastSignificantBits());
+                    writeSlot(offset, data);
+                }
+            } finally {
+                mappingLock.readLock().unlock();
+            }
+
+            index.put(uuid, slot);
+            return true;
+        }
+    }
+
+    /**
+     * Put back a row as it was before a failed batch of deltas; the caller holds the mapping lock
+     */
+    private void restore(UUID uuid, DatabaseManager.PlayerData row) {
+        Integer slot = index.get(uuid);
+        if (slot == null) {
+            return;
+        }
+        synchronized (lockFor(slot)) {
+            int offset = slotOffset(slot);
+            if (ownsSlot(offset, uuid)) {
+                writeSlot(offset, row);
+            }
+        }
+    }
+
+    private void grow() throws StorageException {
+        if (slotCount >= MAX_SLOTS) {
+            throw new StorageException("Account file is full (" + slotCount + " slots)");
+        }
+
+        int slots = (int) Math.min((long) slotCount * 2, MAX_SLOTS);
+        mappingLock.writeLock().lock();
+        try {
+            buffer.force();
+            map(slots);
+            buffer.putInt(HEADER_SLOTS, slots);
+            buffer.force();
+        } catch (IOException e) {
+            throw new StorageException("Failed to grow " + file + ": " + e.getMessage(), e);
+        } finally {
+            mappingLock.writeLock().unlock();
+        }
+        logger.info("Grew " + file.getName() + " to " + slots + " slots");
+    }
+
+    private void map(int slots) throws IOException {
+        long size = HEADER_SIZE + (long) slots * SLOT_SIZE;
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        slotCount = slots;
+    }
+
+    private void buildIndex() {
+        int highest = -1;
+        List<Integer> empty = new ArrayList<>();
+
+        for (int slot = 0; slot < slotCount; slot++) {
+            int offset = slotOffset(slot);
+            long most = buffer.getLong(offset);
+            long least = buffer.getLong(offset + 8);
+            if (most == 0L && least == 0L) {
+                empty.add(slot);
+                continue;
+            }
+
+            UUID uuid = new UUID(most, least);
+            if (readSlot(offset, uuid) == null) {
+                // Claimed but never written; treat as free
+                logger.warning("Discarding unreadable account slot " + slot + " (" + uuid + ")");
+                empty.add(slot);
+                continue;
+            }
+            index.put(uuid, slot);
+            highest = slot;
+        }
+
+        nextUnused = highest + 1;
+        for (int slot : empty) {
+            if (slot < nextUnused) {
+                freeSlots.push(slot);
+            }
+        }
+    }
+
+    /**
+     * Newest copy with a valid checksum, or null if neither copy is valid
+     */
+    private DatabaseManager.PlayerData readSlot(int offset, UUID uuid) {
+        if (!ownsSlot(offset, uuid)) {
+            // Deleted and reused since the index lookup
+            return null;
+        }
+
+        int a = offset + 16;
+        int b = a + COPY_SIZE;
+        boolean validA = isValid(a);
+        boolean validB = isValid(b);
+        if (!validA && !validB) {
+            return null;
+        }
+
+        int copy = !validB || (validA && buffer.getLong(a) > buffer.getLong(b)) ? a : b;
+        return new DatabaseManager.PlayerData(
+                uuid,
+                buffer.getDouble(copy + 8),
+                buffer.getLong(copy + 16),
+                buffer.getLong(copy + 24),
+                buffer.getLong(copy + 32),
+                buffer.getInt(copy + 48),
+                buffer.getDouble(copy + 40),
+                buffer.getInt(copy + 52),
+                buffer.getLong(copy + 56),
+                buffer.getLong(copy + 64)
+        );
+    }
+
+    /**
+     * Overwrite the older copy so the newer one survives a torn write
+     */
+    private void writeSlot(int offset, DatabaseManager.PlayerData data) {
+        int a = offset + 16;
+        int b = a + COPY_SIZE;
+        long genA = isValid(a) ? buffer.getLong(a) : 0L;
+        long genB = isValid(b) ? buffer.getLong(b) : 0L;
+        int copy = genA <= genB ? a : b;
+
+        synchronized (data) {
+            buffer.putDouble(copy + 8, data.money);
+            buffer.putLong(copy + 16, data.tokens);
+            buffer.putLong(copy + 24, data.shards);
+            buffer.putLong(copy + 32, data.credits);
+            buffer.putDouble(copy + 40, data.experience);
+            buffer.putInt(copy + 48, data.level);
+            buffer.putInt(copy + 52, data.rebirths);
+            buffer.putLong(copy + 56, data.moneyAccruedAt);
+            buffer.putLong(copy + 64, data.shardsAccruedAt);
+        }
+        buffer.putLong(copy, Math.max(genA, genB) + 1);
+        buffer.putInt(copy + COPY_CRC, checksum(copy));
+    }
+
+    private boolean ownsSlot(int offset, UUID uuid) {
+        return buffer.getLong(offset) == uuid.getMostSignificantBits()
+                && buffer.getLong(offset + 8) == uuid.getLeastSignificantBits();
+    }
+
+    private boolean isValid(int copy) {
+        return buffer.getLong(copy) > 0 && buffer.getInt(copy + COPY_CRC) == checksum(copy);
+    }
+
+    private int checksum(int copy) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(copy, COPY_CRC));
+        return (int) crc.getValue();
+    }
+
+    private int slotOffset(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    private Object lockFor(int slot) {
+        return slotLocks[slot % LOCK_STRIPES];
+    }
+
+    private void closeQuietly() {
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+            if (raf != null) {
+                raf.close();
+            }
+        } catch (IOException e) {
+            logger.warning("Failed to close " + file + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.gencore.economy.database.storage;
+
+import com.gencore.economy.database.AccrualPolicy;
+import com.gencore.economy.database.DatabaseManager;
+import com.gencore.economy.database.MassUpdate;
+import com.gencore.economy.database.PlayerDelta;
+import com.gencore.economy.database.UuidCodec;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Keeps rows on the heap only
+ * Nothing survives a restart. Meant for tests, benchmarks of the cache layer
+ * without JDBC overhead, and throwaway servers.
+ */
+public class MemoryStorageBackend implements StorageBackend {
+
+    private final ConcurrentHashMap<UUID, DatabaseManager.PlayerData> rows = new ConcurrentHashMap<>();
+
+    @Override
+    public String getName() {
+        return "memory";
+    }
+
+    @Override
+    public void initialize() {
+    }
+
+    @Override
+    public DatabaseManager.PlayerData load(UUID uuid) {
+        DatabaseManager.PlayerData row = rows.get(uuid);
+        return row != null ? row.snapshot() : null;
+    }
+
+    @Override
+    public Map<UUID, DatabaseManager.PlayerData> loadAll(Collection<UUID> uuids) {
+        Map<UUID, DatabaseManager.PlayerData> result = new HashMap<>();
+        for (UUID uuid : uuids) {
+            DatabaseManager.PlayerData row = load(uuid);
+            if (row != null) {
+                result.put(uuid, row);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public SaveReport saveBatch(List<Map.Entry<UUID, DatabaseManager.PlayerData>> batch) {
+        long start = System.nanoTime();
+        for (Map.Entry<UUID, DatabaseManager.PlayerData> entry : batch) {
+            rows.put(entry.getKey(), entry.getValue().snapshot());
+        }
+
+        SaveReport report = new SaveReport();
+        report.addChunk(batch.size(), System.nanoTime() - start);
+        return report;
+    }
+
+    @Override
+    public SaveReport insertMissing(List<Map.Entry<UUID, DatabaseManager.PlayerData>> batch) {
+        long start = System.nanoTime();
+        for (Map.Entry<UUID, DatabaseManager.PlayerData> entry : batch) {
+            rows.putIfAbsent(entry.getKey(), entry.getValue().snapshot());
+        }
+
+        SaveReport report = new SaveReport();
+        report.addChunk(batch.size(), System.nanoTime() - start);
+        return report;
+    }
+
+    @Override
+    public void saveDeltas(Collection<PlayerDelta> deltas) {
+        for (PlayerDelta delta : deltas) {
+            // Like an UPDATE, a delta for a missing row changes nothing
+            rows.computeIfPresent(delta.getUuid(), (uuid, row) -> {
+                delta.applyTo(row);
+                return row;
+            });
+        }
+    }
+
+    @Override
+    public void scan(UUID after, int pageSize, Consumer<List<Map.Entry<UUID, DatabaseManager.PlayerData>>> pages) {
+        List<Map.Entry<UUID, DatabaseManager.PlayerData>> page = new ArrayList<>(pageSize);
+        for (UUID uuid : UuidCodec.sortedAfter(rows.keySet(), after)) {
+            DatabaseManager.PlayerData row = load(uuid);
+            if (row == null) {
+                continue;
+            }
+
+            page.add(Map.entry(uuid, row));
+            if (page.size() >= pageSize) {
+                pages.accept(page);
+                page = new ArrayList<>(pageSize);
+            }
+        }
+        if (!page.isEmpty()) {
+            pages.accept(page);
+        }
+    }
+
+    @Override
+    public boolean delete(UUID uuid) {
+        return rows.remove(uuid) != null;
+    }
+
+    /**
+     * Rows are reset in place; there is nowhere to keep an archive
+     */
+    @Override
+    public long resetSeason(String archive, Set<String> carried, DatabaseManager.PlayerData start) {
+        rows.replaceAll((uuid, row) -> row.carriedOver(carried, start));
+        return rows.size();
+    }
+
+    @Override
+    public long settleAccrual(AccrualPolicy policy, long now) {
+        rows.replaceAll((uuid, row) -> {
+            DatabaseManager.PlayerData settled = row.snapshot();
+            settled.settleAccrual(policy, now);
+            return settled;
+        });
+        return rows.size();
+    }
+
+    @Override
+    public long massUpdate(MassUpdate update) {
+        long[] changed = new long[1];
+        rows.replaceAll((uuid, row) -> {
+            DatabaseManager.PlayerData updated = row.snapshot();
+            if (!updated.applyMassUpdate(update)) {
+                return row;
+            }
+            changed[0]++;
+            return updated;
+        });
+        return changed[0];
+    }
+
+    @Override
+    public void close() {
+    }
+}
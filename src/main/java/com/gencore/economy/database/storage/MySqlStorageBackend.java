@@ -0,0 +1,163 @@
+package com.gencore.economy.database.storage;
+
+import com.gencore.economy.database.DatabaseManager;
+import com.gencore.economy.database.DatabaseType;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * MySQL storage over a Hikari pool, one transaction per write call
+ */
+public class MySqlStorageBackend extends SqlStorageBackend {
+
+    private final String host;
+    private final int port;
+    private final String database;
+    private final String username;
+    private final String password;
+    private final int poolSize;
+
+    public MySqlStorageBackend(String host, int port, String database, String username, String password,
+                               int poolSize, int bulkChunkSize, Logger logger) {
+        super(DatabaseType.MYSQL, bulkChunkSize, logger);
+        this.host = host;
+        this.port = port;
+        this.database = database;
+        this.username = username;
+        this.password = password;
+        this.poolSize = poolSize;
+    }
+
+    @Override
+    public String getName() {
+        return "mysql";
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    @Override
+    public int getMaxConcurrency() {
+        return Math.max(1, poolSize);
+    }
+
+    @Override
+    public void initialize() throws StorageException {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("GenCore-MySQL");
+        config.setJdbcUrl("jdbc:mysql://" + host + ":" + port + "/" + database);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setDriverClassName("com.mysql.cj.jdbc.Driver");
+        // Lets the driver send batched upserts as multi-row statements
+        config.addDataSourceProperty("rewriteBatchedStatements", "true");
+        config.addDataSourceProperty("cachePrepStmts", "true");
+        config.addDataSourceProperty("prepStmtCacheSize", "250");
+        config.setMaximumPoolSize(Math.max(1, poolSize));
+        config.setMinimumIdle(2);
+        config.setConnectionTimeout(30000);
+        config.setIdleTimeout(600000);
+        config.setMaxLifetime(1800000);
+
+        try {
+            dataSource = new HikariDataSource(config);
+        } catch (RuntimeException e) {
+            throw new StorageException("Failed to connect to MySQL: " + e.getMessage(), e);
+        }
+
+        migrate();
+    }
+
+    @Override
+    public <T> T inTransaction(SqlWork<T> work) throws SQLException {
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                T result = work.run(conn);
+                conn.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    @Override
+    protected <T> T runExclusive(SqlWork<T> work) throws SQLException {
+        try (Connection conn = getConnection()) {
+            return work.run(conn);
+        }
+    }
+
+    /**
+     * Commits after every chunk so no transaction grows with the row count
+     */
+    @Override
+    public SaveReport saveBatch(List<Map.Entry<UUID, DatabaseManager.PlayerData>> rows) throws StorageException {
+        return writeChunked(rows, true);
+    }
+
+    @Override
+    public SaveReport insertMissing(List<Map.Entry<UUID, DatabaseManager.PlayerData>> rows) throws StorageException {
+        return writeChunked(rows, false);
+    }
+
+    /**
+     * The new table is filled beside the live one, then both are swapped with one
+     * atomic RENAME TABLE; the old table stays in the database as the archive
+     */
+    @Override
+    public long resetSeason(String archive, Set<String> carried, DatabaseManager.PlayerData start)
+            throws StorageException {
+        String copy = seasonCopy(archive, carried);
+        try {
+            return runExclusive(conn -> {
+                try (Statement stmt = conn.createStatement()) {
+                    // Left over if a previous attempt died before the swap
+                    stmt.execute("DROP TABLE IF EXISTS player_economy_next");
+                    stmt.execute("CREATE TABLE player_economy_next LIKE player_economy");
+                    long rows;
+                    try (PreparedStatement insert = conn.prepareStatement(copy)) {
+                        bindSeasonStart(insert, carried, start);
+                        rows = insert.executeUpdate();
+                    }
+                    stmt.execute("RENAME TABLE player_economy TO " + archive + ", player_economy_next TO player_economy");
+                    return rows;
+                }
+            });
+        } catch (SQLException e) {
+            throw new StorageException("Failed to reset season: " + e.getMessage(), e);
+        }
+    }
+
+    private SaveReport writeChunked(List<Map.Entry<UUID, DatabaseManager.PlayerData>> rows, boolean overwrite)
+            throws StorageException {
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                return bulkUpsert.write(conn, rows, true, overwrite);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new StorageException(e);
+        }
+    }
+}
@@ -0,0 +1,457 @@
+package com.gencore.economy.database.storage;
+
+import com.gencore.economy.database.AccrualPolicy;
+import com.gencore.economy.database.DatabaseManager;
+import com.gencore.economy.database.MassUpdate;
+import com.gencore.economy.database.PlayerDelta;
+import com.gencore.economy.database.UuidCodec;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * SQLite storage spread over several files by UUID hash, each with its own writer
+ *
+ * SQLite commits one transaction at a time per file, so a single economy.db caps
+ * write throughput however many threads save; here writes to different files
+ * commit in parallel. A batch is split by partition and the parts are written at
+ * the same time, and scans merge the partitions in key order while each one
+ * reads its next page ahead. The partition of an account depends on the count,
+ * so the count cannot change once there is data: copy into a new folder with
+ * another count instead (see TransferCli).
+ */
+public class PartitionedSqliteStorageBackend implements StorageBackend {
+
+    private static final Pattern PARTITION_FILE = Pattern.compile("economy-(\\d+)\\.db");
+
+    private final File folder;
+    private final SqliteStorageBackend[] partitions;
+    private final Logger logger;
+    // Only waits on partitions, so cheap threads are enough
+    private final ExecutorService fanOut = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * @param readPoolSize Read-only connections per partition
+     */
+    public PartitionedSqliteStorageBackend(File folder, int count, String synchronous, int maxGroupSize,
+                                           int readPoolSize, int bulkChunkSize, Logger logger) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Partition count must be at least 1");
+        }
+        this.folder = folder;
+        this.logger = logger;
+        this.partitions = new SqliteStorageBackend[count];
+        for (int i = 0; i < count; i++) {
+            partitions[i] = new SqliteStorageBackend(new File(folder, "economy-" + i + ".db"), synchronous,
+                    maxGroupSize, readPoolSize, bulkChunkSize, logger);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "partitioned";
+    }
+
+    public File getFolder() {
+        return folder;
+    }
+
+    public int getPartitionCount() {
+        return partitions.length;
+    }
+
+    /**
+     * One partition's file, e.g. to inspect or repair it on its own
+     */
+    SqliteStorageBackend getPartition(int index) {
+        return partitions[index];
+    }
+
+    /**
+     * Partition that holds an account; only stable for the same count
+     */
+    public int partitionOf(UUID uuid) {
+        long hash = uuid.getMostSignificantBits() ^ uuid.getLeastSignificantBits();
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        return Math.floorMod(hash, partitions.length);
+    }
+
+    @Override
+    public void initialize() throws StorageException {
+        if (!folder.exists() && !folder.mkdirs()) {
+            throw new StorageException("Could not create " + folder);
+        }
+
+        // Opening files laid out for another count would send every account to the wrong one
+        File[] existing = folder.listFiles((dir, name) -> PARTITION_FILE.matcher(name).matches());
+        if (existing != null && existing.length > 0) {
+            int highest = -1;
+            for (File file : existing) {
+                Matcher matcher = PARTITION_FILE.matcher(file.getName());
+                if (matcher.matches()) {
+                    highest = Math.max(highest, Integer.parseInt(matcher.group(1)));
+                }
+            }
+            if (existing.length != partitions.length || highest != partitions.length - 1) {
+                throw new StorageException(folder + " holds " + existing.length + " partitions but "
+                        + partitions.length + " are configured; repartition it offline with the standalone tool");
+            }
+        }
+
+        runAll(allPartitions(), (index, partition) -> {
+            partition.initialize();
+            return null;
+        });
+        logger.info("Opened " + partitions.length + " SQLite partitions in " + folder);
+    }
+
+    @Override
+    public int getMaxConcurrency() {
+        int total = 0;
+        for (SqliteStorageBackend partition : partitions) {
+            total += partition.getMaxConcurrency();
+        }
+        return total;
+    }
+
+    @Override
+    public DatabaseManager.PlayerData load(UUID uuid) throws StorageException {
+        return partitions[partitionOf(uuid)].load(uuid);
+    }
+
+    @Override
+    public Map<UUID, DatabaseManager.PlayerData> loadAll(Collection<UUID> uuids) throws StorageException {
+        Map<Integer, List<UUID>> groups = group(uuids, uuid -> uuid);
+        Map<UUID, DatabaseManager.PlayerData> result = new HashMap<>();
+        for (Map<UUID, DatabaseManager.PlayerData> rows
+                : runAll(groups.keySet(), (index, partition) -> partition.loadAll(groups.get(index)))) {
+            result.putAll(rows);
+        }
+        return result;
+    }
+
+    @Override
+    public SaveReport saveBatch(List<Map.Entry<UUID, DatabaseManager.PlayerData>> rows) throws StorageException {
+        Map<Integer, List<Map.Entry<UUID, DatabaseManager.PlayerData>>> groups = group(rows, Map.Entry::getKey);
+        // Full rows are idempotent, so partitions that committed before another failed are simply written again
+        return merge(runAll(groups.keySet(), (index, partition) -> partition.saveBatch(groups.get(index))));
+    }
+
+    @Override
+    public SaveReport insertMissing(List<Map.Entry<UUID, DatabaseManager.PlayerData>> rows) throws StorageException {
+        Map<Integer, List<Map.Entry<UUID, DatabaseManager.PlayerData>>> groups = group(rows, Map.Entry::getKey);
+        return merge(runAll(groups.keySet(), (index, partition) -> partition.insertMissing(groups.get(index))));
+    }
+
+    /**
+     * All or nothing like a single file: partitions that committed are reversed if another failed
+     */
+    @Override
+    public void saveDeltas(Collection<PlayerDelta> deltas) throws StorageException {
+        Map<Integer, List<PlayerDelta>> groups = group(deltas, PlayerDelta::getUuid);
+        Map<Integer, CompletableFuture<Void>> writes = new TreeMap<>();
+        for (int index : groups.keySet()) {
+            writes.put(index, submit(index, partition -> {
+                partition.saveDeltas(groups.get(index));
+                return null;
+            }));
+        }
+
+        StorageException failure = null;
+        List<Integer> committed = new ArrayList<>();
+        for (Map.Entry<Integer, CompletableFuture<Void>> write : writes.entrySet()) {
+            try {
+                await(write.getValue());
+                committed.add(write.getKey());
+            } catch (StorageException e) {
+                failure = failure != null ? failure : e;
+            }
+        }
+        if (failure == null) {
+            return;
+        }
+
+        // The caller hands every delta back and retries them all, which would count these twice
+        for (int index : committed) {
+            List<PlayerDelta> reversed = new ArrayList<>();
+            for (PlayerDelta delta : groups.get(index)) {
+                PlayerDelta undo = delta.reversed();
+                if (!undo.isEmpty()) {
+                    reversed.add(undo);
+                }
+            }
+            try {
+                partitions[index].saveDeltas(reversed);
+            } catch (StorageException e) {
+                logger.severe("Failed to reverse deltas in partition " + index + ", " + reversed.size()
+                        + " players will be counted twice when the write is retried: " + e.getMessage());
+            }
+        }
+        throw failure;
+    }
+
+    /**
+     * Partitions are read ahead in parallel and merged in key order, so the scan resumes like a single file's
+     */
+    @Override
+    public void scan(UUID after, int pageSize, Consumer<List<Map.Entry<UUID, DatabaseManager.PlayerData>>> pages)
+            throws StorageException {
+        List<Cursor> cursors = new ArrayList<>(partitions.length);
+        for (SqliteStorageBackend partition : partitions) {
+            cursors.add(new Cursor(partition, after, pageSize));
+        }
+
+        List<Map.Entry<UUID, DatabaseManager.PlayerData>> page = new ArrayList<>(pageSize);
+        while (true) {
+            Cursor smallest = null;
+            for (Cursor cursor : cursors) {
+                Map.Entry<UUID, DatabaseManager.PlayerData> head = cursor.head();
+                if (head != null && (smallest == null
+                        || UuidCodec.compare(head.getKey(), smallest.head().getKey()) < 0)) {
+                    smallest = cursor;
+                }
+            }
+            if (smallest == null) {
+                break;
+            }
+
+            page.add(smallest.take());
+            if (page.size() == pageSize) {
+                pages.accept(page);
+                page = new ArrayList<>(pageSize);
+            }
+        }
+        if (!page.isEmpty()) {
+            pages.accept(page);
+        }
+    }
+
+    @Override
+    public boolean delete(UUID uuid) throws StorageException {
+        return partitions[partitionOf(uuid)].delete(uuid);
+    }
+
+    /**
+     * Each partition archives to seasons/&lt;archive&gt;_&lt;partition&gt;.db in the folder
+     * Not atomic across partitions; a failure reports which partitions were already
+     * reset. Running the reset again resets every partition under a new archive
+     * name, so those are archived a second time and keep only their carried values.
+     */
+    @Override
+    public long resetSeason(String archive, Set<String> carried, DatabaseManager.PlayerData start)
+            throws StorageException {
+        Map<Integer, CompletableFuture<Long>> resets = new TreeMap<>();
+        for (int index : allPartitions()) {
+            resets.put(index, submit(index, partition -> partition.resetSeason(archive + "_" + index, carried, start)));
+        }
+
+        long rows = 0;
+        List<Integer> reset = new ArrayList<>();
+        StorageException failure = null;
+        for (Map.Entry<Integer, CompletableFuture<Long>> entry : resets.entrySet()) {
+            try {
+                rows += await(entry.getValue());
+                reset.add(entry.getKey());
+            } catch (StorageException e) {
+                failure = failure != null ? failure : e;
+            }
+        }
+        if (failure != null) {
+            throw new StorageException("Season reset failed after partitions " + reset + " were archived as "
+                    + archive + "_<partition>; the others still hold the old season: " + failure.getMessage(), failure);
+        }
+        return rows;
+    }
+
+    @Override
+    public long settleAccrual(AccrualPolicy policy, long now) throws StorageException {
+        return sum(runAll(allPartitions(), (index, partition) -> partition.settleAccrual(policy, now)));
+    }
+
+    /**
+     * Not atomic across partitions; a failure reports which partitions were already updated
+     */
+    @Override
+    public long massUpdate(MassUpdate update) throws StorageException {
+        Map<Integer, CompletableFuture<Long>> updates = new TreeMap<>();
+        for (int index : allPartitions()) {
+            updates.put(index, submit(index, partition -> partition.massUpdate(update)));
+        }
+
+        long rows = 0;
+        List<Integer> applied = new ArrayList<>();
+        StorageException failure = null;
+        for (Map.Entry<Integer, CompletableFuture<Long>> entry : updates.entrySet()) {
+            try {
+                rows += await(entry.getValue());
+                applied.add(entry.getKey());
+            } catch (StorageException e) {
+                failure = failure != null ? failure : e;
+            }
+        }
+        if (failure != null) {
+            throw new StorageException("Mass update failed after it was applied to partitions " + applied
+                    + ": " + failure.getMessage(), failure);
+        }
+        return rows;
+    }
+
+    @Override
+    public void close() {
+        fanOut.shutdown();
+        for (SqliteStorageBackend partition : partitions) {
+            partition.close();
+        }
+    }
+
+    @FunctionalInterface
+    private interface PartitionWork<T> {
+        T run(int index, SqliteStorageBackend partition) throws StorageException;
+    }
+
+    private List<Integer> allPartitions() {
+        List<Integer> all = new ArrayList<>(partitions.length);
+        for (int i = 0; i < partitions.length; i++) {
+            all.add(i);
+        }
+        return all;
+    }
+
+    private <T> Map<Integer, List<T>> group(Collection<T> items, Function<T, UUID> key) {
+        Map<Integer, List<T>> groups = new TreeMap<>();
+        for (T item : items) {
+            groups.computeIfAbsent(partitionOf(key.apply(item)), index -> new ArrayList<>()).add(item);
+        }
+        return groups;
+    }
+
+    /**
+     * Run work on the given partitions at the same time and wait for all of them
+     * A single partition runs on the calling thread.
+     * @throws StorageException the first failure, once every partition has finished
+     */
+    private <T> List<T> runAll(Collection<Integer> indexes, PartitionWork<T> work) throws StorageException {
+        if (indexes.size() == 1) {
+            int index = indexes.iterator().next();
+            return List.of(work.run(index, partitions[index]));
+        }
+
+        List<CompletableFuture<T>> futures = new ArrayList<>(indexes.size());
+        for (int index : indexes) {
+            futures.add(submit(index, partition -> work.run(index, partition)));
+        }
+
+        List<T> results = new ArrayList<>(futures.size());
+        StorageException failure = null;
+        for (CompletableFuture<T> future : futures) {
+            try {
+                results.add(await(future));
+            } catch (StorageException e) {
+                failure = failure != null ? failure : e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+
+    private <T> CompletableFuture<T> submit(int index, PartitionFunction<T> work) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return work.apply(partitions[index]);
+            } catch (StorageException e) {
+                throw new CompletionException(e);
+            }
+        }, fanOut);
+    }
+
+    @FunctionalInterface
+    private interface PartitionFunction<T> {
+        T apply(SqliteStorageBackend partition) throws StorageException;
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws StorageException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof StorageException storage) {
+                throw storage;
+            }
+            throw new StorageException(e.getCause() != null ? e.getCause() : e);
+        }
+    }
+
+    private static SaveReport merge(List<SaveReport> reports) {
+        SaveReport merged = new SaveReport();
+        reports.forEach(merged::addAll);
+        return merged;
+    }
+
+    private static long sum(List<Long> counts) {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Rows of one partition in key order, with the next page already being read
+     */
+    private final class Cursor {
+        private final SqliteStorageBackend partition;
+        private final int pageSize;
+        private final ArrayDeque<Map.Entry<UUID, DatabaseManager.PlayerData>> rows = new ArrayDeque<>();
+        // Null once the partition has no more rows
+        private CompletableFuture<List<Map.Entry<UUID, DatabaseManager.PlayerData>>> next;
+
+        private Cursor(SqliteStorageBackend partition, UUID after, int pageSize) {
+            this.partition = partition;
+            this.pageSize = pageSize;
+            this.next = fetch(after);
+        }
+
+        private Map.Entry<UUID, DatabaseManager.PlayerData> head() throws StorageException {
+            if (rows.isEmpty() && next != null) {
+                List<Map.Entry<UUID, DatabaseManager.PlayerData>> page = await(next);
+                rows.addAll(page);
+                next = page.size() < pageSize ? null : fetch(page.get(page.size() - 1).getKey());
+            }
+            return rows.peekFirst();
+        }
+
+        private Map.Entry<UUID, DatabaseManager.PlayerData> take() {
+            return rows.pollFirst();
+        }
+
+        private CompletableFuture<List<Map.Entry<UUID, DatabaseManager.PlayerData>>> fetch(UUID after) {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return partition.readPage(after, pageSize);
+                } catch (StorageException e) {
+                    throw new CompletionException(e);
+                }
+            }, fanOut);
+        }
+    }
+}
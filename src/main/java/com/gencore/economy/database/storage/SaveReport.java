@@ -0,0 +1,59 @@
+package com.gencore.economy.database.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Row counts and per-chunk timings of one batch save
+ */
+public class SaveReport {
+
+    private final List<Long> chunkNanos = new ArrayList<>();
+    private int rows;
+    private long totalNanos;
+
+    public void addChunk(int chunkRows, long nanos) {
+        rows += chunkRows;
+        totalNanos += nanos;
+        chunkNanos.add(nanos);
+    }
+
+    /**
+     * Add the chunks of another report, e.g. one partition's share of a batch
+     */
+    public void addAll(SaveReport other) {
+        rows += other.rows;
+        totalNanos += other.totalNanos;
+        chunkNanos.addAll(other.chunkNanos);
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getChunks() {
+        return chunkNanos.size();
+    }
+
+    public List<Long> getChunkNanos() {
+        return chunkNanos;
+    }
+
+    public long getTotalMillis() {
+        return totalNanos / 1_000_000;
+    }
+
+    public long getSlowestChunkMillis() {
+        long slowest = 0;
+        for (long nanos : chunkNanos) {
+            slowest = Math.max(slowest, nanos);
+        }
+        return slowest / 1_000_000;
+    }
+
+    @Override
+    public String toString() {
+        return rows + " rows in " + getChunks() + " chunks, " + getTotalMillis() + "ms (slowest chunk "
+                + getSlowestChunkMillis() + "ms)";
+    }
+}
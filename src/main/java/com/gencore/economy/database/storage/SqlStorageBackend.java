@@ -0,0 +1,376 @@
+package com.gencore.economy.database.storage;
+
+import com.gencore.economy.database.AccrualPolicy;
+import com.gencore.economy.database.DatabaseManager;
+import com.gencore.economy.database.DatabaseType;
+import com.gencore.economy.database.MassUpdate;
+import com.gencore.economy.database.PlayerDelta;
+import com.gencore.economy.database.UuidCodec;
+import com.gencore.economy.database.migration.SchemaMigrator;
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Shared JDBC implementation of {@link StorageBackend}
+ * Subclasses supply the connection setup and the write path for their dialect.
+ */
+public abstract class SqlStorageBackend implements StorageBackend {
+
+    private static final String SELECT_COLUMNS = "uuid, money, tokens, shards, credits, level, experience, rebirths, "
+            + "money_accrued_at, shards_accrued_at";
+
+    // Archive names end up in SQL, so only plain identifiers are accepted
+    private static final Pattern ARCHIVE_NAME = Pattern.compile("[A-Za-z0-9_]{1,64}");
+
+    // Keeps IN lists well under SQLite's bound parameter limit
+    private static final int MAX_IN_LIST = 500;
+
+    protected final Logger logger;
+    protected final DatabaseType type;
+    protected final BulkUpsert bulkUpsert;
+    protected HikariDataSource dataSource;
+
+    protected SqlStorageBackend(DatabaseType type, int bulkChunkSize, Logger logger) {
+        this.type = type;
+        this.logger = logger;
+        this.bulkUpsert = new BulkUpsert(type, bulkChunkSize);
+    }
+
+    public DatabaseType getType() {
+        return type;
+    }
+
+    /**
+     * Pooled connection for reads
+     */
+    public Connection getConnection() throws SQLException {
+        return dataSource.getConnection();
+    }
+
+    /**
+     * Run write work in one transaction and wait for the commit
+     */
+    public abstract <T> T inTransaction(SqlWork<T> work) throws SQLException;
+
+    /**
+     * Run work that manages its own transactions, such as schema migrations
+     */
+    protected abstract <T> T runExclusive(SqlWork<T> work) throws SQLException;
+
+    protected void migrate() throws StorageException {
+        SchemaMigrator migrator = new SchemaMigrator(logger, type);
+        try {
+            runExclusive(migrator::migrate);
+        } catch (SQLException e) {
+            throw new StorageException("Failed to create tables: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public DatabaseManager.PlayerData load(UUID uuid) throws StorageException {
+        String sql = "SELECT " + SELECT_COLUMNS + " FROM player_economy WHERE uuid = ?";
+
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setBytes(1, UuidCodec.toBytes(uuid));
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? readRow(rs) : null;
+            }
+        } catch (SQLException e) {
+            throw new StorageException(e);
+        }
+    }
+
+    @Override
+    public Map<UUID, DatabaseManager.PlayerData> loadAll(Collection<UUID> uuids) throws StorageException {
+        Map<UUID, DatabaseManager.PlayerData> result = new HashMap<>();
+        if (uuids.isEmpty()) {
+            return result;
+        }
+
+        List<UUID> all = new ArrayList<>(uuids);
+        try (Connection conn = getConnection()) {
+            for (int from = 0; from < all.size(); from += MAX_IN_LIST) {
+                List<UUID> chunk = all.subList(from, Math.min(all.size(), from + MAX_IN_LIST));
+                String sql = "SELECT " + SELECT_COLUMNS + " FROM player_economy WHERE uuid IN ("
+                        + "?, ".repeat(chunk.size() - 1) + "?)";
+
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        stmt.setBytes(i + 1, UuidCodec.toBytes(chunk.get(i)));
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            result.put(UuidCodec.fromBytes(rs.getBytes("uuid")), readRow(rs));
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new StorageException(e);
+        }
+        return result;
+    }
+
+    @Override
+    public void saveDeltas(Collection<PlayerDelta> deltas) throws StorageException {
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        // Group by changed columns so each group shares one prepared statement
+        Map<Integer, List<PlayerDelta>> byMask = new HashMap<>();
+        for (PlayerDelta delta : deltas) {
+            if (!delta.isEmpty()) {
+                byMask.computeIfAbsent(delta.getMask(), k -> new ArrayList<>()).add(delta);
+            }
+        }
+
+        try {
+            inTransaction(conn -> {
+                for (List<PlayerDelta> group : byMask.values()) {
+                    try (PreparedStatement stmt = conn.prepareStatement(group.get(0).toSql())) {
+                        int inBatch = 0;
+                        for (PlayerDelta delta : group) {
+                            delta.bind(stmt);
+                            stmt.addBatch();
+
+                            if (++inBatch >= bulkUpsert.getChunkSize()) {
+                                stmt.executeBatch();
+                                inBatch = 0;
+                            }
+                        }
+
+                        if (inBatch > 0) {
+                            stmt.executeBatch();
+                        }
+                    }
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            throw new StorageException(e);
+        }
+    }
+
+    /**
+     * Pages are read by key ("WHERE uuid > last ORDER BY uuid") so each query is
+     * short and no lock is held between pages
+     */
+    @Override
+    public void scan(UUID start, int pageSize, Consumer<List<Map.Entry<UUID, DatabaseManager.PlayerData>>> pages)
+            throws StorageException {
+        UUID after = start;
+        try (Connection conn = getConnection()) {
+            while (true) {
+                List<Map.Entry<UUID, DatabaseManager.PlayerData>> page = readPage(conn, after, pageSize);
+                if (page.isEmpty()) {
+                    return;
+                }
+                pages.accept(page);
+                if (page.size() < pageSize) {
+                    return;
+                }
+                after = page.get(page.size() - 1).getKey();
+            }
+        } catch (SQLException e) {
+            throw new StorageException(e);
+        }
+    }
+
+    /**
+     * One page of rows after the given key, in key order; for callers that merge several scans
+     */
+    List<Map.Entry<UUID, DatabaseManager.PlayerData>> readPage(UUID after, int pageSize) throws StorageException {
+        try (Connection conn = getConnection()) {
+            return readPage(conn, after, pageSize);
+        } catch (SQLException e) {
+            throw new StorageException(e);
+        }
+    }
+
+    private List<Map.Entry<UUID, DatabaseManager.PlayerData>> readPage(Connection conn, UUID after, int pageSize)
+            throws SQLException {
+        String sql = after == null
+                ? "SELECT " + SELECT_COLUMNS + " FROM player_economy ORDER BY uuid LIMIT ?"
+                : "SELECT " + SELECT_COLUMNS + " FROM player_economy WHERE uuid > ? ORDER BY uuid LIMIT ?";
+
+        List<Map.Entry<UUID, DatabaseManager.PlayerData>> page = new ArrayList<>(pageSize);
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            if (after != null) {
+                stmt.setBytes(index++, UuidCodec.toBytes(after));
+            }
+            stmt.setInt(index, pageSize);
+            stmt.setFetchSize(pageSize);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    page.add(Map.entry(UuidCodec.fromBytes(rs.getBytes("uuid")), readRow(rs)));
+                }
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public boolean delete(UUID uuid) throws StorageException {
+        try {
+            return inTransaction(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM player_economy WHERE uuid = ?")) {
+                    stmt.setBytes(1, UuidCodec.toBytes(uuid));
+                    return stmt.executeUpdate() > 0;
+                }
+            });
+        } catch (SQLException e) {
+            throw new StorageException(e);
+        }
+    }
+
+    /**
+     * Interest and decay for every row in one UPDATE per currency; see {@link StorageBackend#settleAccrual}
+     */
+    @Override
+    public long settleAccrual(AccrualPolicy policy, long now) throws StorageException {
+        try {
+            return inTransaction(conn -> {
+                long rows = 0;
+                if (policy.accruesMoney()) {
+                    rows = Math.max(rows, settle(conn, "money",
+                            "money * EXP(? * (? - money_accrued_at) / " + AccrualPolicy.DAY_MILLIS + ".0)",
+                            policy.getMoneyRate(), now));
+                }
+                if (policy.decaysShards()) {
+                    rows = Math.max(rows, settle(conn, "shards",
+                            "CEIL(shards * EXP(? * (? - shards_accrued_at) / " + AccrualPolicy.DAY_MILLIS + ".0))",
+                            policy.getShardRate(), now));
+                }
+                return rows;
+            });
+        } catch (SQLException e) {
+            throw new StorageException("Failed to settle accrual: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * A single UPDATE ... WHERE built from the update; see {@link MassUpdate#toSql(DatabaseType)}
+     */
+    @Override
+    public long massUpdate(MassUpdate update) throws StorageException {
+        try {
+            return inTransaction(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(update.toSql(type))) {
+                    update.bind(stmt);
+                    return (long) stmt.executeUpdate();
+                }
+            });
+        } catch (SQLException e) {
+            throw new StorageException("Failed to apply " + update + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Grow one column where it has a timestamp in the past and restamp every row, like {@link AccrualPolicy}
+     */
+    private static int settle(Connection conn, String column, String grown, double rate, long now) throws SQLException {
+        String stamp = column + "_accrued_at";
+        String sql = "UPDATE player_economy SET " + column + " = CASE WHEN " + column + " > 0 AND " + stamp + " > 0 AND "
+                + stamp + " < ? THEN " + grown + " ELSE " + column + " END, " + stamp + " = ? WHERE " + stamp + " <> ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, now);
+            stmt.setDouble(2, rate);
+            stmt.setLong(3, now);
+            stmt.setLong(4, now);
+            stmt.setLong(5, now);
+            return stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * INSERT ... SELECT that copies player_economy into player_economy_next for a new season
+     * Carried columns are copied; the others are parameters, bound by {@link #bindSeasonStart}.
+     */
+    protected static String seasonCopy(String archive, Set<String> carried) throws StorageException {
+        if (!ARCHIVE_NAME.matcher(archive).matches()) {
+            throw new StorageException("Invalid season archive name: " + archive);
+        }
+        for (String column : carried) {
+            if (!DatabaseManager.PlayerData.COLUMNS.contains(column)) {
+                throw new StorageException("Unknown column to carry over: " + column);
+            }
+        }
+
+        StringBuilder columns = new StringBuilder("uuid");
+        StringBuilder values = new StringBuilder("uuid");
+        for (String column : DatabaseManager.PlayerData.COLUMNS) {
+            columns.append(", ").append(column);
+            values.append(", ").append(carried.contains(column) ? column : "?");
+            // A carried balance keeps accruing from where it was; a reset one has no timestamp yet
+            if (carried.contains(column) && (column.equals("money") || column.equals("shards"))) {
+                columns.append(", ").append(column).append("_accrued_at");
+                values.append(", ").append(column).append("_accrued_at");
+            }
+        }
+        return "INSERT INTO player_economy_next (" + columns + ") SELECT " + values + " FROM player_economy";
+    }
+
+    /**
+     * Bind the starting values of the columns that are not carried, in {@link #seasonCopy} order
+     */
+    protected static void bindSeasonStart(PreparedStatement stmt, Set<String> carried, DatabaseManager.PlayerData start)
+            throws SQLException {
+        int index = 1;
+        for (String column : DatabaseManager.PlayerData.COLUMNS) {
+            if (carried.contains(column)) {
+                continue;
+            }
+            switch (column) {
+                case "money" -> stmt.setDouble(index++, start.money);
+                case "tokens" -> stmt.setLong(index++, start.tokens);
+                case "shards" -> stmt.setLong(index++, start.shards);
+                case "credits" -> stmt.setLong(index++, start.credits);
+                case "level" -> stmt.setInt(index++, start.level);
+                case "experience" -> stmt.setDouble(index++, start.experience);
+                case "rebirths" -> stmt.setInt(index++, start.rebirths);
+                default -> throw new SQLException("No starting value for column " + column);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (dataSource != null && !dataSource.isClosed()) {
+            dataSource.close();
+        }
+    }
+
+    protected static DatabaseManager.PlayerData readRow(ResultSet rs) throws SQLException {
+        return new DatabaseManager.PlayerData(
+                UuidCodec.fromBytes(rs.getBytes("uuid")),
+                rs.getDouble("money"),
+                rs.getLong("tokens"),
+                rs.getLong("shards"),
+                rs.getLong("credits"),
+                rs.getInt("level"),
+                rs.getDouble("experience"),
+                rs.getInt("rebirths"),
+                rs.getLong("money_accrued_at"),
+                rs.getLong("shards_accrued_at")
+        );
+    }
+}
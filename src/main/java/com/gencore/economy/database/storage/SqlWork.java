@@ -0,0 +1,14 @@
+package com.gencore.economy.database.storage;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Unit of JDBC work run against a connection the caller provides
+ * Write work runs inside a transaction owned by the caller and must not commit or roll back itself.
+ */
+@FunctionalInterface
+public interface SqlWork<T> {
+
+    T run(Connection conn) throws SQLException;
+}
@@ -0,0 +1,196 @@
+package com.gencore.economy.database.storage;
+
+import com.gencore.economy.database.DatabaseManager;
+import com.gencore.economy.database.DatabaseType;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.io.File;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * SQLite storage: one WAL-mode writer thread plus a small read-only pool
+ */
+public class SqliteStorageBackend extends SqlStorageBackend {
+
+    private final File file;
+    private final String synchronous;
+    private final int maxGroupSize;
+    private final int readPoolSize;
+    private SqliteWriter writer;
+
+    public SqliteStorageBackend(File file, String synchronous, int maxGroupSize, int readPoolSize,
+                                int bulkChunkSize, Logger logger) {
+        super(DatabaseType.SQLITE, bulkChunkSize, logger);
+        this.file = file;
+        this.synchronous = synchronous;
+        this.maxGroupSize = maxGroupSize;
+        this.readPoolSize = readPoolSize;
+    }
+
+    @Override
+    public String getName() {
+        return "sqlite";
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public void initialize() throws StorageException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new StorageException("Could not create " + parent);
+        }
+
+        try {
+            // All writes go through one connection; the pool below only reads
+            writer = new SqliteWriter(file, synchronous, maxGroupSize, logger);
+        } catch (SQLException e) {
+            throw new StorageException("Failed to open SQLite database: " + e.getMessage(), e);
+        }
+
+        migrate();
+
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("GenCore-SQLite-Read");
+        config.setJdbcUrl("jdbc:sqlite:" + file.getAbsolutePath());
+        config.setDriverClassName("org.sqlite.JDBC");
+        config.setDataSourceProperties(SqliteWriter.readOnlyProperties());
+        config.setReadOnly(true);
+        config.setMaximumPoolSize(Math.max(1, readPoolSize));
+        config.setMinimumIdle(1);
+        config.setConnectionTimeout(30000);
+        config.setIdleTimeout(600000);
+        config.setMaxLifetime(1800000);
+        dataSource = new HikariDataSource(config);
+    }
+
+    @Override
+    public <T> T inTransaction(SqlWork<T> work) throws SQLException {
+        // Shares its transaction with whatever else is queued on the writer
+        return writer.execute(work);
+    }
+
+    @Override
+    protected <T> T runExclusive(SqlWork<T> work) throws SQLException {
+        return writer.executeExclusive(work);
+    }
+
+    @Override
+    public int getMaxConcurrency() {
+        // Every reader plus one caller waiting on the writer
+        return Math.max(1, readPoolSize) + 1;
+    }
+
+    public SqliteWriter getWriter() {
+        return writer;
+    }
+
+    @Override
+    public SaveReport saveBatch(List<Map.Entry<UUID, DatabaseManager.PlayerData>> rows) throws StorageException {
+        try {
+            return inTransaction(conn -> bulkUpsert.write(conn, rows, false));
+        } catch (SQLException e) {
+            throw new StorageException(e);
+        }
+    }
+
+    @Override
+    public SaveReport insertMissing(List<Map.Entry<UUID, DatabaseManager.PlayerData>> rows) throws StorageException {
+        try {
+            return inTransaction(conn -> bulkUpsert.write(conn, rows, false, false));
+        } catch (SQLException e) {
+            throw new StorageException(e);
+        }
+    }
+
+    /**
+     * The old table is copied into its own file under seasons/, then replaced by a
+     * new one in the same transaction; readers see either season, never a mix
+     */
+    @Override
+    public long resetSeason(String archive, Set<String> carried, DatabaseManager.PlayerData start)
+            throws StorageException {
+        String copy = seasonCopy(archive, carried);
+        File archiveFile = new File(file.getAbsoluteFile().getParentFile(), "seasons/" + archive + ".db");
+        if (archiveFile.exists()) {
+            throw new StorageException("Season archive " + archiveFile + " already exists");
+        }
+        if (!archiveFile.getParentFile().exists() && !archiveFile.getParentFile().mkdirs()) {
+            throw new StorageException("Could not create " + archiveFile.getParentFile());
+        }
+
+        try {
+            return runExclusive(conn -> {
+                String ddl;
+                try (Statement stmt = conn.createStatement();
+                     ResultSet rs = stmt.executeQuery(
+                             "SELECT sql FROM sqlite_master WHERE type = 'table' AND name = 'player_economy'")) {
+                    if (!rs.next()) {
+                        throw new SQLException("player_economy does not exist");
+                    }
+                    ddl = rs.getString(1);
+                }
+
+                // ATTACH is not allowed inside a transaction
+                try (PreparedStatement attach = conn.prepareStatement("ATTACH DATABASE ? AS season_archive")) {
+                    attach.setString(1, archiveFile.getAbsolutePath());
+                    attach.execute();
+                }
+                try (Statement stmt = conn.createStatement()) {
+                    conn.setAutoCommit(false);
+                    try {
+                        stmt.execute(withTableName(ddl, "season_archive.player_economy"));
+                        stmt.execute("INSERT INTO season_archive.player_economy SELECT * FROM main.player_economy");
+                        stmt.execute(withTableName(ddl, "player_economy_next"));
+                        long rows;
+                        try (PreparedStatement insert = conn.prepareStatement(copy)) {
+                            bindSeasonStart(insert, carried, start);
+                            rows = insert.executeUpdate();
+                        }
+                        stmt.execute("DROP TABLE player_economy");
+                        stmt.execute("ALTER TABLE player_economy_next RENAME TO player_economy");
+                        conn.commit();
+                        return rows;
+                    } catch (SQLException e) {
+                        conn.rollback();
+                        throw e;
+                    } finally {
+                        conn.setAutoCommit(true);
+                        stmt.execute("DETACH DATABASE season_archive");
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            if (archiveFile.exists() && !archiveFile.delete()) {
+                logger.warning("Could not delete incomplete season archive " + archiveFile);
+            }
+            throw new StorageException("Failed to reset season: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The stored CREATE TABLE statement of player_economy with another table name
+     */
+    private static String withTableName(String ddl, String table) {
+        return ddl.replaceFirst("(?i)^CREATE TABLE\\s+[\"`\\[]?player_economy[\"`\\]]?", "CREATE TABLE " + table);
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        if (writer != null) {
+            writer.close();
+        }
+    }
+}
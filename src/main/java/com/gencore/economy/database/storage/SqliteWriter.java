@@ -0,0 +1,271 @@
+package com.gencore.economy.database.storage;
+
+import org.sqlite.SQLiteConfig;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Owns the only write connection to a SQLite database
+ *
+ * SQLite allows one writer at a time, so instead of letting pool threads fight
+ * over the write lock (and fail with SQLITE_BUSY), every write is queued to a
+ * single thread. Whatever is queued when the thread wakes up is committed in one
+ * transaction, which turns many small fsyncs into one. Reads go through a
+ * separate read-only pool and are not blocked by writes in WAL mode.
+ */
+public class SqliteWriter implements AutoCloseable {
+
+    private final Logger logger;
+    private final Connection connection;
+    private final int maxGroupSize;
+    private final BlockingQueue<Task<?>> queue = new LinkedBlockingQueue<>();
+    private final Thread thread;
+    // Guards running together with queue.add, so nothing is queued after close() starts
+    private final Object lifecycle = new Object();
+    private volatile boolean running = true;
+
+    public SqliteWriter(File file, String synchronous, int maxGroupSize, Logger logger) throws SQLException {
+        this.logger = logger;
+        this.maxGroupSize = Math.max(1, maxGroupSize);
+
+        SQLiteConfig config = new SQLiteConfig();
+        config.setJournalMode(SQLiteConfig.JournalMode.WAL);
+        config.setSynchronous(parseSynchronous(synchronous));
+        config.setBusyTimeout(10000);
+        this.connection = config.createConnection("jdbc:sqlite:" + file.getAbsolutePath());
+        this.connection.setAutoCommit(false);
+
+        this.thread = new Thread(this::runLoop, "GenCore-SQLite-Writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Connection properties for read-only connections to the same file
+     */
+    public static java.util.Properties readOnlyProperties() {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setReadOnly(true);
+        config.setBusyTimeout(10000);
+        return config.toProperties();
+    }
+
+    /**
+     * Queue write work; it is committed together with whatever else is queued
+     */
+    public <T> CompletableFuture<T> submit(SqlWork<T> work) {
+        return enqueue(new Task<>(work, true));
+    }
+
+    /**
+     * Run work on the writer thread outside the grouped transactions, e.g. schema migrations
+     */
+    public <T> CompletableFuture<T> submitExclusive(SqlWork<T> work) {
+        return enqueue(new Task<>(work, false));
+    }
+
+    /**
+     * Run write work and wait for its commit
+     */
+    public <T> T execute(SqlWork<T> work) throws SQLException {
+        return await(submit(work));
+    }
+
+    public <T> T executeExclusive(SqlWork<T> work) throws SQLException {
+        return await(submitExclusive(work));
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    private <T> CompletableFuture<T> enqueue(Task<T> task) {
+        synchronized (lifecycle) {
+            if (running) {
+                queue.add(task);
+                return task.future;
+            }
+        }
+        task.fail(new RejectedExecutionException("SQLite writer is closed"));
+        return task.future;
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws SQLException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            throw new SQLException(e.getCause());
+        }
+    }
+
+    private void runLoop() {
+        List<Task<?>> group = new ArrayList<>(maxGroupSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Task<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                if (!first.grouped) {
+                    runExclusive(first);
+                    continue;
+                }
+
+                group.add(first);
+                // Stop at an exclusive task so it still runs in queue order
+                while (group.size() < maxGroupSize) {
+                    Task<?> next = queue.peek();
+                    if (next == null || !next.grouped) {
+                        break;
+                    }
+                    group.add(queue.poll());
+                }
+
+                runGroup(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private void runGroup(List<Task<?>> group) {
+        try {
+            for (Task<?> task : group) {
+                task.run(connection);
+            }
+            connection.commit();
+            for (Task<?> task : group) {
+                task.complete();
+            }
+        } catch (SQLException e) {
+            rollbackQuietly();
+            if (group.size() == 1) {
+                group.get(0).fail(e);
+                return;
+            }
+            // One bad task must not fail the rest, so retry each on its own
+            for (Task<?> task : group) {
+                try {
+                    task.run(connection);
+                    connection.commit();
+                    task.complete();
+                } catch (SQLException single) {
+                    rollbackQuietly();
+                    task.fail(single);
+                }
+            }
+        }
+    }
+
+    private void runExclusive(Task<?> task) {
+        try {
+            connection.setAutoCommit(true);
+            task.run(connection);
+            task.complete();
+        } catch (SQLException e) {
+            task.fail(e);
+        } finally {
+            try {
+                connection.setAutoCommit(false);
+            } catch (SQLException e) {
+                logger.severe("Failed to reset SQLite writer connection: " + e.getMessage());
+            }
+        }
+    }
+
+    private void rollbackQuietly() {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            logger.severe("Failed to roll back SQLite write group: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stop accepting work, finish what is queued and close the connection
+     * Work the thread did not get to in time fails with RejectedExecutionException.
+     */
+    @Override
+    public void close() {
+        synchronized (lifecycle) {
+            running = false;
+        }
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            logger.warning("SQLite writer did not finish queued writes in time");
+        }
+
+        List<Task<?>> leftover = new ArrayList<>();
+        queue.drainTo(leftover);
+        for (Task<?> task : leftover) {
+            task.fail(new RejectedExecutionException("SQLite writer closed before the write ran"));
+        }
+
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.severe("Failed to close SQLite writer connection: " + e.getMessage());
+        }
+    }
+
+    private static SQLiteConfig.SynchronousMode parseSynchronous(String value) {
+        if (value != null) {
+            for (SQLiteConfig.SynchronousMode mode : SQLiteConfig.SynchronousMode.values()) {
+                if (mode.name().equalsIgnoreCase(value)) {
+                    return mode;
+                }
+            }
+        }
+        return SQLiteConfig.SynchronousMode.NORMAL;
+    }
+
+    private static final class Task<T> {
+        private final SqlWork<T> work;
+        private final boolean grouped;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private T result;
+
+        private Task(SqlWork<T> work, boolean grouped) {
+            this.work = work;
+            this.grouped = grouped;
+        }
+
+        private void run(Connection conn) throws SQLException {
+            try {
+                result = work.run(conn);
+            } catch (RuntimeException e) {
+                throw new SQLException(e);
+            }
+        }
+
+        private void complete() {
+            future.complete(result);
+        }
+
+        private void fail(Throwable t) {
+            future.completeExceptionally(t);
+        }
+    }
+}
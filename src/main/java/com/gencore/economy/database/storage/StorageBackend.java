@@ -0,0 +1,118 @@
+package com.gencore.economy.database.storage;
+
+import com.gencore.economy.database.AccrualPolicy;
+import com.gencore.economy.database.DatabaseManager;
+import com.gencore.economy.database.MassUpdate;
+import com.gencore.economy.database.PlayerDelta;
+import com.gencore.economy.database.UuidCodec;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Where player_economy rows live
+ *
+ * The cache layer in {@link DatabaseManager} only talks to this interface, so
+ * each backend can tune its own hot path. Implementations must be thread-safe.
+ * Returned PlayerData objects are fresh copies owned by the caller, and rows
+ * passed in are snapshots that do not change while a call runs.
+ */
+public interface StorageBackend extends AutoCloseable {
+
+    /**
+     * Short name used in logs and config, e.g. "sqlite"
+     */
+    String getName();
+
+    /**
+     * Open connections or files and bring the schema up to date
+     */
+    void initialize() throws StorageException;
+
+    /**
+     * @return The stored row, or null if the player has none
+     */
+    DatabaseManager.PlayerData load(UUID uuid) throws StorageException;
+
+    /**
+     * Load many players at once; players without a row are left out of the result
+     */
+    Map<UUID, DatabaseManager.PlayerData> loadAll(Collection<UUID> uuids) throws StorageException;
+
+    /**
+     * Write full rows, creating the ones that do not exist
+     */
+    SaveReport saveBatch(List<Map.Entry<UUID, DatabaseManager.PlayerData>> rows) throws StorageException;
+
+    /**
+     * Create the rows that do not exist yet and leave existing ones untouched
+     * For imports, which must never overwrite a balance the server already has,
+     * and for an account's first write, which must not overwrite a row imported in the meantime.
+     */
+    SaveReport insertMissing(List<Map.Entry<UUID, DatabaseManager.PlayerData>> rows) throws StorageException;
+
+    /**
+     * Add per-column deltas to existing rows, all or nothing
+     */
+    void saveDeltas(Collection<PlayerDelta> deltas) throws StorageException;
+
+    /**
+     * Stream every row in pages so memory stays bounded by the page size
+     */
+    default void scan(int pageSize, Consumer<List<Map.Entry<UUID, DatabaseManager.PlayerData>>> pages)
+            throws StorageException {
+        scan(null, pageSize, pages);
+    }
+
+    /**
+     * Stream the rows whose key sorts after the given one, in key order
+     * Keys are ordered like their 16-byte form ({@link UuidCodec#compare}), so a scan can be resumed from the last key it returned.
+     * @param after Last key already seen, or null to start from the first row
+     */
+    void scan(UUID after, int pageSize, Consumer<List<Map.Entry<UUID, DatabaseManager.PlayerData>>> pages)
+            throws StorageException;
+
+    /**
+     * @return true if a row was removed
+     */
+    boolean delete(UUID uuid) throws StorageException;
+
+    /**
+     * Archive every row and start a new season in which accounts keep only the carried columns
+     * Every account keeps a row; the other columns go back to the season's starting values.
+     * Writes must be held back while this runs.
+     * @param archive Name for the archive, e.g. a table or file name; letters, digits and underscores
+     * @param carried Columns from {@link DatabaseManager.PlayerData#COLUMNS} to keep
+     * @param start Values the other columns start from, usually the configured starting balances
+     * @return Accounts carried into the new season
+     */
+    long resetSeason(String archive, Set<String> carried, DatabaseManager.PlayerData start) throws StorageException;
+
+    /**
+     * Apply money interest and shard decay up to now to every account and stamp it with now
+     * Accounts that had not started accruing start from now. Writes must be held back while this runs.
+     * @return Accounts updated
+     */
+    long settleAccrual(AccrualPolicy policy, long now) throws StorageException;
+
+    /**
+     * Apply one change to every account the update's filter selects, in one pass over storage
+     * Writes must be held back while this runs.
+     * @return Accounts changed
+     */
+    long massUpdate(MassUpdate update) throws StorageException;
+
+    /**
+     * Most calls that can usefully run at once, usually the connection pool size
+     */
+    default int getMaxConcurrency() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    @Override
+    void close();
+}
@@ -0,0 +1,19 @@
+package com.gencore.economy.database.storage;
+
+/**
+ * A storage backend could not complete an operation
+ */
+public class StorageException extends Exception {
+
+    public StorageException(String message) {
+        super(message);
+    }
+
+    public StorageException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public StorageException(Throwable cause) {
+        super(cause.getMessage(), cause);
+    }
+}
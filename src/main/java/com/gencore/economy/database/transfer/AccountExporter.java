@@ -0,0 +1,277 @@
+package com.gencore.economy.database.transfer;
+
+import com.gencore.economy.database.DatabaseManager;
+import com.gencore.economy.database.storage.StorageBackend;
+import com.gencore.economy.database.storage.StorageException;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams accounts to a gzip-compressed CSV or NDJSON file
+ *
+ * Rows are read with the backend's keyset scan: every page is one short query,
+ * so no read transaction or lock is held between pages. Pages go through a
+ * small bounded queue to a writer thread that filters, formats and compresses
+ * them, so memory stays at a few pages however large the table is. Before each
+ * page the reader steps aside for a moment while player-facing database work
+ * is waiting. The file is written under a temporary name and only moved into
+ * place once complete.
+ */
+public class AccountExporter {
+
+    public enum Format {
+        /** Same columns as {@link CsvAccountFormat}, so an export can be imported again */
+        CSV("csv"),
+        /** One JSON object per line */
+        NDJSON("ndjson");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension + ".gz";
+        }
+    }
+
+    /**
+     * @param scanned Rows read from storage
+     * @param exported Rows that passed the filter and were written
+     */
+    public record Report(File file, long scanned, long exported, long bytes, long millis) {
+        @Override
+        public String toString() {
+            return String.format("%d of %d accounts to %s (%d KiB) in %.1fs",
+                    exported, scanned, file.getName(), bytes / 1024, millis / 1000.0);
+        }
+    }
+
+    // Pages waiting for the writer; bounds memory to this many pages plus the ones being read and written
+    private static final int QUEUE_PAGES = 4;
+    private static final long MAX_YIELD_MILLIS = 250;
+    // Marks the end of the scan; compared by identity
+    private static final List<Map.Entry<UUID, DatabaseManager.PlayerData>> END = Collections.unmodifiableList(new ArrayList<>());
+
+    private final StorageBackend backend;
+    private final File file;
+    private final Format format;
+    private final AccountFilter filter;
+    private final int pageSize;
+    private final BooleanSupplier othersWaiting;
+    private final Logger logger;
+
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private final LongAdder scanned = new LongAdder();
+    private final LongAdder exported = new LongAdder();
+
+    /**
+     * @param othersWaiting True while more urgent database work is queued; the reader pauses between pages then
+     */
+    public AccountExporter(StorageBackend backend, File file, Format format, AccountFilter filter, int pageSize,
+                           BooleanSupplier othersWaiting, Logger logger) {
+        this.backend = backend;
+        this.file = file;
+        this.format = format;
+        this.filter = filter;
+        this.pageSize = Math.max(1, pageSize);
+        this.othersWaiting = othersWaiting;
+        this.logger = logger;
+    }
+
+    /**
+     * Export on the calling thread; the formatting runs on a helper thread
+     * @throws StorageException if reading or writing fails or the export was cancelled; no file is left behind then
+     */
+    public Report run() throws StorageException {
+        long start = System.nanoTime();
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new StorageException("Could not create " + parent);
+        }
+
+        File temp = new File(file.getPath() + ".part");
+        BlockingQueue<List<Map.Entry<UUID, DatabaseManager.PlayerData>>> queue = new ArrayBlockingQueue<>(QUEUE_PAGES);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread writer = new Thread(() -> {
+            try {
+                write(temp, queue);
+            } catch (IOException | RuntimeException e) {
+                failure.compareAndSet(null, e);
+                // Unblock the reader
+                queue.clear();
+            } catch (InterruptedException e) {
+                failure.compareAndSet(null, e);
+            }
+        }, "GenCore-Export-Writer");
+        writer.setDaemon(true);
+        writer.start();
+
+        try {
+            backend.scan(null, pageSize, page -> {
+                if (failure.get() != null || cancelled.get()) {
+                    throw new Stop();
+                }
+                scanned.add(page.size());
+                put(queue, page, failure);
+                yieldToOthers();
+            });
+        } catch (Stop ignored) {
+            // Writer failed or cancelled; handled below
+        } catch (StorageException | RuntimeException e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            put(queue, END, failure);
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure.compareAndSet(null, e);
+            }
+        }
+
+        Throwable error = failure.get();
+        if (error == null && cancelled.get()) {
+            error = new IllegalStateException("cancelled");
+        }
+        if (error != null) {
+            if (temp.exists() && !temp.delete()) {
+                logger.warning("Could not delete " + temp);
+            }
+            throw new StorageException("Export to " + file.getName() + " stopped after "
+                    + exported.sum() + " accounts: " + error.getMessage(), error);
+        }
+
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new StorageException("Failed to move export into place: " + e.getMessage(), e);
+        }
+        return new Report(file, scanned.sum(), exported.sum(), file.length(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Stop after the current page; the partial file is deleted
+     */
+    public void cancel() {
+        cancelled.set(true);
+    }
+
+    public long getExportedRows() {
+        return exported.sum();
+    }
+
+    private void write(File temp, BlockingQueue<List<Map.Entry<UUID, DatabaseManager.PlayerData>>> queue)
+            throws IOException, InterruptedException {
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(new FileOutputStream(temp), 65536), StandardCharsets.UTF_8), 65536)) {
+            if (format == Format.CSV) {
+                out.write(String.join(",", CsvAccountFormat.COLUMNS));
+                out.write('\n');
+            }
+
+            StringBuilder line = new StringBuilder(160);
+            while (true) {
+                List<Map.Entry<UUID, DatabaseManager.PlayerData>> page = queue.take();
+                if (page == END) {
+                    return;
+                }
+                for (Map.Entry<UUID, DatabaseManager.PlayerData> entry : page) {
+                    if (!filter.test(entry.getKey(), entry.getValue())) {
+                        continue;
+                    }
+                    line.setLength(0);
+                    format(line, entry.getKey(), entry.getValue());
+                    out.append(line);
+                    exported.increment();
+                }
+            }
+        }
+    }
+
+    private void format(StringBuilder line, UUID uuid, DatabaseManager.PlayerData data) {
+        if (format == Format.CSV) {
+            line.append(uuid).append(',')
+                    .append(data.money).append(',')
+                    .append(data.tokens).append(',')
+                    .append(data.shards).append(',')
+                    .append(data.credits).append(',')
+                    .append(data.level).append(',')
+                    .append(data.experience).append(',')
+                    .append(data.rebirths).append('\n');
+        } else {
+            line.append("{\"uuid\":\"").append(uuid)
+                    .append("\",\"money\":").append(data.money)
+                    .append(",\"tokens\":").append(data.tokens)
+                    .append(",\"shards\":").append(data.shards)
+                    .append(",\"credits\":").append(data.credits)
+                    .append(",\"level\":").append(data.level)
+                    .append(",\"experience\":").append(data.experience)
+                    .append(",\"rebirths\":").append(data.rebirths)
+                    .append("}\n");
+        }
+    }
+
+    /**
+     * Hand a page to the writer, giving up if the writer has failed
+     */
+    private static void put(BlockingQueue<List<Map.Entry<UUID, DatabaseManager.PlayerData>>> queue,
+                            List<Map.Entry<UUID, DatabaseManager.PlayerData>> page, AtomicReference<Throwable> failure) {
+        try {
+            while (!queue.offer(page, 100, TimeUnit.MILLISECONDS)) {
+                if (failure.get() != null) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, e);
+        }
+    }
+
+    private void yieldToOthers() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MAX_YIELD_MILLIS);
+        while (othersWaiting.getAsBoolean() && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Thrown out of the scan callback to stop reading early
+     */
+    private static final class Stop extends RuntimeException {
+        private Stop() {
+            super(null, null, false, false);
+        }
+    }
+}
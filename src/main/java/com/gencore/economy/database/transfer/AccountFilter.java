@@ -0,0 +1,115 @@
+package com.gencore.economy.database.transfer;
+
+import com.gencore.economy.database.DatabaseManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Selects accounts by their balances, e.g. "money>=1000,rebirths=0"
+ *
+ * Conditions are separated by commas and must all hold. Each is a column
+ * (money, tokens, shards, credits, level, experience, rebirths), an operator
+ * (=, !=, &lt;, &lt;=, &gt;, &gt;=) and a number.
+ */
+public final class AccountFilter {
+
+    public static final AccountFilter ALL = new AccountFilter("", List.of());
+
+    private static final Pattern CONDITION = Pattern.compile("([a-z]+)\\s*(!=|<=|>=|=|<|>)\\s*(-?[0-9.eE+-]+)");
+
+    /**
+     * One comparison; money and experience compare as doubles, the other columns as longs
+     */
+    public record Condition(String column, String operator, double decimal, long integer) {
+
+        boolean test(DatabaseManager.PlayerData data) {
+            int compared = switch (column) {
+                case "money" -> Double.compare(data.money, decimal);
+                case "experience" -> Double.compare(data.experience, decimal);
+                case "tokens" -> Long.compare(data.tokens, integer);
+                case "shards" -> Long.compare(data.shards, integer);
+                case "credits" -> Long.compare(data.credits, integer);
+                case "level" -> Long.compare(data.level, integer);
+                default -> Long.compare(data.rebirths, integer);
+            };
+            return switch (operator) {
+                case "=" -> compared == 0;
+                case "!=" -> compared != 0;
+                case "<" -> compared < 0;
+                case "<=" -> compared <= 0;
+                case ">" -> compared > 0;
+                default -> compared >= 0;
+            };
+        }
+    }
+
+    private final String expression;
+    private final List<Condition> conditions;
+
+    private AccountFilter(String expression, List<Condition> conditions) {
+        this.expression = expression;
+        this.conditions = conditions;
+    }
+
+    /**
+     * @param expression Comma-separated conditions; blank or "all" selects every account
+     * @throws IllegalArgumentException with a message fit for the command sender if the expression is invalid
+     */
+    public static AccountFilter parse(String expression) {
+        String trimmed = expression == null ? "" : expression.trim().toLowerCase(Locale.ROOT);
+        if (trimmed.isEmpty() || trimmed.equals("all")) {
+            return ALL;
+        }
+
+        List<Condition> conditions = new ArrayList<>();
+        for (String part : trimmed.split(",")) {
+            Matcher matcher = CONDITION.matcher(part.trim());
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException("Invalid condition '" + part.trim() + "', expected e.g. money>=1000");
+            }
+
+            String column = matcher.group(1);
+            if (!CsvAccountFormat.COLUMNS.contains(column) || column.equals("uuid")) {
+                throw new IllegalArgumentException("Unknown column '" + column + "'");
+            }
+
+            String value = matcher.group(3);
+            try {
+                boolean decimal = column.equals("money") || column.equals("experience");
+                conditions.add(decimal
+                        ? new Condition(column, matcher.group(2), Double.parseDouble(value), 0)
+                        : new Condition(column, matcher.group(2), 0.0, Long.parseLong(value)));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid number '" + value + "' for " + column);
+            }
+        }
+        return new AccountFilter(trimmed, List.copyOf(conditions));
+    }
+
+    public boolean test(UUID uuid, DatabaseManager.PlayerData data) {
+        for (Condition condition : conditions) {
+            if (!condition.test(data)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isAll() {
+        return conditions.isEmpty();
+    }
+
+    public List<Condition> getConditions() {
+        return conditions;
+    }
+
+    @Override
+    public String toString() {
+        return isAll() ? "all" : expression;
+    }
+}
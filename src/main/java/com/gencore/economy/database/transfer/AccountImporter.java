@@ -0,0 +1,253 @@
+package com.gencore.economy.database.transfer;
+
+import com.gencore.economy.database.DatabaseManager;
+import com.gencore.economy.database.storage.StorageBackend;
+import com.gencore.economy.database.storage.StorageException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Imports accounts from another economy plugin's files
+ *
+ * One thread cuts the input into units ({@link ImportFormat#split}) and a pool
+ * of workers parses them in parallel. Parsed rows are gathered into batches
+ * that the worker filling a batch writes with {@link StorageBackend#insertMissing},
+ * so the bulk write path does the I/O and an account the server already has is
+ * never overwritten. A UUID that appears twice in the input is imported once
+ * (the first one parsed wins).
+ */
+public class AccountImporter {
+
+    /**
+     * Counts of one import
+     * @param existing Rows skipped because the account already exists
+     * @param duplicates Rows skipped because the same UUID came earlier in the input
+     * @param failed Records that could not be parsed
+     */
+    public record Report(long units, long rows, long imported, long existing, long duplicates, long failed,
+                         long millis) {
+        @Override
+        public String toString() {
+            return String.format("%d rows from %d units in %.1fs: %d imported, %d already existed, %d duplicates, %d failed",
+                    rows, units, millis / 1000.0, imported, existing, duplicates, failed);
+        }
+    }
+
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+    // Parse errors logged one by one; the rest are only counted
+    private static final int LOGGED_ERRORS = 20;
+
+    private final StorageBackend target;
+    private final int parallelism;
+    private final int batchSize;
+    private final Logger logger;
+
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private final Set<UUID> seen = ConcurrentHashMap.newKeySet();
+    private final LongAdder units = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder imported = new LongAdder();
+    private final LongAdder existing = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    // Only touched by the thread running run()
+    private long lastReport = System.nanoTime();
+
+    private final Object batchLock = new Object();
+    private List<Map.Entry<UUID, DatabaseManager.PlayerData>> batch;
+
+    /**
+     * @param parallelism Parse workers; each also writes the batches it fills
+     * @param batchSize Rows per insertMissing call
+     */
+    public AccountImporter(StorageBackend target, int parallelism, int batchSize, Logger logger) {
+        this.target = target;
+        this.parallelism = Math.max(1, parallelism);
+        this.batchSize = Math.max(1, batchSize);
+        this.logger = logger;
+        this.batch = new ArrayList<>(this.batchSize);
+    }
+
+    /**
+     * Import everything the format reads; an importer runs once
+     * @throws StorageException if the input cannot be read, a write fails or the import was cancelled;
+     *                          batches written before that stay written
+     */
+    public <T> Report run(ImportFormat<T> format) throws StorageException {
+        long start = System.nanoTime();
+        // A few units per worker waiting, so the splitter never runs far ahead
+        int window = parallelism * 4;
+        Semaphore queued = new Semaphore(window);
+
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism, workerFactory());
+        try {
+            format.split(unit -> {
+                if (failure.get() != null || cancelled.get()) {
+                    throw new Stop();
+                }
+                queued.acquireUninterruptibly();
+                workers.execute(() -> {
+                    try {
+                        if (failure.get() == null && !cancelled.get()) {
+                            format.parse(unit, this::accept, this::parseError);
+                            units.increment();
+                        }
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        queued.release();
+                    }
+                });
+                reportProgress(format, start);
+            });
+        } catch (Stop ignored) {
+            // Failure or cancel noticed by the splitter; handled below
+        } catch (IOException e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            workers.shutdown();
+            try {
+                while (!queued.tryAcquire(window, 5, TimeUnit.SECONDS)) {
+                    reportProgress(format, start);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelled.set(true);
+            }
+        }
+
+        if (failure.get() == null && !cancelled.get()) {
+            List<Map.Entry<UUID, DatabaseManager.PlayerData>> rest;
+            synchronized (batchLock) {
+                rest = batch;
+                batch = new ArrayList<>();
+            }
+            write(rest);
+        }
+
+        Throwable error = failure.get();
+        if (error != null) {
+            throw new StorageException("Import from " + format.getName() + " stopped after " + imported.sum()
+                    + " accounts: " + error.getMessage(), error);
+        }
+        if (cancelled.get()) {
+            throw new StorageException("Import from " + format.getName() + " cancelled after " + imported.sum() + " accounts");
+        }
+
+        return new Report(units.sum(), rows.sum(), imported.sum(), existing.sum(), duplicates.sum(), failed.sum(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Stop after the units already being parsed; batches already written stay written
+     */
+    public void cancel() {
+        cancelled.set(true);
+    }
+
+    // Called on the workers
+    private void accept(Map.Entry<UUID, DatabaseManager.PlayerData> row) {
+        rows.increment();
+        if (!seen.add(row.getKey())) {
+            duplicates.increment();
+            return;
+        }
+
+        List<Map.Entry<UUID, DatabaseManager.PlayerData>> full = null;
+        synchronized (batchLock) {
+            batch.add(row);
+            if (batch.size() >= batchSize) {
+                full = batch;
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (full != null) {
+            write(full);
+        }
+    }
+
+    private void write(List<Map.Entry<UUID, DatabaseManager.PlayerData>> rows) {
+        if (rows.isEmpty() || failure.get() != null) {
+            return;
+        }
+
+        try {
+            // Looked up first only to report them; insertMissing skips them either way
+            List<UUID> keys = new ArrayList<>(rows.size());
+            for (Map.Entry<UUID, DatabaseManager.PlayerData> row : rows) {
+                keys.add(row.getKey());
+            }
+            Map<UUID, DatabaseManager.PlayerData> stored = target.loadAll(keys);
+
+            List<Map.Entry<UUID, DatabaseManager.PlayerData>> missing = new ArrayList<>(rows.size() - stored.size());
+            for (Map.Entry<UUID, DatabaseManager.PlayerData> row : rows) {
+                if (!stored.containsKey(row.getKey())) {
+                    missing.add(row);
+                }
+            }
+
+            target.insertMissing(missing);
+            imported.add(missing.size());
+            existing.add(stored.size());
+        } catch (StorageException | RuntimeException e) {
+            failure.compareAndSet(null, e);
+        }
+    }
+
+    private void parseError(String message) {
+        failed.increment();
+        if (failed.sum() <= LOGGED_ERRORS) {
+            logger.warning("Skipped unreadable record: " + message);
+        } else if (failed.sum() == LOGGED_ERRORS + 1) {
+            logger.warning("More records could not be read; only counting them from now on");
+        }
+    }
+
+    // Called on the splitting thread only
+    private void reportProgress(ImportFormat<?> format, long start) {
+        long now = System.nanoTime();
+        if (now - lastReport < PROGRESS_INTERVAL_NANOS) {
+            return;
+        }
+        lastReport = now;
+        double seconds = (now - start) / 1_000_000_000.0;
+        logger.info(String.format("Import from %s: %d units parsed, %d accounts imported, %d already existed (%.0f units/s)",
+                format.getName(), units.sum(), imported.sum(), existing.sum(), units.sum() / Math.max(seconds, 0.001)));
+    }
+
+    private static ThreadFactory workerFactory() {
+        AtomicInteger counter = new AtomicInteger(1);
+        return r -> {
+            Thread thread = new Thread(r, "GenCore-Import-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Thrown out of the split callback to stop reading early
+     */
+    private static final class Stop extends RuntimeException {
+        private Stop() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.gencore.economy.database.transfer;
+
+import com.gencore.economy.database.DatabaseManager;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Comma-separated accounts with a header row naming the columns
+ *
+ * uuid is required; money, tokens, shards, credits, level, experience and
+ * rebirths are optional, in any order, and default to 0. Other columns are
+ * ignored, so the output of other plugins' exports can be used after renaming
+ * the headers. Blank lines and lines starting with # are skipped. Files ending
+ * in .gz are read compressed.
+ */
+public class CsvAccountFormat implements ImportFormat<CsvAccountFormat.Chunk> {
+
+    /**
+     * A run of lines, parsed together on one worker
+     */
+    public record Chunk(long firstLine, List<String> lines) {
+    }
+
+    public static final List<String> COLUMNS = List.of(
+            "uuid", "money", "tokens", "shards", "credits", "level", "experience", "rebirths");
+
+    private static final int LINES_PER_CHUNK = 1000;
+
+    private final File file;
+    // Column index of each of COLUMNS in the file, -1 if absent; set by split before any parse
+    private volatile int[] positions;
+
+    public CsvAccountFormat(File file) {
+        this.file = file;
+    }
+
+    @Override
+    public String getName() {
+        return "csv";
+    }
+
+    @Override
+    public void split(Consumer<Chunk> units) throws IOException {
+        try (BufferedReader reader = open()) {
+            String header = reader.readLine();
+            if (header == null) {
+                throw new IOException(file + " is empty");
+            }
+            positions = readHeader(header);
+
+            long lineNumber = 1;
+            long firstLine = 2;
+            List<String> lines = new ArrayList<>(LINES_PER_CHUNK);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (lines.isEmpty()) {
+                    firstLine = lineNumber;
+                }
+                lines.add(line);
+                if (lines.size() >= LINES_PER_CHUNK) {
+                    units.accept(new Chunk(firstLine, lines));
+                    lines = new ArrayList<>(LINES_PER_CHUNK);
+                }
+            }
+            if (!lines.isEmpty()) {
+                units.accept(new Chunk(firstLine, lines));
+            }
+        }
+    }
+
+    @Override
+    public void parse(Chunk chunk, Consumer<Map.Entry<UUID, DatabaseManager.PlayerData>> rows, Consumer<String> errors) {
+        int[] columns = positions;
+        for (int i = 0; i < chunk.lines().size(); i++) {
+            String line = chunk.lines().get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            try {
+                String[] fields = line.split(",", -1);
+                UUID uuid = UUID.fromString(field(fields, columns[0]));
+                DatabaseManager.PlayerData data = new DatabaseManager.PlayerData(
+                        uuid,
+                        parseDouble(fields, columns[1]),
+                        parseLong(fields, columns[2]),
+                        parseLong(fields, columns[3]),
+                        parseLong(fields, columns[4]),
+                        parseInt(fields, columns[5]),
+                        parseDouble(fields, columns[6]),
+                        parseInt(fields, columns[7])
+                );
+                rows.accept(Map.entry(uuid, data));
+            } catch (IllegalArgumentException e) {
+                errors.accept(file.getName() + " line " + (chunk.firstLine() + i) + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private BufferedReader open() throws IOException {
+        if (file.getName().endsWith(".gz")) {
+            return new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(file.toPath()), 65536), StandardCharsets.UTF_8));
+        }
+        return Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8);
+    }
+
+    private int[] readHeader(String header) throws IOException {
+        String[] names = header.replace("\uFEFF", "").split(",", -1);
+        int[] found = new int[COLUMNS.size()];
+        for (int c = 0; c < COLUMNS.size(); c++) {
+            found[c] = -1;
+            for (int i = 0; i < names.length; i++) {
+                if (EssentialsUserdataFormat.unquote(names[i].trim()).toLowerCase(Locale.ROOT).equals(COLUMNS.get(c))) {
+                    found[c] = i;
+                    break;
+                }
+            }
+        }
+        if (found[0] < 0) {
+            throw new IOException(file + " has no uuid column in its header");
+        }
+        return found;
+    }
+
+    private static String field(String[] fields, int position) {
+        if (position < 0 || position >= fields.length) {
+            return "";
+        }
+        return EssentialsUserdataFormat.unquote(fields[position].trim());
+    }
+
+    private static double parseDouble(String[] fields, int position) {
+        String value = field(fields, position);
+        double parsed = value.isEmpty() ? 0.0 : Double.parseDouble(value);
+        if (!Double.isFinite(parsed)) {
+            throw new NumberFormatException("not a finite number: " + value);
+        }
+        return parsed;
+    }
+
+    private static long parseLong(String[] fields, int position) {
+        String value = field(fields, position);
+        return value.isEmpty() ? 0L : Long.parseLong(value);
+    }
+
+    private static int parseInt(String[] fields, int position) {
+        String value = field(fields, position);
+        return value.isEmpty() ? 0 : Integer.parseInt(value);
+    }
+}
@@ -0,0 +1,90 @@
+package com.gencore.economy.database.transfer;
+
+import com.gencore.economy.database.DatabaseManager;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * EssentialsX userdata folder: one &lt;uuid&gt;.yml per player with a top-level money key
+ *
+ * Only the money line is needed, so files are scanned line by line instead of
+ * going through a YAML parser; with a quarter of a million files that is most
+ * of the import time. Files without a balance are skipped.
+ */
+public class EssentialsUserdataFormat implements ImportFormat<Path> {
+
+    private final File folder;
+
+    public EssentialsUserdataFormat(File folder) {
+        this.folder = folder;
+    }
+
+    @Override
+    public String getName() {
+        return "essentials";
+    }
+
+    @Override
+    public void split(Consumer<Path> units) throws IOException {
+        if (!folder.isDirectory()) {
+            throw new IOException("No Essentials userdata folder at " + folder);
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(folder.toPath(), "*.yml")) {
+            for (Path file : files) {
+                units.accept(file);
+            }
+        }
+    }
+
+    @Override
+    public void parse(Path file, Consumer<Map.Entry<UUID, DatabaseManager.PlayerData>> rows, Consumer<String> errors) {
+        String name = file.getFileName().toString();
+        UUID uuid;
+        try {
+            uuid = UUID.fromString(name.substring(0, name.length() - ".yml".length()));
+        } catch (IllegalArgumentException e) {
+            errors.accept(name + ": file name is not a UUID");
+            return;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // Top-level key only; nested "money:" keys belong to other sections
+                if (!line.startsWith("money:")) {
+                    continue;
+                }
+
+                String value = unquote(line.substring("money:".length()).trim());
+                double money = Double.parseDouble(value);
+                if (!Double.isFinite(money)) {
+                    errors.accept(name + ": money is not a number: " + value);
+                    return;
+                }
+                rows.accept(Map.entry(uuid, new DatabaseManager.PlayerData(uuid, money, 0, 0, 0, 0, 0.0, 0)));
+                return;
+            }
+        } catch (IOException e) {
+            errors.accept(name + ": " + e.getMessage());
+        } catch (NumberFormatException e) {
+            errors.accept(name + ": money is not a number: " + e.getMessage());
+        }
+    }
+
+    static String unquote(String value) {
+        if (value.length() >= 2 && (value.charAt(0) == '\'' || value.charAt(0) == '"')
+                && value.charAt(value.length() - 1) == value.charAt(0)) {
+            return value.substring(1, value.length() - 1).trim();
+        }
+        return value;
+    }
+}
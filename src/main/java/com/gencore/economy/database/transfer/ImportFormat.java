@@ -0,0 +1,36 @@
+package com.gencore.economy.database.transfer;
+
+import com.gencore.economy.database.DatabaseManager;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * A kind of file that {@link AccountImporter} can read accounts from
+ *
+ * Input is cut into units (a file, a run of lines) on one thread, and the
+ * units are parsed on the importer's workers, so parsing must not share
+ * mutable state between calls.
+ *
+ * @param <T> One unit of parse work
+ */
+public interface ImportFormat<T> {
+
+    /**
+     * Short name used in logs, e.g. "essentials"
+     */
+    String getName();
+
+    /**
+     * Hand every unit of the input to the consumer; runs on the calling thread
+     */
+    void split(Consumer<T> units) throws IOException;
+
+    /**
+     * Parse one unit on a worker thread
+     * Records that cannot be parsed are described to errors and skipped; the rest of the unit still counts.
+     */
+    void parse(T unit, Consumer<Map.Entry<UUID, DatabaseManager.PlayerData>> rows, Consumer<String> errors);
+}
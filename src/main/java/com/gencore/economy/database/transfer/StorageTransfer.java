@@ -0,0 +1,349 @@
+package com.gencore.economy.database.transfer;
+
+import com.gencore.economy.database.DatabaseManager;
+import com.gencore.economy.database.storage.StorageBackend;
+import com.gencore.economy.database.storage.StorageException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+/**
+ * Copies every player_economy row from one backend to another
+ *
+ * The source is read with a keyset scan in key order, one page at a time, and
+ * each page is written to the target as one bulk upsert by a small pool of
+ * writers. Only a few pages are in flight at once, so memory stays bounded no
+ * matter how large the table is. The last key below which every page has been
+ * written is kept in a checkpoint file; after an interruption the transfer
+ * resumes from there. Writes are upserts, so pages copied twice do no harm.
+ * Once everything is copied both sides are scanned again and their row counts
+ * and checksums compared.
+ */
+public class StorageTransfer {
+
+    /**
+     * Outcome of a finished transfer
+     * @param resumedRows Rows copied by earlier, interrupted runs
+     * @param sourceRows Rows in the source at verification, -1 if not verified
+     */
+    public record Result(long copiedRows, long resumedRows, long sourceRows, long targetRows,
+                         long sourceChecksum, long targetChecksum, long millis) {
+
+        public boolean isVerified() {
+            return sourceRows >= 0;
+        }
+
+        public boolean matches() {
+            return sourceRows == targetRows && sourceChecksum == targetChecksum;
+        }
+
+        @Override
+        public String toString() {
+            String copied = String.format("%d rows copied in %.1fs", copiedRows, millis / 1000.0)
+                    + (resumedRows > 0 ? " (resumed after " + resumedRows + ")" : "");
+            if (!isVerified()) {
+                return copied + ", not verified";
+            }
+            return copied + String.format(", source %d rows / %016x, target %d rows / %016x, %s",
+                    sourceRows, sourceChecksum, targetRows, targetChecksum, matches() ? "match" : "MISMATCH");
+        }
+    }
+
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final long CHECKPOINT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final StorageBackend source;
+    private final StorageBackend target;
+    private final int pageSize;
+    private final int parallelism;
+    private final TransferCheckpoint checkpoint;
+    private final Logger logger;
+
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private final AtomicLong copied = new AtomicLong();
+
+    /**
+     * @param checkpointFile Where progress is kept between runs
+     * @param parallelism Pages written at once
+     */
+    public StorageTransfer(StorageBackend source, StorageBackend target, int pageSize, int parallelism,
+                           File checkpointFile, Logger logger) {
+        this.source = source;
+        this.target = target;
+        this.pageSize = Math.max(1, pageSize);
+        this.parallelism = Math.max(1, parallelism);
+        this.checkpoint = new TransferCheckpoint(checkpointFile, source.getName(), target.getName());
+        this.logger = logger;
+    }
+
+    /**
+     * Copy all rows, then compare both sides if verify is set
+     * Both backends must already be initialized; neither is closed.
+     * @param resume Continue from the checkpoint file instead of the first row
+     * @throws StorageException if reading or writing fails, or the transfer was cancelled;
+     *                          progress up to that point stays in the checkpoint file
+     */
+    public Result run(boolean resume, boolean verify) throws StorageException {
+        long start = System.nanoTime();
+
+        TransferCheckpoint.State state = TransferCheckpoint.State.EMPTY;
+        if (resume) {
+            try {
+                state = checkpoint.read();
+            } catch (IOException e) {
+                throw new StorageException("Failed to read transfer checkpoint: " + e.getMessage(), e);
+            }
+            if (state.after() != null) {
+                logger.info("Resuming " + source.getName() + " -> " + target.getName()
+                        + " after " + state.rows() + " rows (last key " + state.after() + ")");
+            }
+        }
+
+        copy(state, start);
+
+        long sourceRows = -1;
+        long targetRows = -1;
+        long sourceChecksum = 0;
+        long targetChecksum = 0;
+        if (verify) {
+            logger.info("Verifying " + source.getName() + " against " + target.getName());
+            RowChecksum[] sums = checksumBoth();
+            sourceRows = sums[0].getRows();
+            sourceChecksum = sums[0].getValue();
+            targetRows = sums[1].getRows();
+            targetChecksum = sums[1].getValue();
+        }
+
+        checkpoint.delete();
+        return new Result(copied.get(), state.rows(), sourceRows, targetRows, sourceChecksum, targetChecksum,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Stop after the pages already being written; the checkpoint keeps what they covered
+     */
+    public void cancel() {
+        cancelled.set(true);
+    }
+
+    public long getCopiedRows() {
+        return copied.get();
+    }
+
+    private void copy(TransferCheckpoint.State state, long start) throws StorageException {
+        // Two pages per writer: one being written, one read ahead
+        Semaphore inFlight = new Semaphore(parallelism * 2);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Progress progress = new Progress(state);
+        AtomicLong sequence = new AtomicLong();
+        AtomicLong lastReport = new AtomicLong(System.nanoTime());
+
+        ExecutorService writers = Executors.newFixedThreadPool(parallelism, writerFactory());
+        try {
+            source.scan(state.after(), pageSize, page -> {
+                if (failure.get() != null || cancelled.get()) {
+                    throw new Stop();
+                }
+                inFlight.acquireUninterruptibly();
+
+                long seq = sequence.getAndIncrement();
+                UUID last = page.get(page.size() - 1).getKey();
+                writers.execute(() -> {
+                    try {
+                        if (failure.get() == null) {
+                            target.saveBatch(page);
+                            copied.addAndGet(page.size());
+                            progress.written(seq, last, page.size());
+                        }
+                    } catch (StorageException | RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+
+                long now = System.nanoTime();
+                long reported = lastReport.get();
+                if (now - reported >= PROGRESS_INTERVAL_NANOS && lastReport.compareAndSet(reported, now)) {
+                    double seconds = (now - start) / 1_000_000_000.0;
+                    logger.info(String.format("Transfer progress: %d rows copied (%.0f rows/s)",
+                            copied.get(), copied.get() / Math.max(seconds, 0.001)));
+                }
+            });
+        } catch (Stop ignored) {
+            // Failure or cancel noticed by the reader; handled below
+        } catch (StorageException | RuntimeException e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            writers.shutdown();
+            inFlight.acquireUninterruptibly(parallelism * 2);
+            progress.save(true);
+        }
+
+        Throwable error = failure.get();
+        if (error != null) {
+            throw new StorageException("Transfer stopped after " + progress.getRows()
+                    + " rows; run it again with resume to continue: " + error.getMessage(), error);
+        }
+        if (cancelled.get()) {
+            throw new StorageException("Transfer cancelled after " + progress.getRows()
+                    + " rows; run it again with resume to continue");
+        }
+    }
+
+    private RowChecksum[] checksumBoth() throws StorageException {
+        RowChecksum sourceSum = new RowChecksum();
+        RowChecksum targetSum = new RowChecksum();
+        AtomicReference<StorageException> targetFailure = new AtomicReference<>();
+
+        // The two scans hit different databases, so run them side by side
+        Thread targetScan = new Thread(() -> {
+            try {
+                target.scan(pageSize, targetSum::addAll);
+            } catch (StorageException e) {
+                targetFailure.set(e);
+            }
+        }, "GenCore-Transfer-Verify");
+        targetScan.setDaemon(true);
+        targetScan.start();
+
+        source.scan(pageSize, sourceSum::addAll);
+        try {
+            targetScan.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageException("Interrupted while verifying the target", e);
+        }
+        if (targetFailure.get() != null) {
+            throw targetFailure.get();
+        }
+        return new RowChecksum[]{sourceSum, targetSum};
+    }
+
+    private static ThreadFactory writerFactory() {
+        AtomicInteger counter = new AtomicInteger(1);
+        return r -> {
+            Thread thread = new Thread(r, "GenCore-Transfer-Writer-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Thrown out of the scan callback to stop reading early
+     */
+    private static final class Stop extends RuntimeException {
+        private Stop() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * Tracks the longest run of consecutive pages that are all written
+     * Pages finish out of order; only that run is safe to skip on resume.
+     */
+    private final class Progress {
+        private final TreeMap<Long, Map.Entry<UUID, Integer>> finished = new TreeMap<>();
+        private long nextSequence;
+        private UUID after;
+        private long rows;
+        private boolean dirty;
+        private long lastSave = System.nanoTime();
+
+        private Progress(TransferCheckpoint.State state) {
+            this.after = state.after();
+            this.rows = state.rows();
+        }
+
+        private synchronized void written(long sequence, UUID last, int count) {
+            finished.put(sequence, Map.entry(last, count));
+            Map.Entry<UUID, Integer> next;
+            while ((next = finished.remove(nextSequence)) != null) {
+                after = next.getKey();
+                rows += next.getValue();
+                nextSequence++;
+                dirty = true;
+            }
+            save(false);
+        }
+
+        private synchronized void save(boolean force) {
+            long now = System.nanoTime();
+            if (!dirty || (!force && now - lastSave < CHECKPOINT_INTERVAL_NANOS)) {
+                return;
+            }
+            try {
+                checkpoint.write(new TransferCheckpoint.State(after, rows));
+                dirty = false;
+                lastSave = now;
+            } catch (IOException e) {
+                logger.warning("Failed to write transfer checkpoint: " + e.getMessage());
+            }
+        }
+
+        private synchronized long getRows() {
+            return rows;
+        }
+    }
+
+    /**
+     * Order-independent checksum of a set of rows
+     * Sums a 64-bit hash of each row's key and values, so two backends that hold the same rows agree no matter how they
+     * order them. Doubles are hashed by their bits; SQLite REAL and MySQL DOUBLE store the same IEEE 754 values.
+     */
+    static final class RowChecksum {
+        private long value;
+        private long rows;
+
+        void addAll(List<Map.Entry<UUID, DatabaseManager.PlayerData>> page) {
+            for (Map.Entry<UUID, DatabaseManager.PlayerData> entry : page) {
+                add(entry.getKey(), entry.getValue());
+            }
+        }
+
+        void add(UUID uuid, DatabaseManager.PlayerData data) {
+            long hash = mix(uuid.getMostSignificantBits());
+            hash = mix(hash ^ uuid.getLeastSignificantBits());
+            hash = mix(hash ^ Double.doubleToLongBits(data.money));
+            hash = mix(hash ^ data.tokens);
+            hash = mix(hash ^ data.shards);
+            hash = mix(hash ^ data.credits);
+            hash = mix(hash ^ data.level);
+            hash = mix(hash ^ Double.doubleToLongBits(data.experience));
+            hash = mix(hash ^ data.rebirths);
+            hash = mix(hash ^ data.moneyAccruedAt);
+            hash = mix(hash ^ data.shardsAccruedAt);
+            value += hash;
+            rows++;
+        }
+
+        long getValue() {
+            return value;
+        }
+
+        long getRows() {
+            return rows;
+        }
+
+        // SplitMix64 finalizer
+        private static long mix(long z) {
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            return z ^ (z >>> 31);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.gencore.economy.database.transfer;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.UUID;
+
+/**
+ * How far a {@link StorageTransfer} got, kept in a small properties file
+ * The file names the source and target backends, so a checkpoint is never
+ * applied to a different pair. It is replaced atomically on every write.
+ */
+public class TransferCheckpoint {
+
+    /**
+     * @param after Last key of the copied prefix, or null if nothing was copied yet
+     */
+    public record State(UUID after, long rows) {
+        public static final State EMPTY = new State(null, 0);
+    }
+
+    private final File file;
+    private final String source;
+    private final String target;
+
+    public TransferCheckpoint(File file, String source, String target) {
+        this.file = file;
+        this.source = source;
+        this.target = target;
+    }
+
+    /**
+     * @return The saved state, or EMPTY if there is no checkpoint file
+     * @throws IOException if the file cannot be read or belongs to another source and target
+     */
+    public State read() throws IOException {
+        if (!file.exists()) {
+            return State.EMPTY;
+        }
+
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            properties.load(in);
+        }
+
+        String savedSource = properties.getProperty("source");
+        String savedTarget = properties.getProperty("target");
+        if (!source.equals(savedSource) || !target.equals(savedTarget)) {
+            throw new IOException(file + " is for " + savedSource + " -> " + savedTarget
+                    + ", not " + source + " -> " + target);
+        }
+
+        try {
+            String after = properties.getProperty("after", "");
+            return new State(after.isEmpty() ? null : UUID.fromString(after),
+                    Long.parseLong(properties.getProperty("rows", "0")));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt transfer checkpoint " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    public void write(State state) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("source", source);
+        properties.setProperty("target", target);
+        properties.setProperty("after", state.after() == null ? "" : state.after().toString());
+        properties.setProperty("rows", Long.toString(state.rows()));
+
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Could not create " + parent);
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            properties.store(out, "GenCore storage transfer checkpoint");
+            out.getFD().sync();
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public void delete() {
+        if (file.exists() && !file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+}
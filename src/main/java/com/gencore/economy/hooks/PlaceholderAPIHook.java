@@ -72,7 +72,7 @@ public class PlaceholderAPIHook extends PlaceholderExpansion {
 
     @Override
     public String onRequest(OfflinePlayer player, @NotNull String params) {
-        if (player == null) {
+        if (player == null || !plugin.getDatabaseManager().isReady()) {
             return "";
         }
 
@@ -8,6 +8,7 @@ import org.bukkit.OfflinePlayer;
 import org.bukkit.plugin.ServicePriority;
 
 import java.util.List;
+import java.util.concurrent.CompletionException;
 
 /**
  * Vault Economy implementation
@@ -69,12 +70,14 @@ public class VaultHook implements Economy {
 
     @Override
     public boolean hasAccount(String playerName) {
-        return true; // We create accounts on-the-fly
+        OfflinePlayer player = plugin.getServer().getOfflinePlayer(playerName);
+        return hasAccount(player);
     }
 
     @Override
     public boolean hasAccount(OfflinePlayer player) {
-        return true;
+        // Anyone can be paid; only players who had a balance change or an explicit create have a row
+        return plugin.getDatabaseManager().isReady() && plugin.getDatabaseManager().hasAccount(player.getUniqueId());
     }
 
     @Override
@@ -95,6 +98,10 @@ public class VaultHook implements Economy {
 
     @Override
     public double getBalance(OfflinePlayer player) {
+        // Vault has no way to report an error here
+        if (!plugin.getDatabaseManager().isReady()) {
+            return 0;
+        }
         return moneyAPI.getMoney(player.getUniqueId());
     }
 
@@ -116,7 +123,7 @@ public class VaultHook implements Economy {
 
     @Override
     public boolean has(OfflinePlayer player, double amount) {
-        return moneyAPI.hasMoney(player.getUniqueId(), amount);
+        return plugin.getDatabaseManager().isReady() && moneyAPI.hasMoney(player.getUniqueId(), amount);
     }
 
     @Override
@@ -137,6 +144,9 @@ public class VaultHook implements Economy {
 
     @Override
     public EconomyResponse withdrawPlayer(OfflinePlayer player, double amount) {
+        if (!plugin.getDatabaseManager().isReady()) {
+            return notReady();
+        }
         if (amount < 0) {
             return new EconomyResponse(0, 0, EconomyResponse.ResponseType.FAILURE,
                     "Cannot withdraw negative amount");
@@ -170,6 +180,9 @@ public class VaultHook implements Economy {
 
     @Override
     public EconomyResponse depositPlayer(OfflinePlayer player, double amount) {
+        if (!plugin.getDatabaseManager().isReady()) {
+            return notReady();
+        }
         if (amount < 0) {
             return new EconomyResponse(0, 0, EconomyResponse.ResponseType.FAILURE,
                     "Cannot deposit negative amount");
@@ -192,12 +205,22 @@ public class VaultHook implements Economy {
 
     @Override
     public boolean createPlayerAccount(String playerName) {
-        return true; // Accounts are created automatically
+        OfflinePlayer player = plugin.getServer().getOfflinePlayer(playerName);
+        return createPlayerAccount(player);
     }
 
     @Override
     public boolean createPlayerAccount(OfflinePlayer player) {
-        return true;
+        // Not needed before a deposit; the first balance change creates the row
+        if (!plugin.getDatabaseManager().isReady()) {
+            return false;
+        }
+        try {
+            return plugin.getDatabaseManager().createAccountAsync(player.getUniqueId()).join();
+        } catch (CompletionException e) {
+            plugin.getLogger().severe("Failed to create account: " + e.getCause().getMessage());
+            return false;
+        }
     }
 
     @Override
@@ -281,4 +304,9 @@ public class VaultHook implements Economy {
     public List<String> getBanks() {
         return List.of();
     }
-}
\ No newline at end of file
+
+    private EconomyResponse notReady() {
+        return new EconomyResponse(0, 0, EconomyResponse.ResponseType.FAILURE,
+                "Economy is still loading");
+    }
+}
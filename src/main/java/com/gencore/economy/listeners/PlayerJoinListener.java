@@ -1,11 +1,23 @@
 package com.gencore.economy.listeners;
 
 import com.gencore.economy.GenCoreEconomy;
+import org.bukkit.ChatColor;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+
+/**
+ * Loads player data while the player is still logging in, off the main thread,
+ * so joining never waits on the database
+ */
 public class PlayerJoinListener implements Listener {
 
     private final GenCoreEconomy plugin;
@@ -14,8 +26,41 @@ public class PlayerJoinListener implements Listener {
         this.plugin = plugin;
     }
 
+    @EventHandler(priority = EventPriority.HIGH)
+    public void onAsyncPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            return;
+        }
+
+        UUID uuid = event.getUniqueId();
+        long timeout = plugin.getConfig().getLong("database.preload.timeout-ms", 5000);
+        try {
+            plugin.getDatabaseManager().preloadPlayerDataAsync(uuid).get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            plugin.getLogger().warning("Timed out loading data for " + event.getName() + " after " + timeout + "ms");
+            deny(event);
+        } catch (ExecutionException e) {
+            plugin.getLogger().severe("Failed to load data for " + event.getName() + ": " + e.getCause().getMessage());
+            deny(event);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            deny(event);
+        }
+    }
+
     @EventHandler
     public void onPlayerJoin(PlayerJoinEvent event) {
-        plugin.getDatabaseManager().loadPlayerData(event.getPlayer().getUniqueId());
+        UUID uuid = event.getPlayer().getUniqueId();
+        plugin.getDatabaseManager().getSessionManager().joined(uuid);
+        if (!plugin.getDatabaseManager().isCached(uuid)) {
+            // Got past pre-login without a load (e.g. online during a reload); never block the main thread
+            plugin.getDatabaseManager().loadPlayerDataAsync(uuid);
+        }
+    }
+
+    private void deny(AsyncPlayerPreLoginEvent event) {
+        String message = plugin.getConfig().getString("messages.load-failed",
+                "&cCould not load your data. Please try again in a moment.");
+        event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER, ChatColor.translateAlternateColorCodes('&', message));
     }
 }
@@ -0,0 +1,25 @@
+package com.gencore.economy.listeners;
+
+import com.gencore.economy.GenCoreEconomy;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+
+/**
+ * Starts the quit grace period; the data is saved and evicted once it runs out
+ */
+public class PlayerQuitListener implements Listener {
+
+    private final GenCoreEconomy plugin;
+
+    public PlayerQuitListener(GenCoreEconomy plugin) {
+        this.plugin = plugin;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        plugin.getDatabaseManager().getSessionManager().quit(event.getPlayer().getUniqueId());
+    }
+}
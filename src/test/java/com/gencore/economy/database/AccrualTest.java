@@ -0,0 +1,86 @@
+package com.gencore.economy.database;
+
+import com.gencore.economy.database.DatabaseManager.PlayerData;
+import com.gencore.economy.database.storage.SqliteStorageBackend;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccrualTest {
+
+    private static final Logger LOGGER = Logger.getLogger(AccrualTest.class.getName());
+    private static final long START = 1_700_000_000_000L;
+    private static final long DAY = AccrualPolicy.DAY_MILLIS;
+
+    private final AccrualPolicy policy = new AccrualPolicy(0.01, 0.05);
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void ratesCompoundPerDay() {
+        assertEquals(101, policy.money(100, START, START + DAY), 1e-9);
+        assertEquals(100 * 1.01 * 1.01, policy.money(100, START, START + 2 * DAY), 1e-9);
+        assertEquals(95, policy.shards(100, START, START + DAY));
+        assertEquals(100, policy.money(100, 0, START), 1e-9, "a zero timestamp has not started accruing");
+        assertEquals(100, policy.shards(100, START, START - DAY), "time going backwards changes nothing");
+    }
+
+    @Test
+    void frequentWritesCannotRoundDecayAway() {
+        long shards = 1000;
+        long accruedAt = START;
+        for (long now = START + 60_000; now <= START + 10 * DAY; now += 60_000) {
+            long left = policy.shards(shards, accruedAt, now);
+            accruedAt = policy.shardsAccruedAt(shards, accruedAt, now);
+            shards = left;
+        }
+
+        long once = policy.shards(1000, START, START + 10 * DAY);
+        assertTrue(Math.abs(shards - once) <= 1, "settled every minute " + shards + ", once " + once);
+    }
+
+    @Test
+    void settledBalanceEqualsWhatReadsShowed() throws Exception {
+        SqliteStorageBackend backend = new SqliteStorageBackend(folder.resolve("economy.db").toFile(),
+                "normal", 256, 2, 1000, LOGGER);
+        backend.initialize();
+        try {
+            UUID uuid = UUID.randomUUID();
+            backend.saveBatch(List.of(Map.entry(uuid,
+                    new PlayerData(null, 1000, 0, 400, 0, 0, 0, 0, START, START))));
+
+            // Loaded before the settle, with a change the settle does not know about yet
+            PlayerData cached = backend.load(uuid);
+            cached.money += 250;
+            cached.shards -= 40;
+            cached.moneyAccruedAt = cached.shardsAccruedAt = START + DAY / 2;
+
+            long now = START + 3 * DAY;
+            double shownMoney = cached.accruedMoney(policy, now);
+            long shownShards = cached.accruedShards(policy, now);
+
+            backend.settleAccrual(policy, now);
+            cached.settleAccrual(policy, now);
+            assertEquals(shownMoney, cached.money, 1e-6);
+            assertEquals(shownShards, cached.shards);
+
+            backend.saveDeltas(List.of(cached.takeDelta(uuid)));
+            PlayerData stored = backend.load(uuid);
+            assertEquals(cached.money, stored.money, 1e-6);
+            assertEquals(cached.shards, stored.shards);
+            assertEquals(now, stored.moneyAccruedAt);
+            assertEquals(now, stored.shardsAccruedAt);
+        } finally {
+            backend.close();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.gencore.economy.database;
+
+import java.util.UUID;
+
+/**
+ * Builds deltas for tests in other packages; the constructor is package-private
+ */
+public final class Deltas {
+
+    private Deltas() {
+    }
+
+    public static PlayerDelta of(UUID uuid, double money, long tokens) {
+        return of(uuid, money, tokens, 0, 0, 0, 0, 0, 0, 0);
+    }
+
+    public static PlayerDelta of(UUID uuid, double money, long tokens, long shards, long credits, int level,
+                                 double experience, int rebirths, long moneyAccruedAt, long shardsAccruedAt) {
+        return new PlayerDelta(uuid, money, tokens, shards, credits, level, experience, rebirths,
+                moneyAccruedAt, shardsAccruedAt);
+    }
+}
@@ -0,0 +1,121 @@
+package com.gencore.economy.database;
+
+import com.gencore.economy.database.DatabaseManager.PlayerData;
+import com.gencore.economy.database.storage.MemoryStorageBackend;
+import com.gencore.economy.database.storage.SqliteStorageBackend;
+import com.gencore.economy.database.storage.StorageBackend;
+import com.gencore.economy.database.transfer.AccountFilter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Storage and the accounts held in memory are updated separately, the way
+ * {@link DatabaseManager#massUpdateAsync} does it; afterwards they must agree
+ */
+class MassUpdateTest {
+
+    private static final Logger LOGGER = Logger.getLogger(MassUpdateTest.class.getName());
+
+    @TempDir
+    Path folder;
+
+    @ParameterizedTest
+    @ValueSource(strings = {"memory", "sqlite"})
+    void cacheAndStorageAgreeAfterwards(String kind) throws Exception {
+        StorageBackend backend = kind.equals("memory") ? new MemoryStorageBackend()
+                : new SqliteStorageBackend(folder.resolve("economy.db").toFile(), "normal", 256, 2, 1000, LOGGER);
+        backend.initialize();
+        try {
+            Random random = new Random(7);
+            List<Map.Entry<UUID, PlayerData>> rows = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                rows.add(Map.entry(UUID.randomUUID(), new PlayerData(null, random.nextInt(1000), random.nextInt(50),
+                        random.nextInt(50), 0, random.nextInt(20), 0, random.nextInt(10))));
+            }
+            backend.saveBatch(rows);
+
+            // Half the accounts are cached, some with changes not yet written
+            Map<UUID, PlayerData> cached = new LinkedHashMap<>();
+            for (int i = 0; i < rows.size(); i += 2) {
+                UUID uuid = rows.get(i).getKey();
+                PlayerData data = backend.load(uuid);
+                if (i % 3 == 0) {
+                    data.money += 25;
+                    data.tokens -= 2;
+                    data.rebirths += 1;
+                }
+                cached.put(uuid, data);
+            }
+
+            List<MassUpdate> updates = List.of(
+                    new MassUpdate("money", MassUpdate.Operation.ADD, -400, 0, AccountFilter.parse("rebirths>=3")),
+                    new MassUpdate("tokens", MassUpdate.Operation.MULTIPLY, 1.5, 0, AccountFilter.parse("money>0")),
+                    new MassUpdate("level", MassUpdate.Operation.CLAMP, 5, 15, AccountFilter.ALL),
+                    new MassUpdate("shards", MassUpdate.Operation.SET, 7, 0, AccountFilter.parse("tokens<20")));
+            for (MassUpdate update : updates) {
+                long selected = 0;
+                for (PlayerData data : cached.values()) {
+                    if (data.applyMassUpdate(update)) {
+                        selected++;
+                    }
+                }
+                assertTrue(backend.massUpdate(update) >= selected);
+            }
+
+            List<PlayerDelta> deltas = new ArrayList<>();
+            cached.forEach((uuid, data) -> deltas.add(data.takeDelta(uuid)));
+            backend.saveDeltas(deltas);
+
+            for (Map.Entry<UUID, PlayerData> entry : cached.entrySet()) {
+                PlayerData data = entry.getValue();
+                PlayerData stored = backend.load(entry.getKey());
+                assertEquals(data.money, stored.money, 1e-9, "money");
+                assertEquals(data.tokens, stored.tokens, "tokens");
+                assertEquals(data.shards, stored.shards, "shards");
+                assertEquals(data.level, stored.level, "level");
+                assertEquals(data.rebirths, stored.rebirths, "rebirths");
+            }
+        } finally {
+            backend.close();
+        }
+    }
+
+    @Test
+    void takeStopsAtZeroInMemory() {
+        PlayerData data = new PlayerData(null, 150, 3, 0, 0, 0, 0, 0);
+        assertTrue(data.applyMassUpdate(new MassUpdate("money", MassUpdate.Operation.ADD, -200, 0, AccountFilter.ALL)));
+        assertTrue(data.applyMassUpdate(new MassUpdate("tokens", MassUpdate.Operation.ADD, -10, 0, AccountFilter.ALL)));
+        assertEquals(0, data.money);
+        assertEquals(0, data.tokens);
+    }
+
+    @Test
+    void readsFilteredColumnsToo() {
+        MassUpdate update = new MassUpdate("tokens", MassUpdate.Operation.ADD, 5, 0, AccountFilter.parse("money>=1000"));
+        assertTrue(update.reads("tokens"));
+        assertTrue(update.reads("money"), "a money filter needs money settled first");
+        assertFalse(update.reads("shards"));
+    }
+
+    @Test
+    void dialectsClampTheSameWay() {
+        MassUpdate take = new MassUpdate("money", MassUpdate.Operation.ADD, -5, 0, AccountFilter.ALL);
+        assertTrue(take.toSql(DatabaseType.SQLITE).contains("MAX(money + ?, 0)"));
+        assertTrue(take.toSql(DatabaseType.MYSQL).contains("GREATEST(money + ?, 0)"));
+    }
+}
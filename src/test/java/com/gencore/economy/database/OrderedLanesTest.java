@@ -0,0 +1,148 @@
+package com.gencore.economy.database;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderedLanesTest {
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void tasksOfOnePlayerRunInSubmissionOrder() {
+        OrderedLanes lanes = new OrderedLanes(pool, 4);
+        UUID uuid = UUID.randomUUID();
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            int index = i;
+            futures.add(lanes.submit(uuid, () -> order.add(index)));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, order.get(i));
+        }
+    }
+
+    @Test
+    void failedTaskDoesNotStopTheLane() {
+        OrderedLanes lanes = new OrderedLanes(pool, 1);
+        UUID uuid = UUID.randomUUID();
+
+        CompletableFuture<Void> failed = lanes.submit(uuid, () -> {
+            throw new IllegalStateException("boom");
+        });
+        CompletableFuture<Void> next = lanes.submit(uuid, () -> {
+        });
+
+        assertThrows(CompletionException.class, failed::join);
+        next.orTimeout(5, TimeUnit.SECONDS).join();
+    }
+
+    @Test
+    void coalescedSaveWaitingOnARunningOneIsShared() throws InterruptedException {
+        OrderedLanes lanes = new OrderedLanes(pool, 1);
+        UUID uuid = UUID.randomUUID();
+        Object owner = new Object();
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Void> first = lanes.submitCoalesced(uuid, owner, () -> await(running, release));
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Void> second = lanes.submitCoalesced(uuid, owner, () -> {
+        });
+        CompletableFuture<Void> third = lanes.submitCoalesced(uuid, owner, () -> {
+        });
+        release.countDown();
+
+        assertNotSame(first, second, "a running save must not absorb later ones");
+        assertSame(second, third);
+        CompletableFuture.allOf(first, second).orTimeout(5, TimeUnit.SECONDS).join();
+        assertEquals(1, lanes.getCoalesced());
+    }
+
+    /**
+     * The executor refuses a task only once the one before it finishes, the case thenRunAsync left hanging
+     */
+    @Test
+    void taskRejectedBehindARunningOneFailsAndFreesTheLane() throws InterruptedException {
+        AtomicBoolean reject = new AtomicBoolean();
+        Executor executor = task -> {
+            if (reject.get()) {
+                throw new RejectedExecutionException("queue full");
+            }
+            pool.execute(task);
+        };
+        OrderedLanes lanes = new OrderedLanes(executor, 1);
+        UUID uuid = UUID.randomUUID();
+        Object owner = new Object();
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Void> first = lanes.submit(uuid, () -> await(running, release));
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Void> rejected = lanes.submitCoalesced(uuid, owner, () -> {
+        });
+        reject.set(true);
+        release.countDown();
+
+        first.orTimeout(5, TimeUnit.SECONDS).join();
+        CompletionException error = assertThrows(CompletionException.class,
+                () -> rejected.orTimeout(5, TimeUnit.SECONDS).join());
+        assertInstanceOf(RejectedExecutionException.class, error.getCause());
+
+        reject.set(false);
+        CompletableFuture<Void> retried = lanes.submitCoalesced(uuid, owner, () -> {
+        });
+        assertNotSame(rejected, retried, "a rejected save must not absorb later ones");
+        retried.orTimeout(5, TimeUnit.SECONDS).join();
+    }
+
+    @Test
+    void taskRejectedImmediatelyFails() {
+        OrderedLanes lanes = new OrderedLanes(task -> {
+            throw new RejectedExecutionException("queue full");
+        }, 1);
+
+        CompletableFuture<Void> rejected = lanes.submitCoalesced(UUID.randomUUID(), this, () -> {
+        });
+
+        assertTrue(rejected.isCompletedExceptionally());
+    }
+
+    private static void await(CountDownLatch running, CountDownLatch release) {
+        running.countDown();
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
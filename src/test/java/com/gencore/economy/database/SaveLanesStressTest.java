@@ -0,0 +1,136 @@
+package com.gencore.economy.database;
+
+import com.gencore.economy.database.DatabaseManager.PlayerData;
+import com.gencore.economy.database.storage.MemoryStorageBackend;
+import com.gencore.economy.database.storage.SqliteStorageBackend;
+import com.gencore.economy.database.storage.StorageBackend;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Many threads change balances and queue saves through the lanes; afterwards storage must hold exactly the cache
+ */
+class SaveLanesStressTest {
+
+    private static final int THREADS = 8;
+    private static final int PLAYERS = 500;
+    private static final int MUTATIONS = 100_000;
+
+    @TempDir
+    Path folder;
+
+    @ParameterizedTest(name = "{0} storage, {1} saves")
+    @CsvSource({"memory, FULL", "memory, DELTA", "sqlite, FULL", "sqlite, DELTA"})
+    void storedRowsEqualCacheAfterConcurrentMutations(String storage, PersistenceMode mode) throws Exception {
+        StorageBackend backend = storage.equals("memory")
+                ? new MemoryStorageBackend()
+                : new SqliteStorageBackend(folder.resolve("economy.db").toFile(), "normal", 256, 2, 500,
+                Logger.getLogger(getClass().getName()));
+        backend.initialize();
+        ExecutorService saves = Executors.newFixedThreadPool(THREADS);
+        ExecutorService players = Executors.newFixedThreadPool(THREADS);
+        try {
+            AccountStore store = new AccountStore(backend, new OrderedLanes(saves, 16), mode, false,
+                    Logger.getLogger(getClass().getName()));
+            List<UUID> uuids = new ArrayList<>();
+            List<PlayerData> cache = new ArrayList<>();
+            PlayerData starting = new PlayerData(null, 100, 10, 0, 0, 0, 0, 0);
+            for (int i = 0; i < PLAYERS; i++) {
+                UUID uuid = UUID.randomUUID();
+                uuids.add(uuid);
+                // A fifth start without a row, so their first save creates it
+                if (i % 5 == 0) {
+                    cache.add(PlayerData.unsaved(starting));
+                } else {
+                    PlayerData row = new PlayerData(null, i, i, i, i, 0, 0, 0);
+                    backend.saveBatch(List.of(Map.entry(uuid, row)));
+                    cache.add(row.snapshot());
+                }
+            }
+
+            List<Future<List<CompletableFuture<Void>>>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                long seed = t;
+                workers.add(players.submit(() -> {
+                    SplittableRandom random = new SplittableRandom(seed);
+                    List<CompletableFuture<Void>> queued = new ArrayList<>();
+                    for (int i = 0; i < MUTATIONS / THREADS; i++) {
+                        int player = random.nextInt(PLAYERS);
+                        PlayerData data = cache.get(player);
+                        mutate(data, random);
+                        queued.add(store.save(uuids.get(player), data));
+                    }
+                    return queued;
+                }));
+            }
+            List<CompletableFuture<Void>> queued = new ArrayList<>();
+            for (Future<List<CompletableFuture<Void>>> worker : workers) {
+                queued.addAll(worker.get(2, TimeUnit.MINUTES));
+            }
+
+            // Like the shutdown flush: one more save of everyone, queued while earlier saves are
+            // still running, so only lane order keeps a stale one from landing after it
+            for (int i = 0; i < PLAYERS; i++) {
+                queued.add(store.save(uuids.get(i), cache.get(i)));
+            }
+            CompletableFuture.allOf(queued.toArray(CompletableFuture[]::new)).get(2, TimeUnit.MINUTES);
+
+            for (int i = 0; i < PLAYERS; i++) {
+                PlayerData cached = cache.get(i);
+                PlayerData stored = backend.load(uuids.get(i));
+                assertNotNull(stored, "no row for player " + i);
+                assertFalse(cached.isModified(), "player " + i + " still has unwritten changes");
+                assertEquals(cached.money, stored.money, 0, "money of player " + i);
+                assertEquals(cached.tokens, stored.tokens, "tokens of player " + i);
+                assertEquals(cached.shards, stored.shards, "shards of player " + i);
+                assertEquals(cached.credits, stored.credits, "credits of player " + i);
+                assertEquals(cached.level, stored.level, "level of player " + i);
+                assertEquals(cached.experience, stored.experience, 0, "experience of player " + i);
+                assertEquals(cached.rebirths, stored.rebirths, "rebirths of player " + i);
+            }
+        } finally {
+            players.shutdownNow();
+            saves.shutdownNow();
+            backend.close();
+        }
+    }
+
+    /**
+     * Amounts in quarters, which add up exactly in a double in any order
+     */
+    private static void mutate(PlayerData data, SplittableRandom random) {
+        synchronized (data) {
+            switch (random.nextInt(5)) {
+                case 0 -> data.money += random.nextInt(-400, 400) / 4.0;
+                case 1 -> data.tokens += random.nextInt(-50, 100);
+                case 2 -> data.shards += random.nextInt(1, 20);
+                case 3 -> {
+                    data.credits += 1;
+                    data.experience += 0.25;
+                }
+                default -> {
+                    data.level += 1;
+                    data.rebirths += random.nextInt(2);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.gencore.economy.database;
+
+import com.gencore.economy.database.DatabaseManager.PlayerData;
+import com.gencore.economy.database.storage.SqliteStorageBackend;
+import com.gencore.economy.database.storage.StorageException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * A season reset swaps the table in storage and resets the cache in place; changes
+ * made before the reset but written after it must land on the carried columns only
+ */
+class SeasonResetTest {
+
+    private static final Logger LOGGER = Logger.getLogger(SeasonResetTest.class.getName());
+
+    @TempDir
+    Path folder;
+
+    private SqliteStorageBackend backend;
+    private final UUID player = UUID.randomUUID();
+    private final UUID other = UUID.randomUUID();
+    // Configured starting balances the columns that are not carried go back to
+    private final PlayerData start = new PlayerData(null, 100, 10, 0, 0, 1, 0, 0);
+
+    @BeforeEach
+    void open() throws StorageException {
+        backend = new SqliteStorageBackend(folder.resolve("economy.db").toFile(), "normal", 256, 2, 1000, LOGGER);
+        backend.initialize();
+        backend.saveBatch(List.of(
+                Map.entry(player, new PlayerData(null, 500, 20, 30, 4, 12, 80, 2, 1000, 2000)),
+                Map.entry(other, new PlayerData(null, 70, 1, 2, 3, 4, 5, 6, 1000, 2000))));
+    }
+
+    @AfterEach
+    void close() {
+        backend.close();
+    }
+
+    @Test
+    void unwrittenChangesCarryOverOnlyInCarriedColumns() throws Exception {
+        PlayerData cached = backend.load(player);
+        cached.money += 40;
+        cached.tokens += 5;
+        cached.level += 1;
+
+        Set<String> carried = Set.of("tokens", "level");
+        assertEquals(2, backend.resetSeason("season_1", carried, start));
+        cached.resetSeason(carried, start);
+
+        assertEquals(100, cached.money);
+        assertEquals(25, cached.tokens);
+        assertEquals(13, cached.level);
+        assertEquals(0, cached.moneyAccruedAt);
+
+        backend.saveDeltas(List.of(cached.takeDelta(player)));
+        PlayerData stored = backend.load(player);
+        assertEquals(cached.money, stored.money);
+        assertEquals(cached.tokens, stored.tokens);
+        assertEquals(cached.shards, stored.shards);
+        assertEquals(cached.credits, stored.credits);
+        assertEquals(cached.level, stored.level);
+        assertEquals(cached.experience, stored.experience);
+        assertEquals(cached.rebirths, stored.rebirths);
+        assertEquals(0, stored.moneyAccruedAt);
+    }
+
+    @Test
+    void storageAndCacheStartFromTheSameValues() throws Exception {
+        Set<String> carried = Set.of("credits");
+        backend.resetSeason("season_1", carried, start);
+
+        PlayerData stored = backend.load(other);
+        PlayerData cached = new PlayerData(null, 70, 1, 2, 3, 4, 5, 6, 1000, 2000).carriedOver(carried, start);
+        assertEquals(100, stored.money);
+        assertEquals(10, stored.tokens);
+        assertEquals(3, stored.credits);
+        assertEquals(1, stored.level);
+        assertEquals(cached.money, stored.money);
+        assertEquals(cached.tokens, stored.tokens);
+        assertEquals(cached.shards, stored.shards);
+        assertEquals(cached.credits, stored.credits);
+        assertEquals(cached.level, stored.level);
+        assertEquals(cached.experience, stored.experience);
+        assertEquals(cached.rebirths, stored.rebirths);
+        assertEquals(cached.moneyAccruedAt, stored.moneyAccruedAt);
+        assertEquals(cached.shardsAccruedAt, stored.shardsAccruedAt);
+    }
+
+    @Test
+    void carriedBalancesKeepAccruingFromTheirTimestamp() throws Exception {
+        backend.resetSeason("season_1", Set.of("money"), start);
+
+        PlayerData stored = backend.load(player);
+        assertEquals(500, stored.money);
+        assertEquals(1000, stored.moneyAccruedAt);
+        assertEquals(0, stored.shards);
+        assertEquals(0, stored.shardsAccruedAt);
+
+        PlayerData cached = new PlayerData(null, 500, 20, 30, 4, 12, 80, 2, 1000, 2000).carriedOver(Set.of("money"), start);
+        assertEquals(stored.money, cached.money);
+        assertEquals(stored.moneyAccruedAt, cached.moneyAccruedAt);
+        assertEquals(stored.shardsAccruedAt, cached.shardsAccruedAt);
+    }
+
+    @Test
+    void archiveKeepsTheFinishedSeason() throws Exception {
+        backend.resetSeason("season_1", Set.of(), start);
+
+        Path archive = folder.resolve("seasons").resolve("season_1.db");
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + archive);
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*), SUM(money), SUM(rebirths) FROM player_economy")) {
+            rs.next();
+            assertEquals(2, rs.getLong(1));
+            assertEquals(570, rs.getDouble(2));
+            assertEquals(8, rs.getLong(3));
+        }
+        assertEquals(100, backend.load(other).money);
+    }
+
+    @Test
+    void existingArchiveIsNeverOverwritten() throws Exception {
+        backend.resetSeason("season_1", Set.of("money"), start);
+        backend.saveBatch(List.of(Map.entry(player, new PlayerData(null, 9, 9, 9, 9, 9, 9, 9))));
+
+        assertThrows(StorageException.class, () -> backend.resetSeason("season_1", Set.of(), start));
+        assertEquals(9, backend.load(player).rebirths);
+    }
+}
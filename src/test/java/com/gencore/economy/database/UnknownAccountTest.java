@@ -0,0 +1,167 @@
+package com.gencore.economy.database;
+
+import com.gencore.economy.database.DatabaseManager.PlayerData;
+import com.gencore.economy.database.storage.SqliteStorageBackend;
+import com.gencore.economy.database.storage.StorageBackend;
+import com.gencore.economy.database.storage.StorageException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Looking up an account storage does not have must leave no row behind
+ */
+class UnknownAccountTest {
+
+    private static final PlayerData STARTING = new PlayerData(null, 100, 10, 0, 0, 1, 0, 0);
+
+    @TempDir
+    Path folder;
+
+    private StorageBackend backend;
+    private AccountIndex index;
+    private ExecutorService saves;
+    private final List<UUID> known = new ArrayList<>();
+
+    @BeforeEach
+    void open() throws StorageException {
+        backend = new SqliteStorageBackend(folder.resolve("economy.db").toFile(), "normal", 256, 2, 1000,
+                Logger.getLogger(getClass().getName()));
+        backend.initialize();
+        List<Map.Entry<UUID, PlayerData>> rows = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            UUID uuid = UUID.randomUUID();
+            known.add(uuid);
+            rows.add(Map.entry(uuid, new PlayerData(null, i, i, 0, 0, 0, 0, 0)));
+        }
+        backend.saveBatch(rows);
+        index = new AccountIndex(1000, 0.01);
+        assertEquals(rows.size(), index.rebuild(backend, 700));
+        saves = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void close() {
+        saves.shutdownNow();
+        backend.close();
+    }
+
+    @Test
+    void filterKnowsEveryRowAndSkipsMostStrangers() {
+        AccountStore store = store(PersistenceMode.DELTA);
+        known.forEach(uuid -> assertTrue(store.mightHaveRow(uuid), "false negative for " + uuid));
+
+        int queried = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (store.mightHaveRow(UUID.randomUUID())) {
+                queried++;
+            }
+        }
+        assertTrue(queried < 2000, queried + " of 100000 unknown lookups would reach storage");
+        assertEquals(100_000 - queried, store.getLookupsSkipped());
+    }
+
+    @ParameterizedTest
+    @EnumSource(PersistenceMode.class)
+    void readingAnUnknownAccountCreatesNoRow(PersistenceMode mode) throws Exception {
+        AccountStore store = store(mode);
+        UUID stranger = UUID.randomUUID();
+        PlayerData data = load(store, stranger);
+
+        assertEquals(100, data.money);
+        assertEquals(10, data.tokens);
+        assertEquals(100, data.accruedMoney(new AccrualPolicy(0.01, 0), System.currentTimeMillis()));
+        assertFalse(data.isPersisted());
+        assertFalse(data.isModified());
+
+        store.save(stranger, data).get(10, TimeUnit.SECONDS);
+        assertNull(backend.load(stranger));
+        assertEquals(known.size(), rowCount());
+    }
+
+    @ParameterizedTest
+    @EnumSource(PersistenceMode.class)
+    void firstChangeCreatesTheRowFromStartingBalances(PersistenceMode mode) throws Exception {
+        AccountStore store = store(mode);
+        UUID joined = UUID.randomUUID();
+        PlayerData data = load(store, joined);
+        data.money += 25;
+
+        store.save(joined, data).get(10, TimeUnit.SECONDS);
+        assertTrue(data.isPersisted());
+        assertTrue(store.mightHaveRow(joined));
+        PlayerData stored = backend.load(joined);
+        assertEquals(125, stored.money);
+        assertEquals(10, stored.tokens);
+        assertEquals(1, stored.level);
+        assertEquals(known.size() + 1, rowCount());
+    }
+
+    @Test
+    void createAccountWritesTheStartingBalancesOnce() throws StorageException {
+        AccountStore store = store(PersistenceMode.DELTA);
+        UUID created = UUID.randomUUID();
+        PlayerData data = load(store, created);
+
+        assertTrue(store.createAccount(created, data));
+        assertFalse(store.createAccount(created, data));
+        assertEquals(100, backend.load(created).money);
+        assertEquals(known.size() + 1, rowCount());
+    }
+
+    @ParameterizedTest
+    @EnumSource(PersistenceMode.class)
+    void importedRowIsAdoptedByTheCachedAccount(PersistenceMode mode) throws Exception {
+        AccountStore store = store(mode);
+        UUID imported = UUID.randomUUID();
+        PlayerData data = load(store, imported);
+        data.tokens += 5;
+
+        backend.insertMissing(List.of(Map.entry(imported, new PlayerData(null, 5000, 40, 0, 0, 0, 0, 0))));
+        assertEquals(1, store.rebase(() -> Map.of(imported, data), () -> { }));
+        assertTrue(store.mightHaveRow(imported));
+        assertEquals(5000, data.money);
+        assertEquals(45, data.tokens);
+
+        store.save(imported, data).get(10, TimeUnit.SECONDS);
+        PlayerData stored = backend.load(imported);
+        assertEquals(5000, stored.money);
+        assertEquals(45, stored.tokens);
+    }
+
+    private AccountStore store(PersistenceMode mode) {
+        AccountStore store = new AccountStore(backend, new OrderedLanes(saves, 4), mode, false,
+                Logger.getLogger(getClass().getName()));
+        store.attachIndex(index, Runnable::run, 700);
+        return store;
+    }
+
+    private static PlayerData load(AccountStore store, UUID uuid) throws StorageException {
+        return store.load(List.of(uuid), STARTING).get(uuid);
+    }
+
+    private long rowCount() throws StorageException {
+        AtomicLong rows = new AtomicLong();
+        backend.scan(1000, page -> rows.addAndGet(page.size()));
+        return rows.get();
+    }
+}
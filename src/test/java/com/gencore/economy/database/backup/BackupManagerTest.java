@@ -0,0 +1,130 @@
+package com.gencore.economy.database.backup;
+
+import com.gencore.economy.database.DatabaseManager.PlayerData;
+import com.gencore.economy.database.Deltas;
+import com.gencore.economy.database.storage.MemoryStorageBackend;
+import com.gencore.economy.database.storage.StorageBackend;
+import com.gencore.economy.database.storage.StorageException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BackupManagerTest {
+
+    private static final Logger LOGGER = Logger.getLogger(BackupManagerTest.class.getName());
+
+    @TempDir
+    Path folder;
+
+    private StorageBackend storage;
+    private BackupManager backups;
+    private final List<UUID> uuids = new ArrayList<>();
+
+    @BeforeEach
+    void open() throws Exception {
+        ChangeTracker tracker = new ChangeTracker();
+        storage = new ChangeTrackingBackend(new MemoryStorageBackend(), tracker);
+        storage.initialize();
+        backups = new BackupManager(folder.toFile(), storage, tracker, 3, 100, LOGGER);
+        backups.start();
+
+        List<Map.Entry<UUID, PlayerData>> rows = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            UUID uuid = UUID.randomUUID();
+            uuids.add(uuid);
+            rows.add(Map.entry(uuid, new PlayerData(null, i, i, 0, 0, i % 20, 0, 0, 1000 + i, 0)));
+        }
+        storage.saveBatch(rows);
+    }
+
+    @Test
+    void restoringAnIncrementalReplaysItsChain() throws Exception {
+        BackupManager.Backup full = backups.runFull();
+
+        storage.saveDeltas(List.of(Deltas.of(uuids.get(0), 50, 5), Deltas.of(uuids.get(1), -1, 0)));
+        storage.delete(uuids.get(2));
+        UUID joined = UUID.randomUUID();
+        storage.saveBatch(List.of(Map.entry(joined, new PlayerData(null, 7, 7, 7, 7, 7, 7, 7))));
+        BackupManager.Backup second = backups.runIncremental();
+        Map<UUID, PlayerData> atSecond = contents(storage);
+
+        storage.saveDeltas(List.of(Deltas.of(uuids.get(0), 25, 0), Deltas.of(joined, 0, 100)));
+        storage.delete(uuids.get(3));
+        BackupManager.Backup third = backups.runIncremental();
+        Map<UUID, PlayerData> atThird = contents(storage);
+
+        assertNull(backups.runIncremental(), "nothing changed since the last backup");
+        assertEquals(full.getSequence(), third.header().base());
+
+        assertSameRows(atSecond, restore(second.getSequence()));
+        assertSameRows(atThird, restore(third.getSequence()));
+        assertEquals(1000, restore(full.getSequence()).size());
+    }
+
+    @Test
+    void damagedChainIsRefusedBeforeAnythingIsWritten() throws Exception {
+        backups.runFull();
+        storage.saveDeltas(List.of(Deltas.of(uuids.get(0), 50, 5)));
+        BackupManager.Backup incremental = backups.runIncremental();
+
+        try (RandomAccessFile file = new RandomAccessFile(incremental.file(), "rw")) {
+            file.setLength(file.length() / 2);
+        }
+
+        MemoryStorageBackend target = new MemoryStorageBackend();
+        assertThrows(StorageException.class,
+                () -> BackupManager.restore(folder.toFile(), incremental.getSequence(), target, 100, LOGGER));
+        assertTrue(contents(target).isEmpty(), "a refused restore must not write a partial state");
+    }
+
+    @Test
+    void incrementalWithoutItsFullBackupIsRefused() throws Exception {
+        BackupManager.Backup full = backups.runFull();
+        storage.saveDeltas(List.of(Deltas.of(uuids.get(0), 1, 1)));
+        BackupManager.Backup incremental = backups.runIncremental();
+
+        assertTrue(full.file().delete());
+        assertThrows(StorageException.class, () -> restore(incremental.getSequence()));
+    }
+
+    private Map<UUID, PlayerData> restore(long sequence) throws StorageException {
+        MemoryStorageBackend target = new MemoryStorageBackend();
+        BackupManager.restore(folder.toFile(), sequence, target, 64, LOGGER);
+        return contents(target);
+    }
+
+    private static Map<UUID, PlayerData> contents(StorageBackend backend) throws StorageException {
+        Map<UUID, PlayerData> rows = new HashMap<>();
+        backend.scan(500, page -> page.forEach(entry -> rows.put(entry.getKey(), entry.getValue())));
+        return rows;
+    }
+
+    private static void assertSameRows(Map<UUID, PlayerData> expected, Map<UUID, PlayerData> actual) {
+        assertEquals(expected.keySet(), actual.keySet());
+        expected.forEach((uuid, row) -> {
+            PlayerData restored = actual.get(uuid);
+            assertEquals(row.money, restored.money, "money of " + uuid);
+            assertEquals(row.tokens, restored.tokens, "tokens of " + uuid);
+            assertEquals(row.shards, restored.shards, "shards of " + uuid);
+            assertEquals(row.credits, restored.credits, "credits of " + uuid);
+            assertEquals(row.level, restored.level, "level of " + uuid);
+            assertEquals(row.experience, restored.experience, "experience of " + uuid);
+            assertEquals(row.rebirths, restored.rebirths, "rebirths of " + uuid);
+            assertEquals(row.moneyAccruedAt, restored.moneyAccruedAt, "moneyAccruedAt of " + uuid);
+        });
+    }
+}
@@ -0,0 +1,89 @@
+package com.gencore.economy.database.storage;
+
+import com.gencore.economy.database.DatabaseManager.PlayerData;
+import com.gencore.economy.database.Deltas;
+import com.gencore.economy.database.PlayerDelta;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MappedStorageBackendTest extends StorageBackendContractTest {
+
+    // Layout from MappedStorageBackend's class comment
+    private static final int HEADER_SIZE = 64;
+    private static final int SLOT_SIZE = 176;
+    private static final int COPY_SIZE = 80;
+
+    @Override
+    protected StorageBackend createBackend(Path folder) {
+        // Few slots, so the contract runs through the file growing too
+        return new MappedStorageBackend(folder.resolve("accounts.dat").toFile(), 64, false,
+                Logger.getLogger(getClass().getName()));
+    }
+
+    @Test
+    void unreadableRowFailsDeltasBeforeAnyIsApplied() throws Exception {
+        List<Map.Entry<UUID, PlayerData>> rows = rows(100);
+        backend.saveBatch(rows);
+        UUID broken = rows.get(60).getKey();
+        corruptBothCopies(broken);
+
+        List<PlayerDelta> deltas = new ArrayList<>();
+        for (Map.Entry<UUID, PlayerData> entry : rows) {
+            deltas.add(Deltas.of(entry.getKey(), 5, 1));
+        }
+        assertThrows(StorageException.class, () -> backend.saveDeltas(deltas));
+
+        for (Map.Entry<UUID, PlayerData> entry : rows) {
+            if (!entry.getKey().equals(broken)) {
+                assertRow(entry.getValue(), backend.load(entry.getKey()));
+            }
+        }
+    }
+
+    @Test
+    void rowsSurviveReopening() throws StorageException {
+        List<Map.Entry<UUID, PlayerData>> rows = rows(300);
+        backend.saveBatch(rows);
+        backend.delete(rows.get(3).getKey());
+        backend.close();
+
+        backend = createBackend(folder);
+        backend.initialize();
+        assertEquals(rows.size() - 1, ((MappedStorageBackend) backend).getAccountCount());
+        for (Map.Entry<UUID, PlayerData> entry : rows.subList(4, rows.size())) {
+            assertRow(entry.getValue(), backend.load(entry.getKey()));
+        }
+    }
+
+    /**
+     * Flip a data byte in both copies through the file, which shares pages with the mapping
+     */
+    private void corruptBothCopies(UUID uuid) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(((MappedStorageBackend) backend).getFile(), "rw")) {
+            for (long offset = HEADER_SIZE; offset + SLOT_SIZE <= raf.length(); offset += SLOT_SIZE) {
+                raf.seek(offset);
+                if (raf.readLong() == uuid.getMostSignificantBits() && raf.readLong() == uuid.getLeastSignificantBits()) {
+                    for (long copy = offset + 16; copy < offset + 16 + 2 * COPY_SIZE; copy += COPY_SIZE) {
+                        raf.seek(copy + 8);
+                        int value = raf.read();
+                        raf.seek(copy + 8);
+                        raf.write(value ^ 0xFF);
+                    }
+                    return;
+                }
+            }
+        }
+        throw new IllegalStateException("No slot for " + uuid);
+    }
+}
@@ -0,0 +1,11 @@
+package com.gencore.economy.database.storage;
+
+import java.nio.file.Path;
+
+class MemoryStorageBackendTest extends StorageBackendContractTest {
+
+    @Override
+    protected StorageBackend createBackend(Path folder) {
+        return new MemoryStorageBackend();
+    }
+}
@@ -0,0 +1,46 @@
+package com.gencore.economy.database.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.logging.Logger;
+
+/**
+ * Runs against the database named by the gencore.test.mysql.* system properties, whose player_economy it empties
+ */
+@EnabledIfSystemProperty(named = "gencore.test.mysql.host", matches = ".+")
+class MySqlStorageBackendTest extends StorageBackendContractTest {
+
+    @Override
+    protected StorageBackend createBackend(Path folder) {
+        return new MySqlStorageBackend(
+                System.getProperty("gencore.test.mysql.host"),
+                Integer.getInteger("gencore.test.mysql.port", 3306),
+                System.getProperty("gencore.test.mysql.database", "gencore_test"),
+                System.getProperty("gencore.test.mysql.username", "root"),
+                System.getProperty("gencore.test.mysql.password", ""),
+                4, 100, Logger.getLogger(getClass().getName()));
+    }
+
+    @BeforeEach
+    void emptyTable() throws SQLException {
+        execute("DELETE FROM player_economy");
+    }
+
+    @AfterEach
+    void dropArchive() throws SQLException {
+        execute("DROP TABLE IF EXISTS " + archive);
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Connection conn = ((MySqlStorageBackend) backend).getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
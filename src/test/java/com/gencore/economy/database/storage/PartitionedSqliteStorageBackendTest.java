@@ -0,0 +1,113 @@
+package com.gencore.economy.database.storage;
+
+import com.gencore.economy.database.DatabaseManager.PlayerData;
+import com.gencore.economy.database.transfer.StorageTransfer;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PartitionedSqliteStorageBackendTest extends StorageBackendContractTest {
+
+    @Override
+    protected StorageBackend createBackend(Path folder) {
+        return new PartitionedSqliteStorageBackend(folder.resolve("partitions").toFile(), 4, "normal", 256, 2, 100,
+                Logger.getLogger(getClass().getName()));
+    }
+
+    /**
+     * Only one partition fails, so the others must undo what they committed
+     */
+    @Override
+    protected boolean breakWrites(UUID uuid) {
+        PartitionedSqliteStorageBackend partitioned = (PartitionedSqliteStorageBackend) backend;
+        partitioned.getPartition(partitioned.partitionOf(uuid)).getWriter().close();
+        return true;
+    }
+
+    @Test
+    void refusesFolderLaidOutForAnotherCount() {
+        backend.close();
+        PartitionedSqliteStorageBackend other = new PartitionedSqliteStorageBackend(
+                folder.resolve("partitions").toFile(), 8, "normal", 256, 2, 100, Logger.getLogger(getClass().getName()));
+        try {
+            StorageException error = assertThrows(StorageException.class, other::initialize);
+            assertTrue(error.getMessage().contains("holds 4"), error.getMessage());
+        } finally {
+            other.close();
+        }
+    }
+
+    @Test
+    void rowsLiveInThePartitionTheirKeyHashesTo() throws StorageException {
+        List<Map.Entry<UUID, PlayerData>> rows = rows(2000);
+        backend.saveBatch(rows);
+
+        PartitionedSqliteStorageBackend partitioned = (PartitionedSqliteStorageBackend) backend;
+        long total = 0;
+        for (int i = 0; i < partitioned.getPartitionCount(); i++) {
+            int index = i;
+            AtomicLong held = new AtomicLong();
+            partitioned.getPartition(i).scan(500, page -> page.forEach(entry -> {
+                assertEquals(index, partitioned.partitionOf(entry.getKey()));
+                held.incrementAndGet();
+            }));
+            assertTrue(held.get() > rows.size() / 8, "partition " + i + " holds only " + held.get() + " rows");
+            total += held.get();
+        }
+        assertEquals(rows.size(), total);
+    }
+
+    @Test
+    void failedSeasonResetNamesThePartitionsAlreadyReset() throws StorageException {
+        List<Map.Entry<UUID, PlayerData>> rows = rows(400);
+        backend.saveBatch(rows);
+        PartitionedSqliteStorageBackend partitioned = (PartitionedSqliteStorageBackend) backend;
+        partitioned.getPartition(2).getWriter().close();
+
+        StorageException error = assertThrows(StorageException.class,
+                () -> backend.resetSeason(archive, Set.of("credits"), new PlayerData(null)));
+        assertTrue(error.getMessage().contains("partitions [0, 1, 3]"), error.getMessage());
+        for (int i : new int[] {0, 1, 3}) {
+            assertTrue(folder.resolve("partitions/seasons/" + archive + "_" + i + ".db").toFile().exists(),
+                    "no archive of partition " + i);
+        }
+        assertFalse(folder.resolve("partitions/seasons/" + archive + "_2.db").toFile().exists());
+    }
+
+    /**
+     * Changing the count means copying into a new folder, as the refused initialize says
+     */
+    @Test
+    void repartitionsThroughATransfer() throws StorageException {
+        List<Map.Entry<UUID, PlayerData>> rows = rows(3000);
+        backend.saveBatch(rows);
+
+        PartitionedSqliteStorageBackend wider = new PartitionedSqliteStorageBackend(
+                folder.resolve("partitions-8").toFile(), 8, "normal", 256, 2, 100, Logger.getLogger(getClass().getName()));
+        try {
+            wider.initialize();
+            StorageTransfer.Result result = new StorageTransfer(backend, wider, 250, 4,
+                    folder.resolve("transfer.checkpoint").toFile(), Logger.getLogger(getClass().getName()))
+                    .run(false, true);
+            assertTrue(result.matches(), result.toString());
+            assertEquals(rows.size(), result.targetRows());
+
+            for (Map.Entry<UUID, PlayerData> row : rows) {
+                assertRow(row.getValue(), wider.load(row.getKey()));
+            }
+        } finally {
+            wider.close();
+        }
+    }
+}
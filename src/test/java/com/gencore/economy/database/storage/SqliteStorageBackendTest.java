@@ -0,0 +1,21 @@
+package com.gencore.economy.database.storage;
+
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+class SqliteStorageBackendTest extends StorageBackendContractTest {
+
+    @Override
+    protected StorageBackend createBackend(Path folder) {
+        return new SqliteStorageBackend(folder.resolve("economy.db").toFile(), "normal", 256, 2, 100,
+                Logger.getLogger(getClass().getName()));
+    }
+
+    @Override
+    protected boolean breakWrites(UUID uuid) {
+        // Reads keep working through the read-only pool
+        ((SqliteStorageBackend) backend).getWriter().close();
+        return true;
+    }
+}
@@ -0,0 +1,302 @@
+package com.gencore.economy.database.storage;
+
+import com.gencore.economy.database.AccrualPolicy;
+import com.gencore.economy.database.DatabaseManager.PlayerData;
+import com.gencore.economy.database.Deltas;
+import com.gencore.economy.database.MassUpdate;
+import com.gencore.economy.database.PlayerDelta;
+import com.gencore.economy.database.UuidCodec;
+import com.gencore.economy.database.transfer.AccountFilter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * What every {@link StorageBackend} must do the same way; one subclass per backend
+ */
+abstract class StorageBackendContractTest {
+
+    @TempDir
+    Path folder;
+
+    protected StorageBackend backend;
+
+    // Unique per test, since MySQL keeps archives as tables in the shared database
+    protected final String archive = "season_" + Long.toString(System.nanoTime(), 36);
+
+    protected abstract StorageBackend createBackend(Path folder) throws Exception;
+
+    /**
+     * Make every following write that touches the account fail
+     * @return false if the backend has no way to fail, so the test does not apply
+     */
+    protected boolean breakWrites(UUID uuid) {
+        return false;
+    }
+
+    @BeforeEach
+    void open() throws Exception {
+        backend = createBackend(folder);
+        backend.initialize();
+    }
+
+    @AfterEach
+    void close() {
+        backend.close();
+    }
+
+    @Test
+    void loadsNothingForUnknownAccounts() throws StorageException {
+        UUID known = UUID.randomUUID();
+        backend.saveBatch(List.of(Map.entry(known, row(10, 1))));
+
+        assertNull(backend.load(UUID.randomUUID()));
+        Map<UUID, PlayerData> loaded = backend.loadAll(List.of(known, UUID.randomUUID(), UUID.randomUUID()));
+        assertEquals(Set.of(known), loaded.keySet());
+        assertTrue(backend.loadAll(List.of()).isEmpty());
+    }
+
+    @Test
+    void saveBatchCreatesAndOverwritesRows() throws StorageException {
+        List<Map.Entry<UUID, PlayerData>> rows = rows(500);
+        backend.saveBatch(rows);
+        for (Map.Entry<UUID, PlayerData> entry : rows) {
+            assertRow(entry.getValue(), backend.load(entry.getKey()));
+        }
+
+        UUID uuid = rows.get(7).getKey();
+        PlayerData updated = new PlayerData(null, 1.5, 2, 3, 4, 5, 6.5, 7, 1000, 2000);
+        backend.saveBatch(List.of(Map.entry(uuid, updated)));
+        assertRow(updated, backend.load(uuid));
+        assertRow(rows.get(8).getValue(), backend.load(rows.get(8).getKey()));
+    }
+
+    @Test
+    void insertMissingNeverOverwrites() throws StorageException {
+        UUID existing = UUID.randomUUID();
+        UUID fresh = UUID.randomUUID();
+        backend.saveBatch(List.of(Map.entry(existing, row(100, 10))));
+
+        backend.insertMissing(List.of(Map.entry(existing, row(1, 1)), Map.entry(fresh, row(5, 5))));
+
+        assertRow(row(100, 10), backend.load(existing));
+        assertRow(row(5, 5), backend.load(fresh));
+    }
+
+    @Test
+    void saveDeltasAddToExistingRowsOnly() throws StorageException {
+        UUID existing = UUID.randomUUID();
+        UUID missing = UUID.randomUUID();
+        backend.saveBatch(List.of(Map.entry(existing, row(100, 10))));
+
+        backend.saveDeltas(List.of(
+                Deltas.of(existing, 25.5, -3, 7, 0, 1, 0, 0, 1234, 0),
+                Deltas.of(existing, -0.5, 0),
+                Deltas.of(missing, 50, 50)));
+
+        PlayerData stored = backend.load(existing);
+        assertEquals(125, stored.money, 1e-9);
+        assertEquals(7, stored.tokens);
+        assertEquals(7, stored.shards);
+        assertEquals(1, stored.level);
+        assertEquals(1234, stored.moneyAccruedAt);
+        assertNull(backend.load(missing), "a delta must not create a row");
+    }
+
+    @Test
+    void saveDeltasAreAllOrNothing() throws StorageException {
+        List<Map.Entry<UUID, PlayerData>> rows = rows(64);
+        backend.saveBatch(rows);
+        assumeTrue(breakWrites(rows.get(0).getKey()), backend.getName() + " writes cannot fail");
+
+        List<PlayerDelta> deltas = new ArrayList<>();
+        for (Map.Entry<UUID, PlayerData> entry : rows) {
+            deltas.add(Deltas.of(entry.getKey(), 5, 1));
+        }
+        assertThrows(StorageException.class, () -> backend.saveDeltas(deltas));
+
+        for (Map.Entry<UUID, PlayerData> entry : rows) {
+            assertRow(entry.getValue(), backend.load(entry.getKey()));
+        }
+    }
+
+    @Test
+    void scanReturnsEveryRowInKeyOrderAndResumes() throws StorageException {
+        List<Map.Entry<UUID, PlayerData>> rows = rows(2500);
+        backend.saveBatch(rows);
+
+        List<UUID> seen = new ArrayList<>();
+        backend.scan(100, page -> {
+            assertTrue(page.size() <= 100, "page larger than asked for");
+            page.forEach(entry -> seen.add(entry.getKey()));
+        });
+        assertEquals(rows.size(), seen.size());
+        for (int i = 1; i < seen.size(); i++) {
+            assertTrue(UuidCodec.compare(seen.get(i - 1), seen.get(i)) < 0, "keys out of order at " + i);
+        }
+
+        List<UUID> rest = new ArrayList<>();
+        backend.scan(seen.get(999), 333, page -> page.forEach(entry -> rest.add(entry.getKey())));
+        assertEquals(seen.subList(1000, seen.size()), rest);
+
+        List<UUID> none = new ArrayList<>();
+        backend.scan(seen.get(seen.size() - 1), 50, page -> page.forEach(entry -> none.add(entry.getKey())));
+        assertTrue(none.isEmpty());
+    }
+
+    @Test
+    void deleteRemovesOnlyThatRow() throws StorageException {
+        UUID gone = UUID.randomUUID();
+        UUID kept = UUID.randomUUID();
+        backend.saveBatch(List.of(Map.entry(gone, row(1, 1)), Map.entry(kept, row(2, 2))));
+
+        assertTrue(backend.delete(gone));
+        assertFalse(backend.delete(gone));
+        assertNull(backend.load(gone));
+        assertNotNull(backend.load(kept));
+
+        List<UUID> scanned = new ArrayList<>();
+        backend.scan(10, page -> page.forEach(entry -> scanned.add(entry.getKey())));
+        assertEquals(List.of(kept), scanned);
+    }
+
+    @Test
+    void resetSeasonKeepsOnlyCarriedColumns() throws StorageException {
+        List<Map.Entry<UUID, PlayerData>> rows = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            rows.add(Map.entry(UUID.randomUUID(), new PlayerData(null, 100 + i, i, 3, 40 + i, 5, 6, i % 4, 1000, 2000)));
+        }
+        backend.saveBatch(rows);
+
+        PlayerData start = new PlayerData(null, 25, 10, 0, 0, 1, 0, 0);
+        assertEquals(rows.size(), backend.resetSeason(archive, Set.of("credits", "rebirths"), start));
+
+        for (Map.Entry<UUID, PlayerData> entry : rows) {
+            PlayerData before = entry.getValue();
+            PlayerData after = backend.load(entry.getKey());
+            assertNotNull(after, "every account keeps a row");
+            assertRow(new PlayerData(null, 25, 10, 0, before.credits, 1, 0, before.rebirths, 0, 0), after);
+        }
+    }
+
+    @Test
+    void settledAccrualEqualsLazyValue() throws StorageException {
+        AccrualPolicy policy = new AccrualPolicy(0.02, 0.1);
+        long now = 50 * AccrualPolicy.DAY_MILLIS;
+        UUID accruing = UUID.randomUUID();
+        UUID fresh = UUID.randomUUID();
+        PlayerData accruingRow = new PlayerData(null, 1000, 0, 500, 0, 0, 0, 0,
+                now - 3 * AccrualPolicy.DAY_MILLIS, now - AccrualPolicy.DAY_MILLIS / 2);
+        backend.saveBatch(List.of(Map.entry(accruing, accruingRow), Map.entry(fresh, row(70, 0))));
+
+        assertEquals(2, backend.settleAccrual(policy, now));
+
+        PlayerData settled = backend.load(accruing);
+        assertEquals(accruingRow.accruedMoney(policy, now), settled.money, 1e-6);
+        assertEquals(accruingRow.accruedShards(policy, now), settled.shards);
+        assertEquals(now, settled.moneyAccruedAt);
+        assertEquals(now, settled.shardsAccruedAt);
+
+        PlayerData started = backend.load(fresh);
+        assertEquals(70, started.money, 1e-9);
+        assertEquals(now, started.moneyAccruedAt, "an account that was not accruing starts now");
+    }
+
+    @Test
+    void massUpdateChangesOnlySelectedAccounts() throws StorageException {
+        List<Map.Entry<UUID, PlayerData>> rows = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            rows.add(Map.entry(UUID.randomUUID(), new PlayerData(null, i * 10, i, i, 0, 0, 0, i % 10)));
+        }
+        backend.saveBatch(rows);
+
+        assertEquals(150, backend.massUpdate(new MassUpdate("money", MassUpdate.Operation.ADD, 500, 0,
+                AccountFilter.parse("rebirths>=5"))));
+        assertEquals(rows.size(), backend.massUpdate(new MassUpdate("tokens", MassUpdate.Operation.MULTIPLY, 1.5, 0,
+                AccountFilter.ALL)));
+        assertEquals(299, backend.massUpdate(new MassUpdate("shards", MassUpdate.Operation.CLAMP, 20, 100,
+                AccountFilter.parse("shards!=20"))));
+
+        for (Map.Entry<UUID, PlayerData> entry : rows) {
+            PlayerData before = entry.getValue();
+            PlayerData after = backend.load(entry.getKey());
+            assertEquals(before.money + (before.rebirths >= 5 ? 500 : 0), after.money, 1e-9);
+            assertEquals((long) Math.floor(before.tokens * 1.5), after.tokens);
+            assertEquals(Math.min(Math.max(before.shards, 20), 100), after.shards);
+            assertEquals(before.rebirths, after.rebirths);
+        }
+    }
+
+    @Test
+    void multiplyHoldsWholeNumbersInTheirColumnRange() throws StorageException {
+        UUID big = UUID.randomUUID();
+        UUID small = UUID.randomUUID();
+        backend.saveBatch(List.of(
+                Map.entry(big, new PlayerData(null, 0, Long.MAX_VALUE / 2, 0, 0, 2_000_000_000, 0, 0)),
+                Map.entry(small, new PlayerData(null, 0, 3, 0, 0, 3, 0, 0))));
+
+        backend.massUpdate(new MassUpdate("tokens", MassUpdate.Operation.MULTIPLY, 4, 0, AccountFilter.ALL));
+        backend.massUpdate(new MassUpdate("level", MassUpdate.Operation.MULTIPLY, 4, 0, AccountFilter.ALL));
+
+        PlayerData grown = backend.load(big);
+        assertEquals(Long.MAX_VALUE, grown.tokens);
+        assertEquals(Integer.MAX_VALUE, grown.level);
+        PlayerData plain = backend.load(small);
+        assertEquals(12, plain.tokens);
+        assertEquals(12, plain.level);
+    }
+
+    @Test
+    void takeNeverGoesBelowZero() throws StorageException {
+        UUID rich = UUID.randomUUID();
+        UUID poor = UUID.randomUUID();
+        backend.saveBatch(List.of(Map.entry(rich, row(900, 40)), Map.entry(poor, row(150, 3))));
+
+        assertEquals(2, backend.massUpdate(new MassUpdate("money", MassUpdate.Operation.ADD, -200, 0, AccountFilter.ALL)));
+        assertEquals(2, backend.massUpdate(new MassUpdate("tokens", MassUpdate.Operation.ADD, -10, 0, AccountFilter.ALL)));
+
+        assertRow(row(700, 30), backend.load(rich));
+        assertRow(row(0, 0), backend.load(poor));
+    }
+
+    protected static PlayerData row(double money, long tokens) {
+        return new PlayerData(null, money, tokens, 0, 0, 0, 0, 0);
+    }
+
+    protected static List<Map.Entry<UUID, PlayerData>> rows(int count) {
+        List<Map.Entry<UUID, PlayerData>> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(Map.entry(UUID.randomUUID(), new PlayerData(null, i + 0.25, i, i * 2L, i * 3L, i % 50, i / 4.0, i % 7)));
+        }
+        return rows;
+    }
+
+    protected static void assertRow(PlayerData expected, PlayerData actual) {
+        assertNotNull(actual, "missing row");
+        assertEquals(expected.money, actual.money, 1e-9, "money");
+        assertEquals(expected.tokens, actual.tokens, "tokens");
+        assertEquals(expected.shards, actual.shards, "shards");
+        assertEquals(expected.credits, actual.credits, "credits");
+        assertEquals(expected.level, actual.level, "level");
+        assertEquals(expected.experience, actual.experience, 1e-9, "experience");
+        assertEquals(expected.rebirths, actual.rebirths, "rebirths");
+        assertEquals(expected.moneyAccruedAt, actual.moneyAccruedAt, "moneyAccruedAt");
+        assertEquals(expected.shardsAccruedAt, actual.shardsAccruedAt, "shardsAccruedAt");
+    }
+}
@@ -0,0 +1,99 @@
+package com.gencore.economy.database.transfer;
+
+import com.gencore.economy.database.DatabaseManager.PlayerData;
+import com.gencore.economy.database.storage.MemoryStorageBackend;
+import com.gencore.economy.database.storage.StorageException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccountExporterTest {
+
+    private static final Logger LOGGER = Logger.getLogger(AccountExporterTest.class.getName());
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void filteredCsvExportImportsBackToTheSameAccounts() throws Exception {
+        MemoryStorageBackend source = source(3000);
+        AccountFilter filter = AccountFilter.parse("rebirths>=2,money<1000");
+        File file = folder.resolve("export.csv.gz").toFile();
+
+        AccountExporter.Report report = new AccountExporter(source, file, AccountExporter.Format.CSV, filter, 128,
+                () -> false, LOGGER).run();
+
+        MemoryStorageBackend target = new MemoryStorageBackend();
+        AccountImporter.Report imported = new AccountImporter(target, 2, 100, LOGGER).run(new CsvAccountFormat(file));
+
+        assertEquals(3000, report.scanned());
+        assertEquals(report.exported(), imported.imported());
+        assertEquals(0, imported.failed());
+        long[] selected = new long[1];
+        source.scan(500, page -> page.forEach(entry -> {
+            PlayerData stored = entry.getValue();
+            PlayerData copy = target.load(entry.getKey());
+            if (!filter.test(entry.getKey(), stored)) {
+                assertNull(copy, "account outside the filter was exported");
+                return;
+            }
+            selected[0]++;
+            assertEquals(stored.money, copy.money);
+            assertEquals(stored.tokens, copy.tokens);
+            assertEquals(stored.shards, copy.shards);
+            assertEquals(stored.credits, copy.credits);
+            assertEquals(stored.level, copy.level);
+            assertEquals(stored.experience, copy.experience);
+            assertEquals(stored.rebirths, copy.rebirths);
+        }));
+        assertEquals(selected[0], report.exported());
+        assertTrue(selected[0] > 0 && selected[0] < 3000, "filter should select some accounts");
+    }
+
+    @Test
+    void ndjsonExportWritesOneObjectPerAccount() throws Exception {
+        MemoryStorageBackend source = source(250);
+        File file = folder.resolve("export.ndjson.gz").toFile();
+
+        AccountExporter.Report report = new AccountExporter(source, file, AccountExporter.Format.NDJSON,
+                AccountFilter.ALL, 64, () -> false, LOGGER).run();
+
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file.toPath())), StandardCharsets.UTF_8))) {
+            reader.lines().forEach(lines::add);
+        }
+        assertEquals(250, report.exported());
+        assertEquals(250, lines.size());
+        assertTrue(lines.stream().allMatch(line -> line.startsWith("{\"uuid\":\"") && line.endsWith("}")));
+        assertFalse(new File(file.getPath() + ".part").exists());
+    }
+
+    private static MemoryStorageBackend source(int rows) throws StorageException {
+        MemoryStorageBackend source = new MemoryStorageBackend();
+        List<Map.Entry<UUID, PlayerData>> batch = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            batch.add(Map.entry(UUID.randomUUID(),
+                    new PlayerData(null, i * 0.7, i, i % 13, i * 2L, i % 40, i / 3.0, i % 5)));
+        }
+        source.saveBatch(batch);
+        return source;
+    }
+}
@@ -0,0 +1,96 @@
+package com.gencore.economy.database.transfer;
+
+import com.gencore.economy.database.DatabaseManager.PlayerData;
+import com.gencore.economy.database.storage.MemoryStorageBackend;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class AccountImporterTest {
+
+    private static final Logger LOGGER = Logger.getLogger(AccountImporterTest.class.getName());
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void csvImportSkipsExistingAndDuplicateAccounts() throws Exception {
+        MemoryStorageBackend target = new MemoryStorageBackend();
+        UUID existing = UUID.randomUUID();
+        target.saveBatch(List.of(Map.entry(existing, new PlayerData(null, 999, 9, 0, 0, 0, 0, 0))));
+
+        List<UUID> fresh = new ArrayList<>();
+        StringBuilder csv = new StringBuilder("uuid,money,tokens,level\n");
+        for (int i = 0; i < 2500; i++) {
+            UUID uuid = UUID.randomUUID();
+            fresh.add(uuid);
+            csv.append(uuid).append(',').append(i).append(".5,").append(i).append(',').append(i % 10).append('\n');
+        }
+        // Imported once, from whichever occurrence is parsed first
+        csv.append(fresh.get(0)).append(",1,1,1\n");
+        csv.append(existing).append(",1,1,1\n");
+        csv.append("not-a-uuid,1,1,1\n");
+        Path file = folder.resolve("balances.csv");
+        Files.writeString(file, csv, StandardCharsets.UTF_8);
+
+        AccountImporter.Report report = new AccountImporter(target, 4, 100, LOGGER)
+                .run(new CsvAccountFormat(file.toFile()));
+
+        assertEquals(2500, report.imported());
+        assertEquals(1, report.existing());
+        assertEquals(1, report.duplicates());
+        assertEquals(1, report.failed());
+        assertEquals(999, target.load(existing).money, "an existing balance must not be overwritten");
+        PlayerData second = target.load(fresh.get(1));
+        assertEquals(1.5, second.money);
+        assertEquals(1, second.tokens);
+        PlayerData last = target.load(fresh.get(2499));
+        assertEquals(2499.5, last.money);
+        assertEquals(2499, last.tokens);
+        assertEquals(9, last.level);
+    }
+
+    @Test
+    void essentialsImportReadsTopLevelMoneyOnly() throws Exception {
+        MemoryStorageBackend target = new MemoryStorageBackend();
+        Path userdata = Files.createDirectory(folder.resolve("userdata"));
+        UUID plain = UUID.randomUUID();
+        UUID quoted = UUID.randomUUID();
+        UUID existing = UUID.randomUUID();
+        UUID noBalance = UUID.randomUUID();
+        target.saveBatch(List.of(Map.entry(existing, new PlayerData(null, 5, 0, 0, 0, 0, 0, 0))));
+
+        write(userdata, plain, "lastAccountName: Steve\nmoney: 1250.75\n");
+        write(userdata, quoted, "nested:\n  money: 3\nmoney: '42'\n");
+        write(userdata, existing, "money: 100\n");
+        write(userdata, noBalance, "lastAccountName: Alex\n");
+        Files.writeString(userdata.resolve("Notch.yml"), "money: 1\n");
+
+        AccountImporter.Report report = new AccountImporter(target, 2, 10, LOGGER)
+                .run(new EssentialsUserdataFormat(userdata.toFile()));
+
+        assertEquals(2, report.imported());
+        assertEquals(1, report.existing());
+        assertEquals(1, report.failed());
+        assertEquals(1250.75, target.load(plain).money);
+        assertEquals(42, target.load(quoted).money);
+        assertEquals(5, target.load(existing).money);
+        assertNull(target.load(noBalance));
+    }
+
+    private static void write(Path folder, UUID uuid, String content) throws IOException {
+        Files.writeString(folder.resolve(uuid + ".yml"), content, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,130 @@
+package com.gencore.economy.database.transfer;
+
+import com.gencore.economy.database.DatabaseManager.PlayerData;
+import com.gencore.economy.database.storage.MemoryStorageBackend;
+import com.gencore.economy.database.storage.SaveReport;
+import com.gencore.economy.database.storage.StorageException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StorageTransferTest {
+
+    private static final Logger LOGGER = Logger.getLogger(StorageTransferTest.class.getName());
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void resumesFromCheckpointWithoutCopyingTheDonePrefixAgain() throws Exception {
+        MemoryStorageBackend source = source(5000);
+        FailingTarget target = new FailingTarget(12);
+        File checkpointFile = folder.resolve("transfer.properties").toFile();
+
+        StorageException error = assertThrows(StorageException.class,
+                () -> new StorageTransfer(source, target, 100, 1, checkpointFile, LOGGER).run(true, true));
+        assertTrue(error.getMessage().contains("resume"), error.getMessage());
+
+        TransferCheckpoint.State saved = new TransferCheckpoint(checkpointFile, "memory", "memory").read();
+        assertEquals(1200, saved.rows());
+
+        target.failAfter.set(Integer.MAX_VALUE);
+        StorageTransfer.Result result = new StorageTransfer(source, target, 100, 1, checkpointFile, LOGGER).run(true, true);
+
+        assertEquals(1200, result.resumedRows());
+        assertEquals(3800, result.copiedRows());
+        assertTrue(result.matches(), result.toString());
+        assertEquals(5000, result.targetRows());
+        assertFalse(checkpointFile.exists(), "checkpoint must be removed once the transfer is done");
+    }
+
+    @Test
+    void verificationCatchesAnExtraRow() throws StorageException {
+        MemoryStorageBackend source = source(300);
+        MemoryStorageBackend target = new MemoryStorageBackend();
+        target.saveBatch(List.of(Map.entry(UUID.randomUUID(), new PlayerData(null, 1, 1, 0, 0, 0, 0, 0))));
+
+        StorageTransfer.Result result = new StorageTransfer(source, target, 64, 2,
+                folder.resolve("transfer.properties").toFile(), LOGGER).run(false, true);
+
+        assertFalse(result.matches());
+        assertEquals(300, result.sourceRows());
+        assertEquals(301, result.targetRows());
+    }
+
+    @Test
+    void verificationCatchesAChangedValue() throws StorageException {
+        MemoryStorageBackend source = source(300);
+        MemoryStorageBackend target = new MemoryStorageBackend() {
+            @Override
+            public SaveReport saveBatch(List<Map.Entry<UUID, PlayerData>> batch) {
+                SaveReport report = super.saveBatch(batch);
+                // One row arrives with its money off by a cent
+                Map.Entry<UUID, PlayerData> first = batch.get(0);
+                PlayerData changed = first.getValue().snapshot();
+                changed.money += 0.01;
+                super.saveBatch(List.of(Map.entry(first.getKey(), changed)));
+                return report;
+            }
+        };
+
+        StorageTransfer.Result result = new StorageTransfer(source, target, 1000, 1,
+                folder.resolve("transfer.properties").toFile(), LOGGER).run(false, true);
+
+        assertEquals(result.sourceRows(), result.targetRows());
+        assertFalse(result.matches(), "same row count but different values must not match");
+    }
+
+    @Test
+    void checkpointOfAnotherPairIsRefused() throws IOException {
+        File file = folder.resolve("transfer.properties").toFile();
+        new TransferCheckpoint(file, "sqlite", "mysql").write(new TransferCheckpoint.State(UUID.randomUUID(), 10));
+
+        assertThrows(IOException.class, () -> new TransferCheckpoint(file, "sqlite", "mapped").read());
+        assertEquals(10, new TransferCheckpoint(file, "sqlite", "mysql").read().rows());
+    }
+
+    private static MemoryStorageBackend source(int rows) throws StorageException {
+        MemoryStorageBackend source = new MemoryStorageBackend();
+        List<Map.Entry<UUID, PlayerData>> batch = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            batch.add(Map.entry(UUID.randomUUID(), new PlayerData(null, i * 1.5, i, i % 17, 0, i % 30, 0, i % 3)));
+        }
+        source.saveBatch(batch);
+        return source;
+    }
+
+    /**
+     * Fails every page written after the first failAfter
+     */
+    private static final class FailingTarget extends MemoryStorageBackend {
+        private final AtomicInteger failAfter;
+        private final AtomicInteger pages = new AtomicInteger();
+
+        private FailingTarget(int failAfter) {
+            this.failAfter = new AtomicInteger(failAfter);
+        }
+
+        @Override
+        public SaveReport saveBatch(List<Map.Entry<UUID, PlayerData>> batch) {
+            if (pages.incrementAndGet() > failAfter.get()) {
+                throw new IllegalStateException("target went away");
+            }
+            return super.saveBatch(batch);
+        }
+    }
+}